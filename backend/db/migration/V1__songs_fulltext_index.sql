@@ -0,0 +1,21 @@
+-- search.mode=fulltext 需要的 FULLTEXT (ngram) 索引。Hibernate 的 ddl-auto 无法创建 FULLTEXT 索引，
+-- 应用启动时也不会执行任何 DDL：切换到 fulltext 模式之前，在部署流程中对主库执行一次本脚本。
+--
+-- 大表上建索引需要较长时间（InnoDB 对 FULLTEXT 索引不支持 LOCK=NONE，建索引期间写入会被阻塞），
+-- 请在低峰期执行。ngram 分词长度由服务器参数 ngram_token_size 决定（默认 2），
+-- 需与 application.yml 中的 search.fulltext.ngram-token-size 一致。
+--
+-- 可重复执行：索引已存在时什么也不做。
+
+SET @index_exists = (
+    SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'songs' AND index_name = 'ft_songs_title_artist_album'
+);
+
+SET @ddl = IF(@index_exists > 0,
+    'DO 0',
+    'ALTER TABLE songs ADD FULLTEXT INDEX ft_songs_title_artist_album (title, artist, album) WITH PARSER ngram');
+
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
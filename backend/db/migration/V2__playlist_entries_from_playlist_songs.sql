@@ -0,0 +1,56 @@
+-- 把旧的 playlist_songs 中间表（无顺序，按歌曲 ID 展示）迁移到 playlist_entries，并补算播放列表的歌曲数 / 总时长。
+-- 应用启动时不再做这些事：每个节点启动时都执行一遍，滚动发布中旧版本节点还在读写 playlist_songs 时就会被删表。
+--
+-- 滚动发布的步骤：
+-- 1. 新版本部署之前执行一次本脚本（表结构由 ddl-auto 在第一个新节点启动时创建；也可以先启动一个不接流量的新节点）。
+-- 2. 所有节点升级完成后再执行一次，补上发布期间旧节点写进 playlist_songs 的歌曲。
+--    只补 playlist_entries 中还没有的（播放列表, 歌曲）组合，追加在列表末尾；
+--    两次执行之间在新节点上移除、但还留在 playlist_songs 中的歌曲会被重新加回来。
+-- 3. 确认没有旧版本节点之后，执行 V3__drop_playlist_songs.sql 删除旧表。
+--
+-- 本脚本会删除 playlist_songs 上的外键：新版本删除歌曲时只清理 playlist_entries，旧表的外键会让删除失败。
+-- 位置间隔与 PlaylistOrder.POSITION_GAP (2^20) 一致。可重复执行；playlist_songs 不存在时只补算统计列。
+
+SET @legacy = (
+    SELECT COUNT(*) FROM information_schema.tables
+    WHERE table_schema = DATABASE() AND table_name = 'playlist_songs'
+);
+
+-- 1. 删除旧表上的外键
+SET @ddl = (
+    SELECT IFNULL(CONCAT('ALTER TABLE playlist_songs ',
+                         GROUP_CONCAT(CONCAT('DROP FOREIGN KEY `', constraint_name, '`') SEPARATOR ', ')),
+                  'DO 0')
+    FROM information_schema.referential_constraints
+    WHERE constraint_schema = DATABASE() AND table_name = 'playlist_songs'
+);
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 2. 复制缺少的（播放列表, 歌曲），按歌曲 ID 排在该播放列表现有的最后一项之后
+SET @copy = IF(@legacy > 0,
+    'INSERT INTO playlist_entries (playlist_id, song_id, position, added_at)
+     SELECT ps.playlist_id, ps.song_id,
+            COALESCE(last.position, 0) + ROW_NUMBER() OVER (PARTITION BY ps.playlist_id ORDER BY ps.song_id) * 1048576,
+            NOW()
+     FROM playlist_songs ps
+     LEFT JOIN (SELECT playlist_id, MAX(position) AS position FROM playlist_entries GROUP BY playlist_id) last
+            ON last.playlist_id = ps.playlist_id
+     WHERE NOT EXISTS (SELECT 1 FROM playlist_entries e WHERE e.playlist_id = ps.playlist_id AND e.song_id = ps.song_id)',
+    'DO 0');
+PREPARE stmt FROM @copy;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 3. 重算升级前就存在的播放列表（两列为 NULL）和本次迁移涉及的播放列表的歌曲数 / 总时长
+SET @stats = CONCAT(
+    'UPDATE playlists p SET
+         p.track_count = (SELECT COUNT(*) FROM playlist_entries e WHERE e.playlist_id = p.id),
+         p.total_duration = (SELECT COALESCE(SUM(s.duration), 0) FROM playlist_entries e JOIN songs s ON s.id = e.song_id
+                             WHERE e.playlist_id = p.id)
+     WHERE p.track_count IS NULL OR p.total_duration IS NULL',
+    IF(@legacy > 0, ' OR p.id IN (SELECT playlist_id FROM playlist_songs)', ''));
+PREPARE stmt FROM @stats;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
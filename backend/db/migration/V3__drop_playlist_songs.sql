@@ -0,0 +1,4 @@
+-- 删除旧的 playlist_songs 中间表。只在所有节点都升级到使用 playlist_entries 的版本、
+-- 并且发布完成后又执行过一次 V2__playlist_entries_from_playlist_songs.sql 之后执行。
+
+DROP TABLE IF EXISTS playlist_songs;
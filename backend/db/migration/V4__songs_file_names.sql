@@ -0,0 +1,12 @@
+-- 为升级前的歌曲补写 file_name / cover_file_name（fileUrl / coverUrl 的最后一段）。
+-- 列和索引由 ddl-auto 创建，新保存的歌曲由实体自动填写；补写之前，删除文件和孤儿回收对这些歌曲
+-- 退回按 URL 后缀匹配（全表扫描这部分歌曲），结果仍然正确，只是慢。
+--
+-- 每次最多更新 10000 行，避免一个大事务长时间锁住 songs：重复执行直到影响行数为 0。
+-- 滚动发布期间旧版本节点新建的歌曲同样没有文件名，发布完成后再执行一遍。
+
+UPDATE songs
+SET file_name = SUBSTRING_INDEX(file_url, '/', -1),
+    cover_file_name = IF(cover_url IS NULL, NULL, SUBSTRING_INDEX(cover_url, '/', -1))
+WHERE file_name IS NULL
+LIMIT 10000;
@@ -0,0 +1,116 @@
+package com.melodymix.backend.audio;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 带窗口缓冲的按位置随机读取器。
+ * 解析器大多是顺序向前读取，偶尔回看几个字节，所以只缓存一个滑动窗口即可，无需把整个文件读入内存。
+ */
+final class AudioFileReader implements Closeable {
+
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+    private long windowStart = 0;
+    private int windowLength = 0;
+
+    AudioFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * 读取一个无符号字节，越界时返回 -1
+     */
+    int get(long position) throws IOException {
+        if (position < 0 || position >= size) {
+            return -1;
+        }
+        if (position < windowStart || position >= windowStart + windowLength) {
+            fill(position);
+        }
+        return window.get((int) (position - windowStart)) & 0xFF;
+    }
+
+    void read(long position, byte[] target, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            int value = get(position + i);
+            if (value < 0) {
+                throw new EOFException("读取位置超出文件末尾: " + (position + i));
+            }
+            target[i] = (byte) value;
+        }
+    }
+
+    byte[] read(long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        read(position, bytes, length);
+        return bytes;
+    }
+
+    int readIntBigEndian(long position) throws IOException {
+        return (get(position) << 24) | (get(position + 1) << 16) | (get(position + 2) << 8) | get(position + 3);
+    }
+
+    int readIntLittleEndian(long position) throws IOException {
+        return get(position) | (get(position + 1) << 8) | (get(position + 2) << 16) | (get(position + 3) << 24);
+    }
+
+    int readShortLittleEndian(long position) throws IOException {
+        return get(position) | (get(position + 1) << 8);
+    }
+
+    boolean matches(long position, String ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) {
+            if (get(position + i) != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 绕过窗口直接批量读取，用于顺序扫描 PCM 数据等大块读取场景
+     */
+    int readBulk(long position, ByteBuffer target) throws IOException {
+        int total = 0;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private void fill(long position) throws IOException {
+        window.clear();
+        windowStart = position;
+        windowLength = 0;
+        while (window.hasRemaining()) {
+            int read = channel.read(window, windowStart + window.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        windowLength = window.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
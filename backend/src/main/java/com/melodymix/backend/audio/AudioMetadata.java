@@ -0,0 +1,30 @@
+package com.melodymix.backend.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 从音频文件头部和帧数据中解析出的元数据
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioMetadata {
+    private String format;       // mp3 / flac / wav
+    private long durationMillis; // 精确时长（毫秒）
+    private int bitrateKbps;     // 平均码率
+    private int sampleRate;
+    private int channels;
+
+    // 标签信息 (ID3 / Vorbis Comment / RIFF INFO)，可能为空
+    private String title;
+    private String artist;
+    private String album;
+    private String year;
+
+    // 归一化到 0-255 的波形峰值，无法计算时为 null
+    private byte[] peaks;
+}
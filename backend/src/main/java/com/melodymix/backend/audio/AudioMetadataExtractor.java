@@ -0,0 +1,35 @@
+package com.melodymix.backend.audio;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 纯 Java 的音频元数据提取器，按文件头魔数识别 WAV / FLAC / MP3。
+ */
+@Component
+public class AudioMetadataExtractor {
+
+    private final int peakCount;
+
+    public AudioMetadataExtractor(@Value("${audio.ingestion.waveform-peaks}") int peakCount) {
+        this.peakCount = peakCount;
+    }
+
+    public AudioMetadata extract(Path file) throws IOException {
+        try (AudioFileReader reader = new AudioFileReader(file)) {
+            if (WavParser.accepts(reader)) {
+                return WavParser.parse(reader, peakCount);
+            }
+            if (FlacParser.accepts(reader)) {
+                return FlacParser.parse(reader);
+            }
+            if (Mp3Parser.accepts(reader)) {
+                return Mp3Parser.parse(reader, peakCount);
+            }
+        }
+        throw new IOException("无法识别的音频格式: " + file.getFileName());
+    }
+}
@@ -0,0 +1,101 @@
+package com.melodymix.backend.audio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * FLAC 解析：STREAMINFO 给出采样率和总采样数（精确时长），VORBIS_COMMENT 给出标签。
+ * 波形峰值需要完整解码 FLAC 帧，这里不做计算。
+ */
+final class FlacParser {
+
+    private static final int BLOCK_STREAMINFO = 0;
+    private static final int BLOCK_VORBIS_COMMENT = 4;
+
+    private FlacParser() {
+    }
+
+    static boolean accepts(AudioFileReader reader) throws IOException {
+        return reader.matches(Mp3Parser.Id3v2.parse(reader, AudioMetadata.builder()), "fLaC");
+    }
+
+    static AudioMetadata parse(AudioFileReader reader) throws IOException {
+        AudioMetadata.AudioMetadataBuilder metadata = AudioMetadata.builder().format("flac");
+        long position = Mp3Parser.Id3v2.parse(reader, metadata) + 4;
+
+        int sampleRate = 0;
+        int channels = 0;
+        long totalSamples = 0;
+        boolean last = false;
+        while (!last && position + 4 <= reader.size()) {
+            int blockHeader = reader.get(position);
+            last = (blockHeader & 0x80) != 0;
+            int type = blockHeader & 0x7F;
+            int length = (reader.get(position + 1) << 16) | (reader.get(position + 2) << 8) | reader.get(position + 3);
+            long body = position + 4;
+
+            if (type == BLOCK_STREAMINFO && length >= 18) {
+                int b10 = reader.get(body + 10);
+                int b11 = reader.get(body + 11);
+                int b12 = reader.get(body + 12);
+                int b13 = reader.get(body + 13);
+                sampleRate = (b10 << 12) | (b11 << 4) | (b12 >> 4);
+                channels = ((b12 >> 1) & 0x07) + 1;
+                totalSamples = ((long) (b13 & 0x0F) << 32) | (reader.readIntBigEndian(body + 14) & 0xFFFFFFFFL);
+            } else if (type == BLOCK_VORBIS_COMMENT) {
+                parseVorbisComment(reader, body, body + length, metadata);
+            }
+            position = body + length;
+        }
+
+        if (sampleRate <= 0) {
+            throw new IOException("FLAC 文件缺少有效的 STREAMINFO");
+        }
+        long durationMillis = totalSamples * 1000 / sampleRate;
+        long audioBytes = reader.size() - position;
+        return metadata
+                .durationMillis(durationMillis)
+                .bitrateKbps(durationMillis > 0 ? (int) (audioBytes * 8 / durationMillis) : 0)
+                .sampleRate(sampleRate)
+                .channels(channels)
+                .build();
+    }
+
+    /**
+     * Vorbis Comment 使用小端长度 + UTF-8 的 "KEY=value" 字符串
+     */
+    private static void parseVorbisComment(AudioFileReader reader, long position, long end,
+                                           AudioMetadata.AudioMetadataBuilder metadata) throws IOException {
+        long vendorLength = reader.readIntLittleEndian(position) & 0xFFFFFFFFL;
+        position += 4 + vendorLength;
+        if (position + 4 > end) {
+            return;
+        }
+        long count = reader.readIntLittleEndian(position) & 0xFFFFFFFFL;
+        position += 4;
+        for (long i = 0; i < count && position + 4 <= end; i++) {
+            long length = reader.readIntLittleEndian(position) & 0xFFFFFFFFL;
+            long body = position + 4;
+            if (body + length > end) {
+                return;
+            }
+            if (length <= 4096) {
+                String comment = new String(reader.read(body, (int) length), StandardCharsets.UTF_8);
+                int separator = comment.indexOf('=');
+                if (separator > 0) {
+                    String value = TagText.clean(comment.substring(separator + 1));
+                    switch (comment.substring(0, separator).toUpperCase(Locale.ROOT)) {
+                        case "TITLE" -> metadata.title(value);
+                        case "ARTIST" -> metadata.artist(value);
+                        case "ALBUM" -> metadata.album(value);
+                        case "DATE" -> metadata.year(value);
+                        default -> {
+                        }
+                    }
+                }
+            }
+            position = body + length;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package com.melodymix.backend.audio;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MP3 解析：ID3v2 / ID3v1 标签 + 逐帧扫描 MPEG 音频帧头。
+ * 时长由所有音频帧的采样数累加得到，对 VBR 文件同样精确；
+ * 波形峰值使用 Layer III 每个 granule 的 global_gain 估算响度包络，无需完整解码。
+ */
+final class Mp3Parser {
+
+    // [MPEG1 / MPEG2 & 2.5][Layer I, II, III][bitrate index]，单位 kbps
+    private static final int[][][] BITRATES = {
+            {
+                    {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+                    {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}
+            },
+            {
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+            }
+    };
+
+    // [MPEG1, MPEG2, MPEG2.5][sample rate index]
+    private static final int[][] SAMPLE_RATES = {
+            {44100, 48000, 32000},
+            {22050, 24000, 16000},
+            {11025, 12000, 8000}
+    };
+
+    // 低于该 global_gain 的帧视为静音（约比满刻度低 60dB 以上）
+    private static final int MIN_AUDIBLE_GAIN = 110;
+
+    private Mp3Parser() {
+    }
+
+    static boolean accepts(AudioFileReader reader) throws IOException {
+        if (reader.matches(0, "ID3")) {
+            return true;
+        }
+        return FrameHeader.parse(reader, 0) != null;
+    }
+
+    static AudioMetadata parse(AudioFileReader reader, int peakCount) throws IOException {
+        AudioMetadata.AudioMetadataBuilder metadata = AudioMetadata.builder().format("mp3");
+        long position = Id3v2.parse(reader, metadata);
+
+        long end = reader.size();
+        if (end >= 128 && reader.matches(end - 128, "TAG")) {
+            end -= 128;
+            parseId3v1(reader, end, metadata);
+        }
+
+        WaveformBuilder waveform = new WaveformBuilder();
+        FrameHeader reference = null;
+        long totalSamples = 0;
+        long audioBytes = 0;
+
+        while (position + 4 <= end) {
+            FrameHeader header = FrameHeader.parse(reader, position);
+            if (header == null || position + header.length > end
+                    || (reference != null && !reference.isCompatible(header))) {
+                // 不是合法帧头（或遇到垃圾数据），逐字节重新同步
+                position++;
+                continue;
+            }
+
+            if (reference == null) {
+                // 第一帧需要看下一帧是否也合法，避免把标签中的 0xFF 误当成同步字
+                long next = position + header.length;
+                if (next + 4 <= end && FrameHeader.parse(reader, next) == null) {
+                    position++;
+                    continue;
+                }
+                reference = header;
+                // Xing / Info / VBRI 帧只携带 VBR 信息，不包含音频数据
+                if (isVbrInfoFrame(reader, position, header)) {
+                    position += header.length;
+                    continue;
+                }
+            }
+
+            totalSamples += header.samplesPerFrame;
+            audioBytes += header.length;
+            if (header.layer == 3) {
+                waveform.add(estimateAmplitude(reader, position, header));
+            }
+            position += header.length;
+        }
+
+        if (reference == null || totalSamples == 0) {
+            throw new IOException("未找到有效的 MPEG 音频帧");
+        }
+
+        long durationMillis = totalSamples * 1000 / reference.sampleRate;
+        return metadata
+                .durationMillis(durationMillis)
+                .bitrateKbps(durationMillis > 0 ? (int) (audioBytes * 8 / durationMillis) : 0)
+                .sampleRate(reference.sampleRate)
+                .channels(reference.channels)
+                .peaks(waveform.build(peakCount))
+                .build();
+    }
+
+    private static boolean isVbrInfoFrame(AudioFileReader reader, long position, FrameHeader header) throws IOException {
+        long xingOffset = position + 4 + header.sideInfoLength();
+        return reader.matches(xingOffset, "Xing")
+                || reader.matches(xingOffset, "Info")
+                || reader.matches(position + 36, "VBRI");
+    }
+
+    /**
+     * 读取 Layer III side info 中每个 granule / 声道的 global_gain 作为响度估计。
+     * global_gain 每一级约 1.5dB，这里按对数刻度线性映射（与常见波形图的 dB 显示一致），
+     * 避免个别响亮的帧把其余部分压平；part2_3_length 为 0 表示该 granule 没有频谱数据（静音）。
+     */
+    private static float estimateAmplitude(AudioFileReader reader, long position, FrameHeader header) throws IOException {
+        BitReader bits = new BitReader(reader, position + 4 + (header.crcProtected ? 2 : 0));
+        boolean mpeg1 = header.version == 3;
+        boolean mono = header.channels == 1;
+
+        bits.skip(mpeg1 ? 9 : 8);                  // main_data_begin
+        bits.skip(mpeg1 ? (mono ? 5 : 3) : (mono ? 1 : 2)); // private_bits
+        if (mpeg1) {
+            bits.skip(4 * header.channels);        // scfsi
+        }
+
+        int granules = mpeg1 ? 2 : 1;
+        float max = 0f;
+        for (int granule = 0; granule < granules; granule++) {
+            for (int channel = 0; channel < header.channels; channel++) {
+                int part23Length = bits.read(12);
+                bits.skip(9);                      // big_values
+                int globalGain = bits.read(8);
+                bits.skip(mpeg1 ? 30 : 34);        // 该 granule 剩余的 side info
+                if (part23Length > 0) {
+                    max = Math.max(max, Math.max(0f, (globalGain - MIN_AUDIBLE_GAIN) / (float) (255 - MIN_AUDIBLE_GAIN)));
+                }
+            }
+        }
+        return max;
+    }
+
+    private static void parseId3v1(AudioFileReader reader, long tagStart, AudioMetadata.AudioMetadataBuilder metadata) throws IOException {
+        byte[] tag = reader.read(tagStart, 128);
+        AudioMetadata current = metadata.build();
+        if (current.getTitle() == null) {
+            metadata.title(TagText.decodeLegacy(tag, 3, 30));
+        }
+        if (current.getArtist() == null) {
+            metadata.artist(TagText.decodeLegacy(tag, 33, 30));
+        }
+        if (current.getAlbum() == null) {
+            metadata.album(TagText.decodeLegacy(tag, 63, 30));
+        }
+        if (current.getYear() == null) {
+            metadata.year(TagText.decodeLegacy(tag, 93, 4));
+        }
+    }
+
+    /**
+     * MPEG 音频帧头
+     */
+    private static final class FrameHeader {
+        private int version;        // 3 = MPEG1, 2 = MPEG2, 0 = MPEG2.5
+        private int layer;          // 1, 2, 3
+        private boolean crcProtected;
+        private int sampleRate;
+        private int channels;
+        private int samplesPerFrame;
+        private int length;
+
+        static FrameHeader parse(AudioFileReader reader, long position) throws IOException {
+            int b0 = reader.get(position);
+            int b1 = reader.get(position + 1);
+            if (b0 != 0xFF || b1 < 0 || (b1 & 0xE0) != 0xE0) {
+                return null;
+            }
+            int b2 = reader.get(position + 2);
+            int b3 = reader.get(position + 3);
+            if (b2 < 0 || b3 < 0) {
+                return null;
+            }
+
+            int version = (b1 >> 3) & 0x03;
+            int layerBits = (b1 >> 1) & 0x03;
+            int bitrateIndex = b2 >> 4;
+            int sampleRateIndex = (b2 >> 2) & 0x03;
+            if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+                // 保留值或自由码率，不予支持
+                return null;
+            }
+
+            FrameHeader header = new FrameHeader();
+            header.version = version;
+            header.layer = 4 - layerBits;
+            header.crcProtected = (b1 & 0x01) == 0;
+            header.channels = (b3 >> 6) == 3 ? 1 : 2;
+
+            boolean mpeg1 = version == 3;
+            int bitrate = BITRATES[mpeg1 ? 0 : 1][header.layer - 1][bitrateIndex] * 1000;
+            header.sampleRate = SAMPLE_RATES[mpeg1 ? 0 : (version == 2 ? 1 : 2)][sampleRateIndex];
+            int padding = (b2 >> 1) & 0x01;
+
+            if (header.layer == 1) {
+                header.samplesPerFrame = 384;
+                header.length = (12 * bitrate / header.sampleRate + padding) * 4;
+            } else if (header.layer == 2 || mpeg1) {
+                header.samplesPerFrame = 1152;
+                header.length = 144 * bitrate / header.sampleRate + padding;
+            } else {
+                header.samplesPerFrame = 576;
+                header.length = 72 * bitrate / header.sampleRate + padding;
+            }
+            return header.length > 4 ? header : null;
+        }
+
+        int sideInfoLength() {
+            if (version == 3) {
+                return channels == 1 ? 17 : 32;
+            }
+            return channels == 1 ? 9 : 17;
+        }
+
+        boolean isCompatible(FrameHeader other) {
+            return version == other.version && layer == other.layer && sampleRate == other.sampleRate;
+        }
+    }
+
+    /**
+     * 按位读取 side info
+     */
+    private static final class BitReader {
+        private final AudioFileReader reader;
+        private long bitPosition;
+
+        BitReader(AudioFileReader reader, long bytePosition) {
+            this.reader = reader;
+            this.bitPosition = bytePosition * 8;
+        }
+
+        void skip(int bits) {
+            bitPosition += bits;
+        }
+
+        int read(int bits) throws IOException {
+            int value = 0;
+            for (int i = 0; i < bits; i++) {
+                int current = reader.get(bitPosition >> 3);
+                int bit = current < 0 ? 0 : (current >> (7 - (int) (bitPosition & 7))) & 1;
+                value = (value << 1) | bit;
+                bitPosition++;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * ID3v2 (2.2 / 2.3 / 2.4) 标签解析，FLAC 文件前面偶尔也会带 ID3v2，所以单独抽出
+     */
+    static final class Id3v2 {
+
+        private Id3v2() {
+        }
+
+        /**
+         * @return 标签之后的第一个字节位置；没有 ID3v2 标签时返回 0
+         */
+        static long parse(AudioFileReader reader, AudioMetadata.AudioMetadataBuilder metadata) throws IOException {
+            if (!reader.matches(0, "ID3")) {
+                return 0;
+            }
+            int major = reader.get(3);
+            int flags = reader.get(5);
+            long tagEnd = 10 + syncSafe(reader, 6);
+            long end = tagEnd + ((flags & 0x10) != 0 ? 10 : 0);
+
+            long position = 10;
+            if ((flags & 0x40) != 0 && major >= 3) {
+                // 扩展头：v2.4 的长度包含自身，v2.3 不包含长度字段本身
+                position += major == 4 ? syncSafe(reader, 10) : reader.readIntBigEndian(10) + 4L;
+            }
+
+            int headerLength = major == 2 ? 6 : 10;
+            while (position + headerLength < tagEnd) {
+                if (reader.get(position) == 0) {
+                    break; // 填充区
+                }
+                String id;
+                long size;
+                if (major == 2) {
+                    id = new String(reader.read(position, 3), StandardCharsets.US_ASCII);
+                    size = ((long) reader.get(position + 3) << 16) | (reader.get(position + 4) << 8) | reader.get(position + 5);
+                } else {
+                    id = new String(reader.read(position, 4), StandardCharsets.US_ASCII);
+                    size = major == 4 ? syncSafe(reader, position + 4) : reader.readIntBigEndian(position + 4) & 0xFFFFFFFFL;
+                }
+                long body = position + headerLength;
+                if (size <= 0 || body + size > tagEnd) {
+                    break;
+                }
+                if (size <= 4096) {
+                    switch (id) {
+                        case "TIT2", "TT2" -> metadata.title(decodeTextFrame(reader.read(body, (int) size)));
+                        case "TPE1", "TP1" -> metadata.artist(decodeTextFrame(reader.read(body, (int) size)));
+                        case "TALB", "TAL" -> metadata.album(decodeTextFrame(reader.read(body, (int) size)));
+                        case "TYER", "TYE", "TDRC" -> metadata.year(decodeTextFrame(reader.read(body, (int) size)));
+                        default -> {
+                        }
+                    }
+                }
+                position = body + size;
+            }
+            return end;
+        }
+
+        private static String decodeTextFrame(byte[] frame) {
+            if (frame.length < 2) {
+                return null;
+            }
+            return switch (frame[0]) {
+                case 1 -> TagText.decode(frame, 1, frame.length - 1, StandardCharsets.UTF_16);
+                case 2 -> TagText.decode(frame, 1, frame.length - 1, StandardCharsets.UTF_16BE);
+                case 3 -> TagText.decode(frame, 1, frame.length - 1, StandardCharsets.UTF_8);
+                default -> TagText.decodeLegacy(frame, 1, frame.length - 1);
+            };
+        }
+
+        private static long syncSafe(AudioFileReader reader, long position) throws IOException {
+            return ((long) (reader.get(position) & 0x7F) << 21)
+                    | ((reader.get(position + 1) & 0x7F) << 14)
+                    | ((reader.get(position + 2) & 0x7F) << 7)
+                    | (reader.get(position + 3) & 0x7F);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.melodymix.backend.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 标签文本解码工具。
+ * 很多中文音频文件把 GBK 编码的文本写在声明为 ISO-8859-1 的字段里，
+ * 所以对“单字节编码”的字段依次尝试 UTF-8、GB18030，最后才退回 ISO-8859-1。
+ */
+final class TagText {
+
+    private static final Charset GB18030 = Charset.forName("GB18030");
+
+    private TagText() {
+    }
+
+    static String decodeLegacy(byte[] bytes, int offset, int length) {
+        boolean ascii = true;
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            return clean(new String(bytes, offset, length, StandardCharsets.US_ASCII));
+        }
+        String decoded = tryDecode(bytes, offset, length, StandardCharsets.UTF_8);
+        if (decoded == null) {
+            decoded = tryDecode(bytes, offset, length, GB18030);
+        }
+        if (decoded == null) {
+            decoded = new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        return clean(decoded);
+    }
+
+    static String decode(byte[] bytes, int offset, int length, Charset charset) {
+        return clean(new String(bytes, offset, length, charset));
+    }
+
+    /**
+     * 去掉结尾的 \0 填充，多值字段只取第一个值；空字符串返回 null
+     */
+    static String clean(String text) {
+        int nul = text.indexOf('\0');
+        if (nul >= 0) {
+            text = text.substring(0, nul);
+        }
+        text = text.trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static String tryDecode(byte[] bytes, int offset, int length, Charset charset) {
+        try {
+            return charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes, offset, length))
+                    .toString();
+        } catch (CharacterCodingException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.melodymix.backend.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * WAV (RIFF) 解析：fmt 块给出格式参数，data 块长度换算时长，LIST/INFO 块给出标签。
+ * PCM 数据直接扫描采样值计算波形峰值。
+ */
+final class WavParser {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_IEEE_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    // 每个波形值覆盖的时间（毫秒）
+    private static final int WAVEFORM_RESOLUTION_MILLIS = 10;
+
+    private WavParser() {
+    }
+
+    static boolean accepts(AudioFileReader reader) throws IOException {
+        return reader.matches(0, "RIFF") && reader.matches(8, "WAVE");
+    }
+
+    static AudioMetadata parse(AudioFileReader reader, int peakCount) throws IOException {
+        AudioMetadata.AudioMetadataBuilder metadata = AudioMetadata.builder().format("wav");
+
+        int audioFormat = 0;
+        int channels = 0;
+        int sampleRate = 0;
+        long byteRate = 0;
+        int blockAlign = 0;
+        int bitsPerSample = 0;
+        long dataStart = -1;
+        long dataSize = 0;
+
+        long position = 12;
+        while (position + 8 <= reader.size()) {
+            String chunkId = new String(reader.read(position, 4), StandardCharsets.US_ASCII);
+            long chunkSize = reader.readIntLittleEndian(position + 4) & 0xFFFFFFFFL;
+            long body = position + 8;
+
+            switch (chunkId) {
+                case "fmt " -> {
+                    audioFormat = reader.readShortLittleEndian(body);
+                    channels = reader.readShortLittleEndian(body + 2);
+                    sampleRate = reader.readIntLittleEndian(body + 4);
+                    byteRate = reader.readIntLittleEndian(body + 8) & 0xFFFFFFFFL;
+                    blockAlign = reader.readShortLittleEndian(body + 12);
+                    bitsPerSample = reader.readShortLittleEndian(body + 14);
+                    if (audioFormat == FORMAT_EXTENSIBLE && chunkSize >= 26) {
+                        // WAVE_FORMAT_EXTENSIBLE 的真实格式在 SubFormat GUID 的前两个字节
+                        audioFormat = reader.readShortLittleEndian(body + 24);
+                    }
+                }
+                case "data" -> {
+                    dataStart = body;
+                    dataSize = Math.min(chunkSize, reader.size() - body);
+                }
+                case "LIST" -> {
+                    if (reader.matches(body, "INFO")) {
+                        parseInfo(reader, body + 4, body + chunkSize, metadata);
+                    }
+                }
+                default -> {
+                }
+            }
+            position = body + chunkSize + (chunkSize & 1);
+        }
+
+        if (dataStart < 0 || byteRate <= 0 || blockAlign <= 0) {
+            throw new IOException("WAV 文件缺少 fmt 或 data 块");
+        }
+
+        metadata.durationMillis(dataSize * 1000 / byteRate)
+                .bitrateKbps((int) (byteRate * 8 / 1000))
+                .sampleRate(sampleRate)
+                .channels(channels);
+
+        boolean supportedPcm = (audioFormat == FORMAT_PCM && bitsPerSample >= 8 && bitsPerSample <= 32 && bitsPerSample % 8 == 0)
+                || (audioFormat == FORMAT_IEEE_FLOAT && bitsPerSample == 32);
+        if (supportedPcm && sampleRate > 0) {
+            metadata.peaks(computePeaks(reader, dataStart, dataSize, audioFormat, bitsPerSample, blockAlign,
+                    sampleRate, peakCount));
+        }
+        return metadata.build();
+    }
+
+    private static byte[] computePeaks(AudioFileReader reader, long dataStart, long dataSize, int audioFormat,
+                                       int bitsPerSample, int blockAlign, int sampleRate, int peakCount) throws IOException {
+        int bytesPerSample = bitsPerSample / 8;
+        int channels = blockAlign / bytesPerSample;
+        long framesPerValue = Math.max(1, (long) sampleRate * WAVEFORM_RESOLUTION_MILLIS / 1000);
+
+        WaveformBuilder waveform = new WaveformBuilder();
+        ByteBuffer buffer = ByteBuffer.allocate((64 * 1024 / blockAlign) * blockAlign).order(ByteOrder.LITTLE_ENDIAN);
+        long position = dataStart;
+        long end = dataStart + dataSize;
+        long frameInValue = 0;
+        float max = 0f;
+
+        while (position < end) {
+            buffer.clear();
+            if (end - position < buffer.capacity()) {
+                buffer.limit((int) ((end - position) / blockAlign * blockAlign));
+            }
+            if (buffer.limit() == 0 || reader.readBulk(position, buffer) <= 0) {
+                break;
+            }
+            buffer.flip();
+            position += buffer.limit();
+
+            while (buffer.remaining() >= blockAlign) {
+                for (int channel = 0; channel < channels; channel++) {
+                    max = Math.max(max, Math.abs(readSample(buffer, audioFormat, bytesPerSample)));
+                }
+                if (++frameInValue == framesPerValue) {
+                    waveform.add(max);
+                    max = 0f;
+                    frameInValue = 0;
+                }
+            }
+        }
+        if (frameInValue > 0) {
+            waveform.add(max);
+        }
+        return waveform.build(peakCount);
+    }
+
+    /**
+     * 读取一个采样并归一化到 [-1, 1]
+     */
+    private static float readSample(ByteBuffer buffer, int audioFormat, int bytesPerSample) {
+        if (audioFormat == FORMAT_IEEE_FLOAT) {
+            return buffer.getFloat();
+        }
+        return switch (bytesPerSample) {
+            case 1 -> ((buffer.get() & 0xFF) - 128) / 128f; // 8 位 PCM 是无符号的
+            case 2 -> buffer.getShort() / 32768f;
+            case 3 -> {
+                int value = (buffer.get() & 0xFF) | ((buffer.get() & 0xFF) << 8) | (buffer.get() << 16);
+                yield value / 8388608f;
+            }
+            default -> buffer.getInt() / 2147483648f;
+        };
+    }
+
+    private static void parseInfo(AudioFileReader reader, long position, long end,
+                                  AudioMetadata.AudioMetadataBuilder metadata) throws IOException {
+        while (position + 8 <= end) {
+            String id = new String(reader.read(position, 4), StandardCharsets.US_ASCII);
+            long size = reader.readIntLittleEndian(position + 4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            if (body + size > end) {
+                return;
+            }
+            if (size > 0 && size <= 4096) {
+                byte[] bytes = reader.read(body, (int) size);
+                String value = TagText.decodeLegacy(bytes, 0, bytes.length);
+                switch (id) {
+                    case "INAM" -> metadata.title(value);
+                    case "IART" -> metadata.artist(value);
+                    case "IPRD" -> metadata.album(value);
+                    case "ICRD" -> metadata.year(value);
+                    default -> {
+                    }
+                }
+            }
+            position = body + size + (size & 1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.melodymix.backend.audio;
+
+import java.util.Arrays;
+
+/**
+ * 收集音频各时间片的幅度值，最后降采样为固定数量、归一化到 0-255 的峰值数组。
+ */
+final class WaveformBuilder {
+
+    private float[] values = new float[4096];
+    private int count = 0;
+
+    void add(float amplitude) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[count++] = amplitude;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    byte[] build(int peakCount) {
+        if (count == 0 || peakCount <= 0) {
+            return null;
+        }
+        int buckets = Math.min(peakCount, count);
+        float[] bucketPeaks = new float[buckets];
+        float max = 0f;
+        for (int i = 0; i < count; i++) {
+            int bucket = (int) ((long) i * buckets / count);
+            if (values[i] > bucketPeaks[bucket]) {
+                bucketPeaks[bucket] = values[i];
+            }
+            max = Math.max(max, values[i]);
+        }
+
+        byte[] peaks = new byte[buckets];
+        if (max <= 0f) {
+            return peaks;
+        }
+        for (int i = 0; i < buckets; i++) {
+            peaks[i] = (byte) Math.round(bucketPeaks[i] / max * 255f);
+        }
+        return peaks;
+    }
+}
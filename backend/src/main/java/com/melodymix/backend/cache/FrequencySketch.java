@@ -0,0 +1,73 @@
+package com.melodymix.backend.cache;
+
+/**
+ * 4 位计数器的 Count-Min Sketch，用于估算 key 最近的访问频率（TinyLFU）。
+ * 每 16 个计数器打包在一个 long 中；总增量达到采样上限后所有计数器减半，让旧的热点逐渐冷却。
+ * 非线程安全，由调用方加锁。
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int counterMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int counters = Integer.highestOneBit(Math.max(expectedEntries, 64) - 1) << 1;
+        this.table = new long[counters / 16];
+        this.counterMask = counters - 1;
+        this.sampleSize = 10 * counters;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counterAt(indexOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            if (counterAt(index) < MAX_COUNT) {
+                table[index >>> 4] += 1L << ((index & 15) << 2);
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int counterAt(int index) {
+        return (int) (table[index >>> 4] >>> ((index & 15) << 2)) & 0xF;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,147 @@
+package com.melodymix.backend.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按字节数限制容量的 W-TinyLFU 缓存，每个条目的字节数由 weigher 给出。
+ * <p>
+ * 新条目总是先进入一个小的 LRU 窗口（吸收突发访问）；被挤出窗口的条目要和主区 LRU 的淘汰候选比较
+ * TinyLFU 估算的访问频率，只有更热的条目才能进入主区，从而避免一次性的大量访问把真正的热点冲掉。
+ * 所有操作在同一把锁内完成，临界区只有哈希表和链表操作，不涉及 IO。
+ */
+public final class WindowTinyLfuCache<K, V> {
+
+    private final long windowMaxBytes;
+    private final long mainMaxBytes;
+    private final FrequencySketch sketch;
+    private final ToLongFunction<V> weigher;
+
+    // accessOrder = true：最久未访问的条目在链表头部
+    private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, V> main = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowBytes;
+    private long mainBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param maxBytes 缓存总字节数上限
+     * @param maxEntryBytes 单个条目的最大字节数，窗口至少能容纳一个最大条目
+     * @param expectedEntries 预计的条目数量，用于确定频率统计表的大小
+     * @param weigher 条目占用的字节数
+     */
+    public WindowTinyLfuCache(long maxBytes, long maxEntryBytes, int expectedEntries, ToLongFunction<V> weigher) {
+        this.weigher = weigher;
+        this.windowMaxBytes = Math.min(maxBytes, Math.max(maxBytes / 100, maxEntryBytes));
+        this.mainMaxBytes = maxBytes - windowMaxBytes;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    /**
+     * 查询缓存并记录一次访问
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        V value = window.get(key);
+        if (value == null) {
+            value = main.get(key);
+        }
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return value;
+    }
+
+    /**
+     * 估算的近期访问次数（包括 get 记录的本次访问），调用方可以据此决定未命中时是否值得加载
+     */
+    public synchronized int frequency(K key) {
+        return sketch.frequency(key);
+    }
+
+    /**
+     * 放入窗口区。窗口溢出时被挤出的条目参与主区的频率准入竞争。
+     */
+    public synchronized void put(K key, V value) {
+        if (weigher.applyAsLong(value) > windowMaxBytes) {
+            return;
+        }
+        remove(key);
+        window.put(key, value);
+        windowBytes += weigher.applyAsLong(value);
+
+        Iterator<Map.Entry<K, V>> iterator = window.entrySet().iterator();
+        while (windowBytes > windowMaxBytes && iterator.hasNext()) {
+            Map.Entry<K, V> candidate = iterator.next();
+            iterator.remove();
+            windowBytes -= weigher.applyAsLong(candidate.getValue());
+            admitToMain(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    public synchronized void remove(K key) {
+        V removed = window.remove(key);
+        if (removed != null) {
+            windowBytes -= weigher.applyAsLong(removed);
+        }
+        removed = main.remove(key);
+        if (removed != null) {
+            mainBytes -= weigher.applyAsLong(removed);
+        }
+    }
+
+    private void admitToMain(K candidateKey, V candidate) {
+        int candidateFrequency = sketch.frequency(candidateKey);
+        Iterator<Map.Entry<K, V>> iterator = main.entrySet().iterator();
+        while (mainBytes + weigher.applyAsLong(candidate) > mainMaxBytes) {
+            if (!iterator.hasNext()) {
+                rejections.increment();
+                return;
+            }
+            Map.Entry<K, V> victim = iterator.next();
+            if (candidateFrequency <= sketch.frequency(victim.getKey())) {
+                // 候选者不比主区中最冷的条目更热：丢弃候选者
+                rejections.increment();
+                return;
+            }
+            iterator.remove();
+            mainBytes -= weigher.applyAsLong(victim.getValue());
+            evictions.increment();
+        }
+        main.put(candidateKey, candidate);
+        mainBytes += weigher.applyAsLong(candidate);
+    }
+
+    public synchronized long weightedSize() {
+        return windowBytes + mainBytes;
+    }
+
+    public synchronized int entryCount() {
+        return window.size() + main.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+}
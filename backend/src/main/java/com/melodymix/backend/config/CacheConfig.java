@@ -0,0 +1,104 @@
+package com.melodymix.backend.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate 二级缓存。缓存在每个节点的进程内（Caffeine），节点之间没有失效通知：
+ * 一个节点上的修改、删除以及批量 UPDATE / DELETE 只会让本节点的缓存失效，其他节点在 ttl 到期前仍会返回旧数据。
+ * 因此二级缓存默认关闭，只在单实例部署中通过 cache.l2.enabled 开启；多实例部署需要换成带集群失效的 JCache 实现后再开启。
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * 单个缓存区域的配置
+     * @param ttl 写入后过期时间，0 表示不过期
+     */
+    public record Region(long maxSize, Duration ttl) {
+    }
+
+    /**
+     * Hibernate 二级缓存使用的 JCache 管理器。每个区域按 cache.l2.regions 单独设置容量和过期时间，
+     * 未配置的区域不会被自动创建（missing_cache_strategy: fail）。
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(Environment environment) {
+        Map<String, Region> regions = Binder.get(environment)
+                .bind("cache.l2.regions", Bindable.mapOf(String.class, Region.class))
+                .orElseThrow(() -> new IllegalStateException("缺少 cache.l2.regions 配置"));
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        regions.forEach((name, region) -> {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(region.maxSize()));
+            if (region.ttl() != null && !region.ttl().isZero()) {
+                configuration.setExpireAfterWrite(OptionalLong.of(region.ttl().toNanos()));
+            }
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(name, configuration);
+        });
+        return cacheManager;
+    }
+
+    /**
+     * cache.l2.enabled 为 false 时关闭二级缓存和查询缓存，实体上的 @Cache 注解不再生效
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            CacheManager secondLevelCacheManager,
+            @Value("${cache.l2.enabled}") boolean enabled) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            if (!enabled) {
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+            }
+        };
+    }
+
+    /**
+     * 每个二级缓存区域的命中率。hibernate.second.level.cache.requests 只导出命中 / 未命中次数，
+     * 这里直接给出比例，方便在 /actuator/metrics 上查看
+     */
+    @Bean
+    public MeterBinder secondLevelCacheHitRatio(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+                Gauge.builder("melodymix.cache.l2.hit.ratio", statistics, stats -> hitRatio(stats.getCacheRegionStatistics(regionName)))
+                        .description("Hibernate 二级缓存区域的命中率")
+                        .tag("region", regionName)
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double hitRatio(CacheRegionStatistics region) {
+        if (region == null) {
+            return 0;
+        }
+        long requests = region.getHitCount() + region.getMissCount();
+        return requests == 0 ? 0 : (double) region.getHitCount() / requests;
+    }
+}
@@ -0,0 +1,126 @@
+package com.melodymix.backend.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离：@Transactional(readOnly = true) 的事务从只读副本取连接，写事务和不在任何事务中的 JDBC 查询走主库。
+ * <p>
+ * 注意 Spring Data 仓库的默认方法（findById、findAll 等）自带 @Transactional(readOnly = true)，
+ * 在事务之外调用时会开启自己的只读事务，同样读副本。需要读到刚提交数据的地方（后台任务处理刚创建的记录、
+ * 登录时的用户查询等）要放在读写事务中调用，或使用 REQUIRES_NEW 的仓库方法（如 UserRepository.findByUsername）。
+ * <p>
+ * 应用使用的 DataSource 是主库外面包一层 {@link LazyConnectionDataSourceProxy}：事务开始时只拿到代理，
+ * 第一条 SQL 执行时才按连接是否已被标记为只读，从主库或 {@link ReplicaDataSource} 取真正的连接。
+ * 副本在 read-replicas.pools 中配置，每个副本一个独立调优的 Hikari 连接池；不配置时所有连接都来自主库。
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final String REPLICA_POOLS = "read-replicas.pools";
+
+    /**
+     * 主库连接池，按 spring.datasource 和 spring.datasource.hikari 配置
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(Environment environment, HikariDataSource primaryDataSource,
+                                               MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        Duration maxLag = binder.bind("read-replicas.max-lag", Duration.class).orElse(Duration.ofSeconds(5));
+        boolean allowUnreplicated = binder.bind("read-replicas.allow-unreplicated", Boolean.class).orElse(false);
+        Duration checkInterval = Duration.ofMillis(binder.bind("read-replicas.check-interval", Long.class).orElse(5000L));
+        List<HikariDataSource> pools = new ArrayList<>();
+        List<HikariConfig> configs = replicaConfigs(environment);
+        for (int i = 0; i < configs.size(); i++) {
+            HikariConfig config = configs.get(i);
+            if (config.getPoolName() == null) {
+                config.setPoolName("replica-" + (i + 1));
+            }
+            config.setReadOnly(true);
+            // 副本不可用时不阻止启动，由延迟检查决定何时开始使用
+            config.setInitializationFailTimeout(-1);
+            config.setMetricRegistry(meterRegistry);
+            pools.add(new HikariDataSource(config));
+        }
+        return new ReplicaDataSource(pools, primaryDataSource, maxLag, allowUnreplicated, checkInterval, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaryDataSource);
+        proxy.setReadOnlyDataSource(replicaDataSource);
+        return proxy;
+    }
+
+    /**
+     * 副本上读到的数据可能落后于主库，不能放进二级缓存：否则刚删除或修改的歌曲会以旧状态在缓存中留到过期。
+     * 配置了副本时，只读事务的会话只从二级缓存读取、不写入（CacheMode.GET），缓存只由主库上的读写填充。
+     * <p>
+     * 代价：歌曲列表、详情等热点读接口都是只读事务，配置副本后它们永远不会填充二级缓存，
+     * 只有写事务和显式 REQUIRES_NEW 读主库的查询（如 UserRepository.findByUsername）加载的实体才会进入缓存，
+     * 这些接口的缓存命中率会明显下降。可以通过 melodymix.cache.l2.hit.ratio 指标观察。
+     */
+    @Bean
+    public static BeanPostProcessor replicaCacheModePostProcessor(Environment environment) {
+        boolean hasReplicas = !replicaConfigs(environment).isEmpty();
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (hasReplicas && bean instanceof LocalContainerEntityManagerFactoryBean factoryBean) {
+                    factoryBean.setJpaDialect(new ReplicaAwareJpaDialect());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static List<HikariConfig> replicaConfigs(Environment environment) {
+        return Binder.get(environment)
+                .bind(REPLICA_POOLS, Bindable.listOf(HikariConfig.class))
+                .orElse(List.of());
+    }
+
+    private static class ReplicaAwareJpaDialect extends HibernateJpaDialect {
+        @Override
+        public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+                throws PersistenceException, SQLException, TransactionException {
+            Object transactionData = super.beginTransaction(entityManager, definition);
+            if (definition.isReadOnly()) {
+                entityManager.unwrap(Session.class).setCacheMode(CacheMode.GET);
+            }
+            return transactionData;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.melodymix.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class IngestionConfig {
+
+    /**
+     * 音频摄取专用的有界线程池。
+     * 调度线程只会按队列剩余容量领取任务，所以上传高峰时任务留在数据库队列里，不会占用请求线程。
+     */
+    @Bean(name = "ingestionExecutor")
+    public ThreadPoolTaskExecutor ingestionExecutor(
+            @Value("${audio.ingestion.worker-threads}") int workerThreads,
+            @Value("${audio.ingestion.queue-capacity}") int queueCapacity) {
+        int poolSize = workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ingestion-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 封面缩略图生成线程池。图片缩放是纯 CPU 任务，线程数较少即可；队列满时放弃预生成，访问时再按需生成。
+     */
+    @Bean(name = "coverExecutor")
+    public ThreadPoolTaskExecutor coverExecutor(
+            @Value("${file.upload.covers.worker-threads}") int workerThreads,
+            @Value("${file.upload.covers.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workerThreads);
+        executor.setMaxPoolSize(workerThreads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cover-");
+        return executor;
+    }
+}
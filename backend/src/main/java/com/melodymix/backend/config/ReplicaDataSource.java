@@ -0,0 +1,158 @@
+package com.melodymix.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 只读连接的来源：在可用的副本之间轮询分配，每个副本一个独立的连接池。
+ * <p>
+ * 后台定期查询每个副本的复制延迟（SHOW REPLICA STATUS，需要 MySQL 8.0.22+ 和 REPLICATION CLIENT 权限），
+ * 连不上、复制已停止或延迟超过 maxLag 的副本暂停使用；没有可用副本时从主库取连接，读请求不会因副本故障而失败。
+ * SHOW REPLICA STATUS 没有结果（实例根本没有配置复制）同样视为不可用，除非显式开启 allowUnreplicated（只用于本地测试）。
+ * 启动后第一次检查完成之前所有只读连接都来自主库。
+ * <p>
+ * 检查在自己的线程上运行，而不是 @Scheduled：应用的定时任务共用一个调度线程，
+ * 排在收藏数对账、孤儿文件回收等长任务后面时，延迟已超标的副本会在这段时间里继续接收读请求。
+ */
+@Slf4j
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final class Replica {
+        final HikariDataSource pool;
+        volatile boolean healthy;
+
+        Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+    }
+
+    private final List<Replica> replicas;
+    private final DataSource primary;
+    private final long maxLagSeconds;
+    private final boolean allowUnreplicated;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter fallbackCounter;
+    private final ScheduledExecutorService checker;
+
+    public ReplicaDataSource(List<HikariDataSource> pools, DataSource primary, Duration maxLag, boolean allowUnreplicated,
+                             Duration checkInterval, MeterRegistry meterRegistry) {
+        this.replicas = pools.stream().map(Replica::new).toList();
+        this.primary = primary;
+        this.maxLagSeconds = maxLag.toSeconds();
+        this.allowUnreplicated = allowUnreplicated;
+        this.fallbackCounter = Counter.builder("melodymix.datasource.replica.fallback")
+                .description("没有可用副本、改从主库取的只读连接数")
+                .register(meterRegistry);
+        Gauge.builder("melodymix.datasource.replica.healthy", this, ReplicaDataSource::healthyCount)
+                .description("当前可用的副本数")
+                .register(meterRegistry);
+        if (replicas.isEmpty()) {
+            this.checker = null;
+        } else {
+            this.checker = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("replica-lag-check").daemon().factory());
+            this.checker.scheduleWithFixedDelay(this::checkReplicasSafely, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int size = replicas.size();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, size));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.pool.getConnection();
+            } catch (SQLException ex) {
+                // 等下一次检查确认恢复后再使用
+                replica.healthy = false;
+                log.warn("副本 {} 获取连接失败，暂停使用: {}", replica.pool.getPoolName(), ex.getMessage());
+            }
+        }
+        fallbackCounter.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("副本连接使用连接池中配置的账号");
+    }
+
+    // 周期任务抛出异常后不会再被调度，不能让一次意外的失败永久停止检查
+    private void checkReplicasSafely() {
+        try {
+            checkReplicas();
+        } catch (RuntimeException ex) {
+            log.error("检查副本复制延迟失败", ex);
+        }
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            String problem = checkLag(replica.pool);
+            boolean healthy = problem == null;
+            if (healthy != replica.healthy) {
+                if (healthy) {
+                    log.info("副本 {} 可用", replica.pool.getPoolName());
+                } else {
+                    log.warn("副本 {} 暂停使用: {}", replica.pool.getPoolName(), problem);
+                }
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * @return 不可用的原因，可用时返回 null
+     */
+    private String checkLag(HikariDataSource pool) {
+        try (Connection connection = pool.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) {
+                // 没有配置复制：可能是把主库或一个独立实例误配成了副本，读到的数据与主库无关。
+                // 只有本地用两个独立实例测试时才允许（read-replicas.allow-unreplicated）
+                return allowUnreplicated ? null : "未配置复制（SHOW REPLICA STATUS 没有结果）";
+            }
+            long lag = rs.getLong("Seconds_Behind_Source");
+            if (rs.wasNull()) {
+                return "复制线程未运行";
+            }
+            return lag > maxLagSeconds ? "复制延迟 " + lag + " 秒" : null;
+        } catch (SQLException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    private int healthyCount() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        replicas.forEach(replica -> replica.pool.close());
+    }
+}
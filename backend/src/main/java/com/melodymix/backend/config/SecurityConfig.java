@@ -38,10 +38,19 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/uploads/covers/**").permitAll()
 
                         .requestMatchers(HttpMethod.GET, "/api/songs").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/songs/suggest").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/songs/scroll").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/songs/filter").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/songs/{songId}").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/songs/{songId}/waveform").permitAll()
+
+                        // 运行指标仅管理员可见
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                         // 允许 ADMIN 和 COMPANY 角色执行文件上传接口 POST /api/songs/upload/file
                         .requestMatchers(HttpMethod.POST, "/api/songs/upload/file").hasAnyRole("ADMIN", "COMPANY")
+                        // 分片上传会话 (创建 / 上传分片 / 查询进度 / 完成 / 取消)
+                        .requestMatchers("/api/songs/upload/sessions/**").hasAnyRole("ADMIN", "COMPANY")
 
                         // ✅ 移除旧的 POST /api/songs/add 规则，因为它已被 POST /api/songs 替代
                         // .requestMatchers(HttpMethod.POST, "/api/songs/add").hasAnyRole("ADMIN", "COMPANY")
@@ -52,6 +61,8 @@ public class SecurityConfig {
                         // 允许 ADMIN 和 COMPANY 角色执行歌曲更新 (PUT /api/songs/{songId})
                         .requestMatchers(HttpMethod.PUT, "/api/songs/{songId}")
                         .hasAnyRole("ADMIN", "COMPANY")
+                        // 批量删除歌曲仅管理员可用
+                        .requestMatchers(HttpMethod.POST, "/api/songs/bulk-delete").hasRole("ADMIN")
                         // 允许 ADMIN 和 COMPANY 角色执行歌曲删除 (DELETE /api/songs/{songId})
                         .requestMatchers(HttpMethod.DELETE, "/api/songs/{songId}")
                         .hasAnyRole("ADMIN", "COMPANY")
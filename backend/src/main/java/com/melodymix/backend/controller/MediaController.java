@@ -0,0 +1,71 @@
+package com.melodymix.backend.controller;
+
+import com.melodymix.backend.service.CoverImageService;
+import com.melodymix.backend.service.FileStorageService;
+import com.melodymix.backend.service.MediaStreamingService;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 上传媒体文件（歌曲 / 封面）的访问接口。
+ * 取代原先仅在 dev/default 配置下生效的静态资源映射，在所有环境下都支持断点续播和拖动进度条。
+ */
+@RestController
+@RequiredArgsConstructor
+public class MediaController {
+
+    private final FileStorageService fileStorageService;
+    private final MediaStreamingService mediaStreamingService;
+    private final CoverImageService coverImageService;
+
+    /**
+     * 对应 /uploads/songs/** 和 /uploads/covers/**
+     * @param size 仅对封面有效：返回长边不超过该尺寸的渐进式 JPEG 缩略图（向上取整到预设尺寸），不传则返回原图
+     */
+    @GetMapping("${file.upload.base-url}/{category}/{*path}")
+    public void getMedia(@PathVariable String category,
+                         @PathVariable String path,
+                         @RequestParam(required = false) Integer size,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Path file = fileStorageService.resolveStoredFile(category, path);
+        if (file == null) {
+            throw new EntityNotFoundException("文件不存在: " + category + path);
+        }
+        boolean derivative = size != null && "covers".equals(category);
+        if (derivative && size <= 0) {
+            throw new IllegalArgumentException("无效的封面尺寸: " + size);
+        }
+        // 缩略图可以直接访问，但不能再带 size 参数，否则每个尺寸都会在磁盘上叠加出新的缩略图
+        if (derivative && coverImageService.getDerivativeBaseName(file.getFileName().toString()) != null) {
+            throw new IllegalArgumentException("缩略图不支持 size 参数: " + category + path);
+        }
+
+        // 先确认文件存在（只是一次 stat），否则 If-None-Match: * 之类的条件请求会对不存在的文件返回 304
+        if (!Files.isRegularFile(file)) {
+            throw new EntityNotFoundException("文件不存在: " + category + path);
+        }
+
+        // 内容寻址的文件名本身就是 ETag：条件请求不必读取文件内容或生成缩略图，直接返回 304
+        Path requested = derivative ? coverImageService.getDerivativePath(file, size) : file;
+        String nameTag = fileStorageService.getContentTagFromName(requested);
+        if (nameTag != null && mediaStreamingService.checkNotModified(nameTag, request, response)) {
+            return;
+        }
+
+        Path served = derivative ? coverImageService.getDerivative(file, size) : file;
+        // 缩略图生成失败时临时用原图代替：这个 URL 以后会返回真正的缩略图，不能让客户端长期缓存原图
+        boolean immutable = served.equals(requested);
+        mediaStreamingService.streamFile(served, fileStorageService.getContentTag(served), immutable, request, response);
+    }
+}
@@ -1,11 +1,17 @@
 package com.melodymix.backend.controller;
 
 import com.melodymix.backend.dto.CreatePlaylistRequest;
+import com.melodymix.backend.dto.CursorSlice;
+import com.melodymix.backend.dto.MovePlaylistEntryRequest;
+import com.melodymix.backend.dto.PlaylistBatchRequest;
+import com.melodymix.backend.dto.PlaylistBatchResponse;
+import com.melodymix.backend.dto.PlaylistSummary;
+import com.melodymix.backend.dto.PlaylistTrack;
 import com.melodymix.backend.dto.UpdatePlaylistRequest;
-import com.melodymix.backend.model.Playlist;
+import com.melodymix.backend.model.Song;
 import com.melodymix.backend.model.User;
+import com.melodymix.backend.pagination.Cursor;
 import com.melodymix.backend.service.PlaylistService;
-import jakarta.persistence.EntityNotFoundException; // 1. 新增导入
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -26,23 +32,27 @@ public class PlaylistController {
     // --- (createPlaylist, getMyPlaylists, addSongToPlaylist, deletePlaylist, updatePlaylist 方法保持不变) ---
     @PostMapping
     @PreAuthorize("isAuthenticated()") // 推荐为所有需要登录的操作添加此注解
-    public ResponseEntity<Playlist> createPlaylist(@Valid @RequestBody CreatePlaylistRequest request,
-                                                   @AuthenticationPrincipal User currentUser) {
-        Playlist newPlaylist = playlistService.createPlaylist(request.getName(), request.getDescription(), currentUser);
+    public ResponseEntity<PlaylistSummary> createPlaylist(@Valid @RequestBody CreatePlaylistRequest request,
+                                                          @AuthenticationPrincipal User currentUser) {
+        PlaylistSummary newPlaylist = playlistService.createPlaylist(request.getName(), request.getDescription(), currentUser);
         return new ResponseEntity<>(newPlaylist, HttpStatus.CREATED);
     }
     @GetMapping("/my")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<List<Playlist>> getMyPlaylists(@AuthenticationPrincipal User currentUser) {
-        List<Playlist> playlists = playlistService.getPlaylistsByUser(currentUser);
+    public ResponseEntity<List<PlaylistSummary>> getMyPlaylists(@AuthenticationPrincipal User currentUser) {
+        List<PlaylistSummary> playlists = playlistService.getPlaylistsByUser(currentUser);
         return ResponseEntity.ok(playlists);
     }
+    /**
+     * @param afterEntryId (可选) 插入到这一项之后，0 表示插入到最前面，不传则追加到末尾
+     */
     @PostMapping("/{playlistId}/songs/{songId}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Playlist> addSongToPlaylist(@PathVariable Long playlistId,
-                                                      @PathVariable Long songId,
-                                                      @AuthenticationPrincipal User currentUser) {
-        Playlist updatedPlaylist = playlistService.addSongToPlaylist(playlistId, songId, currentUser);
+    public ResponseEntity<PlaylistSummary> addSongToPlaylist(@PathVariable Long playlistId,
+                                                             @PathVariable Long songId,
+                                                             @RequestParam(required = false) Long afterEntryId,
+                                                             @AuthenticationPrincipal User currentUser) {
+        PlaylistSummary updatedPlaylist = playlistService.addSongToPlaylist(playlistId, songId, afterEntryId, currentUser);
         return ResponseEntity.ok(updatedPlaylist);
     }
     @DeleteMapping("/{playlistId}")
@@ -54,10 +64,10 @@ public class PlaylistController {
     }
     @PutMapping("/{playlistId}")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Playlist> updatePlaylist(@PathVariable Long playlistId,
-                                                   @Valid @RequestBody UpdatePlaylistRequest request,
-                                                   @AuthenticationPrincipal User currentUser) {
-        Playlist updatedPlaylist = playlistService.updatePlaylist(playlistId, request.getName(), request.getDescription(), currentUser);
+    public ResponseEntity<PlaylistSummary> updatePlaylist(@PathVariable Long playlistId,
+                                                          @Valid @RequestBody UpdatePlaylistRequest request,
+                                                          @AuthenticationPrincipal User currentUser) {
+        PlaylistSummary updatedPlaylist = playlistService.updatePlaylist(playlistId, request.getName(), request.getDescription(), currentUser);
         return ResponseEntity.ok(updatedPlaylist);
     }
     // --- (以上方法保持不变) ---
@@ -65,15 +75,37 @@ public class PlaylistController {
     // --- 3. 在类的末尾添加新的 API 端点 ---
 
     /**
-     * 获取单个播放列表的详细信息
+     * 获取单个播放列表的信息（歌曲数、总时长），歌曲通过 /tracks 分页加载
      * 任何登录用户都可以查看播放列表
      */
     @GetMapping("/{playlistId}")
     @PreAuthorize("isAuthenticated()") // 确保用户已登录才能查看
-    public ResponseEntity<Playlist> getPlaylistById(@PathVariable Long playlistId) {
-        Playlist playlist = playlistService.getPlaylistById(playlistId)
-                .orElseThrow(() -> new EntityNotFoundException("播放列表未找到，ID: " + playlistId));
-        return ResponseEntity.ok(playlist);
+    public ResponseEntity<PlaylistSummary> getPlaylistById(@PathVariable Long playlistId) {
+        return ResponseEntity.ok(playlistService.getPlaylistById(playlistId));
+    }
+
+    /**
+     * 键集分页获取播放列表中的项（带 entryId，用于移动和删除），按播放列表中的顺序
+     * @param cursor (可选) 上一页返回的 nextCursor，不传则从头开始
+     */
+    @GetMapping("/{playlistId}/tracks")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CursorSlice<PlaylistTrack>> getPlaylistTracks(@PathVariable Long playlistId,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(playlistService.getPlaylistTracks(playlistId, cursor, Cursor.checkPageSize(size)));
+    }
+
+    /**
+     * 同 /tracks，只返回歌曲
+     * @param cursor (可选) 上一页返回的 nextCursor，不传则从头开始
+     */
+    @GetMapping("/{playlistId}/songs")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CursorSlice<Song>> getPlaylistSongs(@PathVariable Long playlistId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(playlistService.getPlaylistSongs(playlistId, cursor, Cursor.checkPageSize(size)));
     }
 
     /**
@@ -88,4 +120,40 @@ public class PlaylistController {
         playlistService.removeSongFromPlaylist(playlistId, songId, currentUser);
         return ResponseEntity.noContent().build(); // 返回 204 No Content 表示成功
     }
+
+    /**
+     * 调整播放列表中一项的顺序（拖动排序），只有所有者才能执行
+     */
+    @PutMapping("/{playlistId}/entries/{entryId}/position")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> moveEntry(@PathVariable Long playlistId,
+                                          @PathVariable Long entryId,
+                                          @RequestBody MovePlaylistEntryRequest request,
+                                          @AuthenticationPrincipal User currentUser) {
+        playlistService.moveEntry(playlistId, entryId, request.getAfterEntryId(), currentUser);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 移除播放列表中的一项（同一首歌出现多次时只移除这一项）
+     */
+    @DeleteMapping("/{playlistId}/entries/{entryId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Void> removeEntry(@PathVariable Long playlistId,
+                                            @PathVariable Long entryId,
+                                            @AuthenticationPrincipal User currentUser) {
+        playlistService.removeEntry(playlistId, entryId, currentUser);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * 批量添加 / 移除 / 移动（导入播放列表等），在一个事务中按顺序执行，返回每个操作的结果
+     */
+    @PostMapping("/{playlistId}/batch")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<PlaylistBatchResponse> applyBatch(@PathVariable Long playlistId,
+                                                            @Valid @RequestBody PlaylistBatchRequest request,
+                                                            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(playlistService.applyBatch(playlistId, request.getOperations(), currentUser));
+    }
 }
@@ -1,19 +1,44 @@
 package com.melodymix.backend.controller;
 
+import com.melodymix.backend.dto.BulkDeleteSongsRequest;
+import com.melodymix.backend.dto.BulkDeleteSongsResponse;
 import com.melodymix.backend.dto.CreateSongRequest;
+import com.melodymix.backend.dto.CreateUploadSessionRequest;
+import com.melodymix.backend.dto.CursorSlice;
+import com.melodymix.backend.dto.SongFilterRequest;
+import com.melodymix.backend.dto.SongSuggestion;
+import com.melodymix.backend.dto.SongWaveformResponse;
+import com.melodymix.backend.dto.StoredFileResponse;
+import com.melodymix.backend.dto.UploadSessionResponse;
 import com.melodymix.backend.model.Song;
+import com.melodymix.backend.model.User;
+import com.melodymix.backend.pagination.Cursor;
+import com.melodymix.backend.pagination.SongSort;
+import com.melodymix.backend.service.AudioIngestionService;
+import com.melodymix.backend.service.ChunkedUploadService;
 import com.melodymix.backend.service.SongService;
+import com.melodymix.backend.service.SongSuggestionService;
 import com.melodymix.backend.service.FileStorageService; // 确保导入 FileStorageService
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
 @RestController
 @RequestMapping("/api/songs")
 @RequiredArgsConstructor
@@ -21,6 +46,9 @@ public class SongController {
 
     private final SongService songService;
     private final FileStorageService fileStorageService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final AudioIngestionService audioIngestionService;
+    private final SongSuggestionService songSuggestionService;
 
     /**
      * 添加新歌曲（此接口用于接收所有元数据和已上传文件的URL）。
@@ -54,6 +82,20 @@ public class SongController {
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 
+    /**
+     * 管理员批量删除歌曲（单次最多 500 首），不存在的 ID 被忽略。
+     */
+    @PostMapping("/bulk-delete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BulkDeleteSongsResponse> deleteSongs(@Valid @RequestBody BulkDeleteSongsRequest request) {
+        int requested = (int) request.getSongIds().stream().filter(Objects::nonNull).distinct().count();
+        int deleted = songService.deleteSongs(request.getSongIds());
+        return ResponseEntity.ok(BulkDeleteSongsResponse.builder()
+                .requested(requested)
+                .deleted(deleted)
+                .build());
+    }
+
     /**
      * 根据条件获取歌曲列表（支持分页和搜索）。
      * @param title (可选) 搜索关键词
@@ -76,6 +118,52 @@ public class SongController {
         return ResponseEntity.ok(songPage);
     }
 
+    /**
+     * 键集分页浏览全部歌曲（无限滚动）。不返回总数，深翻页和第一页代价相同。
+     * @param sort newest（按上架时间倒序，默认）或 title（按标题）
+     * @param cursor (可选) 上一页返回的 nextCursor，不传则从头开始
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorSlice<Song>> scrollSongs(@RequestParam(defaultValue = "newest") String sort,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(songService.getSongsAfter(SongSort.parse(sort), cursor, Cursor.checkPageSize(size)));
+    }
+
+    /**
+     * 多条件筛选：artist / album 精确匹配，releasedFrom~releasedTo、minDuration~maxDuration 范围，
+     * sort + direction 排序；q 为关键词搜索（按相关度，不能与其它条件组合）。
+     * 只接受有联合索引支撑的组合，其它组合返回 400 并列出可用的索引列顺序。
+     * 不返回总数和总页数，用 last 判断是否还有下一页。
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<Slice<Song>> filterSongs(SongFilterRequest filter,
+                                                  @RequestParam(defaultValue = "0") int page,
+                                                  @RequestParam(defaultValue = "20") int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("页码不能为负数: " + page);
+        }
+        return ResponseEntity.ok(songService.filterSongs(filter, PageRequest.of(page, Cursor.checkPageSize(size))));
+    }
+
+    /**
+     * 搜索框输入时的自动补全：返回以 q 开头的标题 / 歌手 / 专辑，按收藏数加权排序（suggest.enabled=false 时只补全标题）。
+     * @param limit (可选) 返回数量，不超过 suggest.max-results
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SongSuggestion>> suggest(@RequestParam String q,
+                                                        @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(songSuggestionService.suggest(q, limit));
+    }
+
+    /**
+     * 获取歌曲的波形峰值（由后台摄取任务预先计算），播放器无需在客户端解码音频。
+     */
+    @GetMapping("/{songId}/waveform")
+    public ResponseEntity<SongWaveformResponse> getWaveform(@PathVariable Long songId) {
+        return ResponseEntity.ok(audioIngestionService.getWaveform(songId));
+    }
+
     /**
      * 上传单个文件（歌曲或封面）并返回其存储URL。
      * 此接口主要用于前端在提交歌曲元数据前，分别上传歌曲文件和封面文件。
@@ -87,6 +175,74 @@ public class SongController {
         return ResponseEntity.ok(fileUrl);
     }
 
+    /**
+     * 以原始请求体上传单个文件（Content-Type: audio/* 或 image/*，请求体即文件内容）。
+     * 与 multipart 方式相比不会先落盘到容器临时目录，文件只读写一遍。
+     * 可选请求头 X-File-Name 携带原始文件名（URL 编码）。
+     */
+    @PostMapping(value = "/upload/file", consumes = {"audio/*", "image/*"})
+    public ResponseEntity<StoredFileResponse> uploadRawFile(@RequestHeader(value = "X-File-Name", required = false) String fileName,
+                                                            HttpServletRequest request) throws IOException {
+        String originalFilename = fileName != null ? URLDecoder.decode(fileName, StandardCharsets.UTF_8) : null;
+        StoredFileResponse storedFile = fileStorageService.storeFile(request.getInputStream(), request.getContentType(), originalFilename);
+        return ResponseEntity.ok(storedFile);
+    }
+
+    /**
+     * 创建分片上传会话（用于超过单次上传大小限制的大文件，如无损音频母带）。
+     */
+    @PostMapping("/upload/sessions")
+    @PreAuthorize("hasAnyRole('ADMIN', 'COMPANY')")
+    public ResponseEntity<UploadSessionResponse> createUploadSession(@Valid @RequestBody CreateUploadSessionRequest request,
+                                                                     @AuthenticationPrincipal User currentUser) {
+        UploadSessionResponse session = chunkedUploadService.createSession(request, currentUser);
+        return new ResponseEntity<>(session, HttpStatus.CREATED);
+    }
+
+    /**
+     * 上传一个分片，请求体即分片的原始字节。不同偏移量的分片可以并行上传。
+     */
+    @PutMapping("/upload/sessions/{uploadId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'COMPANY')")
+    public ResponseEntity<UploadSessionResponse> uploadChunk(@PathVariable String uploadId,
+                                                             @RequestParam long offset,
+                                                             HttpServletRequest request,
+                                                             @AuthenticationPrincipal User currentUser) throws IOException {
+        UploadSessionResponse session = chunkedUploadService.writeChunk(uploadId, offset, request.getInputStream(), currentUser);
+        return ResponseEntity.ok(session);
+    }
+
+    /**
+     * 查询上传进度，断线重连后从 committedOffset 继续。
+     */
+    @GetMapping("/upload/sessions/{uploadId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'COMPANY')")
+    public ResponseEntity<UploadSessionResponse> getUploadSession(@PathVariable String uploadId,
+                                                                  @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(chunkedUploadService.getSession(uploadId, currentUser));
+    }
+
+    /**
+     * 完成分片上传，返回文件 URL（与 /upload/file 的返回值一致）。
+     */
+    @PostMapping("/upload/sessions/{uploadId}/complete")
+    @PreAuthorize("hasAnyRole('ADMIN', 'COMPANY')")
+    public ResponseEntity<String> completeUploadSession(@PathVariable String uploadId,
+                                                        @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(chunkedUploadService.completeSession(uploadId, currentUser));
+    }
+
+    /**
+     * 放弃分片上传并删除已上传的部分。
+     */
+    @DeleteMapping("/upload/sessions/{uploadId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'COMPANY')")
+    public ResponseEntity<Void> abortUploadSession(@PathVariable String uploadId,
+                                                   @AuthenticationPrincipal User currentUser) {
+        chunkedUploadService.abortSession(uploadId, currentUser);
+        return ResponseEntity.noContent().build();
+    }
+
     // 提示：你原始代码中的 @PostMapping("/add") 接口已不再使用，被 @PostMapping ("/api/songs") 代替
     // 原有的 /search 接口和老的 getAllSongs 接口已被上面的 @GetMapping 代替
 }
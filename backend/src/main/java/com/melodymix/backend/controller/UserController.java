@@ -11,7 +11,6 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @RequestMapping("/api/user") // [6]
@@ -68,8 +67,8 @@ public class UserController {
      */
     @GetMapping("/likes")
     @PreAuthorize("isAuthenticated()") // <-- 关键修改 3: 添加此行
-    public ResponseEntity<Set<Song>> getLikedSongs(@AuthenticationPrincipal User user) {
-        Set<Song> likedSongs = userService.getLikedSongs(user.getId());
+    public ResponseEntity<List<Song>> getLikedSongs(@AuthenticationPrincipal User user) {
+        List<Song> likedSongs = userService.getLikedSongs(user.getId());
         return ResponseEntity.ok(likedSongs);
     }
 }
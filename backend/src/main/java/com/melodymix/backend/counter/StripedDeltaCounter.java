@@ -0,0 +1,175 @@
+package com.melodymix.backend.counter;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 按 long 键累计增量的并发计数器，用于写后缓冲（收藏数等）。
+ * <p>
+ * 键按哈希分到若干分段，每个分段是一张开放寻址的 long → {@link LongAdder} 表，不装箱键也不为每次增加分配对象。
+ * 已存在的键只需分段的读锁，同一首热门歌曲的并发增加由 LongAdder 自身分散竞争；
+ * 只有首次出现的键才升级为写锁插入。{@link #drain} 在写锁下整张换掉分段的表，
+ * 保证每个增量要么在取走的快照里，要么留在新表里，不会丢失也不会重复。
+ */
+public final class StripedDeltaCounter {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 接收 {@link #drain} 取出的非零增量
+     */
+    @FunctionalInterface
+    public interface DeltaConsumer {
+        void accept(long key, long delta);
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * @param stripes 分段数，向上取整到 2 的幂；通常取 CPU 核数的几倍
+     */
+    public StripedDeltaCounter(int stripes) {
+        int count = Integer.highestOneBit(Math.max(stripes, 1) - 1) << 1;
+        count = Math.max(count, 1);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(count);
+    }
+
+    /**
+     * @param key 必须为正数（0 用作空槽标记）
+     */
+    public void add(long key, long delta) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("键必须为正数: " + key);
+        }
+        long hash = spread(key);
+        Stripe stripe = stripes[stripeShift == 64 ? 0 : (int) (hash >>> stripeShift)];
+        StampedLock lock = stripe.lock;
+        long stamp = lock.readLock();
+        try {
+            LongAdder adder = stripe.find(key, hash);
+            if (adder == null) {
+                long writeStamp = lock.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0) {
+                    lock.unlockRead(stamp);
+                    writeStamp = lock.writeLock();
+                }
+                stamp = writeStamp;
+                adder = stripe.findOrInsert(key, hash);
+            }
+            adder.add(delta);
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    /**
+     * 取走目前累计的全部增量并清零，只回调非零项。回调在锁外执行，可以做 IO
+     */
+    public void drain(DeltaConsumer consumer) {
+        for (Stripe stripe : stripes) {
+            long[] keys;
+            LongAdder[] adders;
+            long stamp = stripe.lock.writeLock();
+            try {
+                keys = stripe.keys;
+                adders = stripe.adders;
+                stripe.reset();
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+            }
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    long delta = adders[i].sum();
+                    if (delta != 0) {
+                        consumer.accept(keys[i], delta);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long spread(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        long[] keys;
+        LongAdder[] adders;
+        int size;
+
+        Stripe() {
+            keys = new long[INITIAL_CAPACITY];
+            adders = new LongAdder[INITIAL_CAPACITY];
+        }
+
+        // 新表按上一轮的键数预留容量，稳定负载下取走之后不必再逐步扩容
+        void reset() {
+            int capacity = INITIAL_CAPACITY;
+            while (capacity < size * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            adders = new LongAdder[capacity];
+            size = 0;
+        }
+
+        LongAdder find(long key, long hash) {
+            long[] table = keys;
+            int mask = table.length - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                if (table[i] == key) {
+                    return adders[i];
+                }
+                if (table[i] == 0) {
+                    return null;
+                }
+            }
+        }
+
+        // 调用方持有写锁；装载因子保持在 1/2 以下，探测链很短
+        LongAdder findOrInsert(long key, long hash) {
+            LongAdder existing = find(key, hash);
+            if (existing != null) {
+                return existing;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = (int) hash & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            LongAdder adder = new LongAdder();
+            keys[i] = key;
+            adders[i] = adder;
+            size++;
+            return adder;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            LongAdder[] oldAdders = adders;
+            keys = new long[oldKeys.length * 2];
+            adders = new LongAdder[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = (int) spread(oldKeys[j]) & mask;
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    adders[i] = oldAdders[j];
+                }
+            }
+        }
+    }
+}
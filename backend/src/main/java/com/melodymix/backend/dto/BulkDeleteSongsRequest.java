@@ -0,0 +1,16 @@
+package com.melodymix.backend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkDeleteSongsRequest {
+
+    // 单次请求的上限同时限制了 IN 列表长度和最后一个事务的大小
+    @NotEmpty(message = "歌曲ID列表不能为空")
+    @Size(max = 500, message = "单次最多删除 500 首歌曲")
+    private List<Long> songIds;
+}
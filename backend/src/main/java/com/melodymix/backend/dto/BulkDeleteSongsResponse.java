@@ -0,0 +1,17 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteSongsResponse {
+    // 请求中去重后的歌曲数
+    private int requested;
+    // 实际删除的歌曲数，不存在的 ID 直接忽略
+    private int deleted;
+}
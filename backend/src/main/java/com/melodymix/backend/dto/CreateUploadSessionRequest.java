@@ -0,0 +1,20 @@
+package com.melodymix.backend.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CreateUploadSessionRequest {
+
+    @NotBlank(message = "文件名不能为空")
+    private String fileName;
+
+    @NotBlank(message = "文件类型不能为空")
+    private String contentType;
+
+    @NotNull(message = "文件大小不能为空")
+    @Min(value = 1, message = "文件大小必须大于0")
+    private Long totalSize;
+}
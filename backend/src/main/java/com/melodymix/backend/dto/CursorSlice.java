@@ -0,0 +1,22 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 键集分页的一页结果。不统计总数，翻到第几页的代价都一样
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorSlice<T> {
+    private List<T> content;
+    // 下一页的游标，原样传回 cursor 参数即可；没有下一页时为 null
+    private String nextCursor;
+    private boolean hasNext;
+}
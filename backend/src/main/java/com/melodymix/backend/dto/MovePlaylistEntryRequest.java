@@ -0,0 +1,12 @@
+package com.melodymix.backend.dto;
+
+import lombok.Data;
+
+/**
+ * 移动播放列表中的一项
+ */
+@Data
+public class MovePlaylistEntryRequest {
+    // 移动到这一项之后；为空或 0 表示移动到最前面
+    private Long afterEntryId;
+}
@@ -0,0 +1,23 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量修改中一个操作的结果，与请求中的操作一一对应
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaylistBatchItemResult {
+    // 操作在请求中的下标
+    private int index;
+    private boolean success;
+    // ADD 为新项的 ID，REMOVE / MOVE 为被操作的项
+    private Long entryId;
+    // 失败原因，成功时为空
+    private String error;
+}
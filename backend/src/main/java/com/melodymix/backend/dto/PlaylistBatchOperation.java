@@ -0,0 +1,33 @@
+package com.melodymix.backend.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量修改播放列表中的一个操作，字段含义同对应的单项接口
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaylistBatchOperation {
+
+    public enum Type {
+        ADD, REMOVE, MOVE
+    }
+
+    @NotNull(message = "操作类型不能为空")
+    private Type type;
+
+    // ADD：要添加的歌曲
+    private Long songId;
+
+    // REMOVE / MOVE：要移除或移动的项
+    private Long entryId;
+
+    // ADD：插入到这一项之后，0 表示最前面，不传表示末尾；MOVE：移动到这一项之后，不传或 0 表示最前面
+    private Long afterEntryId;
+}
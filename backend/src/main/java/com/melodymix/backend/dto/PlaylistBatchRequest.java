@@ -0,0 +1,17 @@
+package com.melodymix.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PlaylistBatchRequest {
+
+    // 按顺序执行，后面的操作能看到前面操作的结果；上限同时限制了 IN 列表长度和事务大小
+    @NotEmpty(message = "操作列表不能为空")
+    @Size(max = 1000, message = "单次最多 1000 个操作")
+    private List<@Valid PlaylistBatchOperation> operations;
+}
@@ -0,0 +1,20 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaylistBatchResponse {
+    // 执行后的播放列表概要（歌曲数、总时长）
+    private PlaylistSummary playlist;
+    private int succeeded;
+    private int failed;
+    private List<PlaylistBatchItemResult> results;
+}
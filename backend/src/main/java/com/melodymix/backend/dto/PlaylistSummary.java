@@ -0,0 +1,27 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 播放列表概要（列表页、详情页、增删改的返回值），不包含歌曲本身，只带歌曲数和总时长，
+ * 歌曲用 GET /api/playlists/{id}/tracks 分页加载。
+ * 由 PlaylistRepository 的构造器表达式直接查询，字段顺序即构造器参数顺序
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaylistSummary {
+    private Long id;
+    private String name;
+    private String description;
+    private LocalDateTime createdAt;
+    private long songCount;
+    // 总时长（秒）
+    private long totalDuration;
+}
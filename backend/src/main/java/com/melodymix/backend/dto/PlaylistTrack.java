@@ -0,0 +1,22 @@
+package com.melodymix.backend.dto;
+
+import com.melodymix.backend.model.Song;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 播放列表中的一项。同一首歌可以出现多次，移动和删除都以 entryId 标识
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlaylistTrack {
+    private Long entryId;
+    private Song song;
+    private LocalDateTime addedAt;
+}
@@ -0,0 +1,41 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 歌曲多条件筛选参数（GET /api/songs/filter 的查询参数），所有字段都可选。
+ * 能组合哪些条件由 {@link com.melodymix.backend.filter.SongQueryPlanner} 按 songs 表上的联合索引决定。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongFilterRequest {
+    // 关键词走搜索索引按相关度排序，不能和下面的条件组合
+    private String q;
+
+    // 精确匹配
+    private String artist;
+    private String album;
+
+    // 发行日期区间（含两端），yyyy-MM-dd
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedFrom;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate releasedTo;
+
+    // 时长区间（秒，含两端）
+    private Integer minDuration;
+    private Integer maxDuration;
+
+    // 排序字段：artist、album、releaseDate、duration、likeCount、title、createdAt 或 id；不传时按所用索引的自然顺序
+    private String sort;
+    // asc 或 desc；不传时 createdAt 和 likeCount 倒序，其它字段正序
+    private String direction;
+}
@@ -0,0 +1,17 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongSuggestion {
+    // 补全的完整文本（保留原始大小写）
+    private String text;
+    // 补全来源：title / artist / album
+    private String type;
+}
@@ -0,0 +1,16 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SongWaveformResponse {
+    private Long songId;
+    // 归一化到 0-255 的峰值，按时间顺序均匀分布在整首歌上
+    private int[] peaks;
+}
@@ -0,0 +1,21 @@
+package com.melodymix.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private String uploadId;
+    private long totalSize;
+    private long chunkSize;
+    // 从文件开头起连续写入完成的字节数，客户端断线后从这里继续上传
+    private long committedOffset;
+    // 已接收的全部字节数（并行上传时可能大于 committedOffset）
+    private long receivedBytes;
+    private boolean complete;
+}
@@ -0,0 +1,9 @@
+package com.melodymix.backend.event;
+
+import java.nio.file.Path;
+
+/**
+ * 存储目录中的媒体文件（原文件或封面缩略图）被删除后发布，用于清理依赖该文件的缓存。
+ */
+public record MediaFileDeletedEvent(Path file) {
+}
@@ -0,0 +1,18 @@
+package com.melodymix.backend.event;
+
+import com.melodymix.backend.model.Song;
+
+/**
+ * 歌曲新增、修改或删除后发布，用于维护搜索索引等派生数据。
+ * 携带可搜索字段的快照，监听方无需再查询数据库。
+ */
+public record SongChangedEvent(Long songId, String title, String artist, String album, boolean deleted) {
+
+    public static SongChangedEvent saved(Song song) {
+        return new SongChangedEvent(song.getId(), song.getTitle(), song.getArtist(), song.getAlbum(), false);
+    }
+
+    public static SongChangedEvent deleted(Long songId) {
+        return new SongChangedEvent(songId, null, null, null, true);
+    }
+}
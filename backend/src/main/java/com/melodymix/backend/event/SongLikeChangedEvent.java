@@ -0,0 +1,8 @@
+package com.melodymix.backend.event;
+
+/**
+ * 用户收藏或取消收藏歌曲后发布
+ * @param delta +1 表示新增收藏，-1 表示取消收藏
+ */
+public record SongLikeChangedEvent(Long songId, int delta) {
+}
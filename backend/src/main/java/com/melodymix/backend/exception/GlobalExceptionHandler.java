@@ -61,4 +61,15 @@ public class GlobalExceptionHandler {
                 HttpStatus.FORBIDDEN
         );
     }
+
+    /**
+     * 处理请求参数不合法的异常 (例如分片偏移量错误)
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleIllegalArgument(IllegalArgumentException ex) {
+        return new ResponseEntity<>(
+                Map.of("error", ex.getMessage()),
+                HttpStatus.BAD_REQUEST
+        );
+    }
 }
@@ -0,0 +1,52 @@
+package com.melodymix.backend.filter;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * 可以参与筛选或排序的歌曲字段：实体属性名（Criteria 查询用）和数据库列名（索引和执行计划用）
+ */
+public enum SongField {
+    ID("id", "id", Sort.Direction.ASC),
+    TITLE("title", "title", Sort.Direction.ASC),
+    ARTIST("artist", "artist", Sort.Direction.ASC),
+    ALBUM("album", "album", Sort.Direction.ASC),
+    RELEASE_DATE("releaseDate", "release_date", Sort.Direction.ASC),
+    DURATION("duration", "duration", Sort.Direction.ASC),
+    LIKE_COUNT("likeCount", "like_count", Sort.Direction.DESC),
+    CREATED_AT("createdAt", "created_at", Sort.Direction.DESC);
+
+    private final String attribute;
+    private final String column;
+    private final Sort.Direction defaultDirection;
+
+    SongField(String attribute, String column, Sort.Direction defaultDirection) {
+        this.attribute = attribute;
+        this.column = column;
+        this.defaultDirection = defaultDirection;
+    }
+
+    public String attribute() {
+        return attribute;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    public Sort.Direction defaultDirection() {
+        return defaultDirection;
+    }
+
+    /**
+     * 按实体属性名解析排序参数（区分大小写，与 JSON 字段名一致）
+     * @throws IllegalArgumentException 不支持的排序字段
+     */
+    public static SongField parse(String value) {
+        for (SongField field : values()) {
+            if (field.attribute.equals(value)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("不支持的排序字段: " + value);
+    }
+}
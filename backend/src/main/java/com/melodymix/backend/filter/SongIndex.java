@@ -0,0 +1,36 @@
+package com.melodymix.backend.filter;
+
+import java.util.List;
+
+/**
+ * songs 表上可供筛选和排序使用的索引，必须与 {@link com.melodymix.backend.model.Song} 上声明的 @Index 保持一致。
+ * 列顺序即索引列顺序；InnoDB 二级索引隐含主键，这里显式写出 id 以便按 id 兜底排序。
+ * 顺序也是规划器的优先级：多个索引都能满足时取靠前的那个。
+ */
+public enum SongIndex {
+    CREATED_AT_ID("idx_songs_created_at_id", SongField.CREATED_AT, SongField.ID),
+    TITLE_ID("idx_songs_title_id", SongField.TITLE, SongField.ID),
+    ARTIST_ALBUM_ID("idx_songs_artist_album_id", SongField.ARTIST, SongField.ALBUM, SongField.ID),
+    ARTIST_RELEASE_DATE_ID("idx_songs_artist_release_date_id", SongField.ARTIST, SongField.RELEASE_DATE, SongField.ID),
+    ALBUM_ID("idx_songs_album_id", SongField.ALBUM, SongField.ID),
+    RELEASE_DATE_ID("idx_songs_release_date_id", SongField.RELEASE_DATE, SongField.ID),
+    DURATION_ID("idx_songs_duration_id", SongField.DURATION, SongField.ID),
+    LIKE_COUNT_ID("idx_songs_like_count_id", SongField.LIKE_COUNT, SongField.ID),
+    PRIMARY("PRIMARY", SongField.ID);
+
+    private final String indexName;
+    private final List<SongField> columns;
+
+    SongIndex(String indexName, SongField... columns) {
+        this.indexName = indexName;
+        this.columns = List.of(columns);
+    }
+
+    public String indexName() {
+        return indexName;
+    }
+
+    public List<SongField> columns() {
+        return columns;
+    }
+}
@@ -0,0 +1,58 @@
+package com.melodymix.backend.filter;
+
+import com.melodymix.backend.model.Song;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * 规划器选定的查询：使用哪个索引、按索引列顺序排列的条件，以及排序。
+ * Criteria 查询和执行计划回归测试都从这里生成，保证二者是同一个查询形状。
+ * @param sortField 排序字段，总是所选索引中紧随等值前缀的那一列；不是 id 时再按 id 同向排序
+ */
+public record SongQueryPlan(SongIndex index, List<Condition> conditions, SongField sortField, Sort.Direction direction) {
+
+    /**
+     * 单列条件：等值条件只有 lower；范围条件 lower / upper 至少有一个，两端都包含
+     */
+    public record Condition(SongField field, boolean range, Object lower, Object upper) {
+
+        public static Condition eq(SongField field, Object value) {
+            return new Condition(field, false, value, null);
+        }
+
+        public static Condition range(SongField field, Object lower, Object upper) {
+            return new Condition(field, true, lower, upper);
+        }
+    }
+
+    public Specification<Song> toSpecification() {
+        return (root, query, cb) -> cb.and(conditions.stream()
+                .map(condition -> toPredicate(root, cb, condition))
+                .toArray(Predicate[]::new));
+    }
+
+    public Sort toSort() {
+        Sort sort = Sort.by(direction, sortField.attribute());
+        return sortField == SongField.ID ? sort : sort.and(Sort.by(direction, SongField.ID.attribute()));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate toPredicate(Root<Song> root, CriteriaBuilder cb, Condition condition) {
+        Path path = root.get(condition.field().attribute());
+        if (!condition.range()) {
+            return cb.equal(path, condition.lower());
+        }
+        Comparable lower = (Comparable) condition.lower();
+        Comparable upper = (Comparable) condition.upper();
+        if (lower != null && upper != null) {
+            return cb.between(path, lower, upper);
+        }
+        return lower != null ? cb.greaterThanOrEqualTo(path, lower) : cb.lessThanOrEqualTo(path, upper);
+    }
+}
@@ -0,0 +1,132 @@
+package com.melodymix.backend.filter;
+
+import com.melodymix.backend.dto.SongFilterRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * 把筛选参数映射到 {@link SongIndex} 中的某个联合索引，找不到能完整支撑的索引就拒绝查询，
+ * 保证任何被接受的筛选组合都不会退化成全表扫描或 filesort。
+ * <p>
+ * 索引能支撑的条件：所有等值条件恰好构成索引的最左前缀，范围条件（最多一个）落在紧随其后的那一列；
+ * 排序字段也必须是这一列，这样按索引顺序读出的行就已经排好序，LIMIT 可以提前结束。
+ */
+public final class SongQueryPlanner {
+
+    private SongQueryPlanner() {
+    }
+
+    /**
+     * 是否是关键词搜索。关键词走搜索索引按相关度排序，无法再叠加筛选或排序
+     * @throws IllegalArgumentException 关键词与其它条件或排序组合
+     */
+    public static boolean isFreeText(SongFilterRequest filter) {
+        if (isBlank(filter.getQ())) {
+            return false;
+        }
+        if (!equalityConditions(filter).isEmpty() || rangeCondition(filter) != null || !isBlank(filter.getSort())) {
+            throw new IllegalArgumentException("关键词搜索按相关度排序，不能与其它筛选条件或排序组合");
+        }
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException 参数非法，或该组合没有对应的索引
+     */
+    public static SongQueryPlan plan(SongFilterRequest filter) {
+        List<SongQueryPlan.Condition> equalities = equalityConditions(filter);
+        SongQueryPlan.Condition range = rangeCondition(filter);
+        SongField sortField = isBlank(filter.getSort()) ? null : SongField.parse(filter.getSort());
+
+        for (SongIndex index : SongIndex.values()) {
+            List<SongField> columns = index.columns();
+            List<SongQueryPlan.Condition> ordered = new ArrayList<>();
+            int prefix = 0;
+            while (prefix < columns.size() && ordered.size() < equalities.size()) {
+                SongQueryPlan.Condition condition = find(equalities, columns.get(prefix));
+                if (condition == null) {
+                    break;
+                }
+                ordered.add(condition);
+                prefix++;
+            }
+            if (ordered.size() < equalities.size() || prefix == columns.size()) {
+                continue;
+            }
+            SongField next = columns.get(prefix);
+            if ((range != null && range.field() != next) || (sortField != null && sortField != next)) {
+                continue;
+            }
+            if (range != null) {
+                ordered.add(range);
+            }
+            return new SongQueryPlan(index, ordered, next, direction(filter.getDirection(), next));
+        }
+        throw new IllegalArgumentException("没有索引支持该筛选与排序组合，可用的索引列顺序: " + Arrays.stream(SongIndex.values())
+                .map(index -> index.columns().stream().map(SongField::attribute).collect(Collectors.joining(", ", "(", ")")))
+                .collect(Collectors.joining(" ")) + "；等值条件需构成索引最左前缀，范围条件和排序只能落在紧随其后的一列");
+    }
+
+    private static List<SongQueryPlan.Condition> equalityConditions(SongFilterRequest filter) {
+        List<SongQueryPlan.Condition> conditions = new ArrayList<>();
+        if (!isBlank(filter.getArtist())) {
+            conditions.add(SongQueryPlan.Condition.eq(SongField.ARTIST, filter.getArtist().trim()));
+        }
+        if (!isBlank(filter.getAlbum())) {
+            conditions.add(SongQueryPlan.Condition.eq(SongField.ALBUM, filter.getAlbum().trim()));
+        }
+        return conditions;
+    }
+
+    private static SongQueryPlan.Condition rangeCondition(SongFilterRequest filter) {
+        boolean byDate = filter.getReleasedFrom() != null || filter.getReleasedTo() != null;
+        boolean byDuration = filter.getMinDuration() != null || filter.getMaxDuration() != null;
+        if (byDate && byDuration) {
+            throw new IllegalArgumentException("发行日期和时长不能同时按范围筛选");
+        }
+        if (byDate) {
+            if (filter.getReleasedFrom() != null && filter.getReleasedTo() != null
+                    && filter.getReleasedFrom().isAfter(filter.getReleasedTo())) {
+                throw new IllegalArgumentException("发行日期范围无效: releasedFrom 晚于 releasedTo");
+            }
+            return SongQueryPlan.Condition.range(SongField.RELEASE_DATE, filter.getReleasedFrom(), filter.getReleasedTo());
+        }
+        if (byDuration) {
+            if (filter.getMinDuration() != null && filter.getMaxDuration() != null
+                    && filter.getMinDuration() > filter.getMaxDuration()) {
+                throw new IllegalArgumentException("时长范围无效: minDuration 大于 maxDuration");
+            }
+            return SongQueryPlan.Condition.range(SongField.DURATION, filter.getMinDuration(), filter.getMaxDuration());
+        }
+        return null;
+    }
+
+    private static SongQueryPlan.Condition find(List<SongQueryPlan.Condition> conditions, SongField field) {
+        for (SongQueryPlan.Condition condition : conditions) {
+            if (condition.field() == field) {
+                return condition;
+            }
+        }
+        return null;
+    }
+
+    private static Sort.Direction direction(String value, SongField sortField) {
+        if (isBlank(value)) {
+            return sortField.defaultDirection();
+        }
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "asc" -> Sort.Direction.ASC;
+            case "desc" -> Sort.Direction.DESC;
+            default -> throw new IllegalArgumentException("不支持的排序方向: " + value);
+        };
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,46 @@
+package com.melodymix.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待删除文件（事务性 outbox）。
+ * 删除歌曲时在同一事务内写入，事务提交后由后台任务删除文件；事务回滚时记录随之消失，文件不受影响。
+ * 删除成功后记录即被移除。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "file_deletion_tasks",
+        indexes = @Index(name = "idx_file_deletion_tasks_available", columnList = "availableAt"))
+public class FileDeletionTask {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 1024)
+    private String fileUrl;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // 最早可以执行的时间，失败重试时向后推迟
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
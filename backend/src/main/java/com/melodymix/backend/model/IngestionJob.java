@@ -0,0 +1,60 @@
+package com.melodymix.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 音频摄取任务（持久化任务队列）。
+ * 歌曲创建时在同一事务内写入一条任务，后台工作线程领取后解析音频文件。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ingestion_jobs",
+        indexes = {
+                @Index(name = "idx_ingestion_jobs_status_available", columnList = "status, availableAt"),
+                @Index(name = "idx_ingestion_jobs_song_id", columnList = "songId")
+        })
+public class IngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long songId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private IngestionStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    // 任务最早可被领取的时间，失败重试时向后推迟
+    @Column(nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // 每次领取生成的新标识。超时被重新排队、又被别的工作线程领走后，原来的工作线程凭旧标识既不能开始也不能写回结果
+    @Column(length = 36)
+    private String claimToken;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,11 @@
+package com.melodymix.backend.model;
+
+/**
+ * 音频摄取任务状态
+ */
+public enum IngestionStatus {
+    PENDING, // 等待处理
+    RUNNING, // 处理中
+    DONE,    // 处理完成
+    FAILED   // 多次重试后仍失败
+}
@@ -8,8 +8,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 @Builder
@@ -36,12 +34,16 @@ public class Playlist {
     @JsonIgnore // 避免在返回播放列表时无限循环地返回用户信息
     private User owner;
 
-    // 2. 与 Song 的“多对多”关系 (与User-Song的收藏关系类似)
-    @ManyToMany(fetch = FetchType.LAZY)
-    @JoinTable(name = "playlist_songs",
-            joinColumns = @JoinColumn(name = "playlist_id"),
-            inverseJoinColumns = @JoinColumn(name = "song_id"))
-    private Set<Song> songs = new HashSet<>();
+    // 2. 歌曲不再映射为集合：每一项是单独的 PlaylistEntry 行（有顺序、可重复），
+    // 通过 PlaylistEntryRepository 按位置读写，修改一项不必加载整个播放列表
+
+    // 歌曲数和总时长（秒），与 playlist_entries 一起由 PlaylistRepository 的 SQL 增减，列表页和详情页直接读取，不再统计。
+    // updatable = false：实体上的改名等修改不会用旧值覆盖它们；旧数据升级后为 NULL，由 db/migration/V2 脚本补算
+    @Column(updatable = false)
+    private Long trackCount;
+
+    @Column(updatable = false)
+    private Long totalDuration;
 
     @CreationTimestamp
     private LocalDateTime createdAt;
@@ -0,0 +1,54 @@
+package com.melodymix.backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * 播放列表中的一项。每项单独一行，顺序由 position 决定：相邻两项之间留有间隔，
+ * 插入和移动只需在前后两项之间取一个新值，只写一行，不必为后面的歌曲重新编号。
+ * 同一首歌可以在播放列表中出现多次。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "playlist_entries",
+        indexes = {
+                // 按顺序读取、查找前后相邻项都只走这个索引；position 不唯一，相同时按 id 排
+                @Index(name = "idx_playlist_entries_playlist_position_id", columnList = "playlist_id, position, id"),
+                // 删除歌曲时按歌曲清理
+                @Index(name = "idx_playlist_entries_song_id", columnList = "song_id")
+        })
+public class PlaylistEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 删除播放列表时由数据库级联删除其中的项
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "playlist_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JsonIgnore
+    private Playlist playlist;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "song_id", nullable = false)
+    private Song song;
+
+    @Column(nullable = false)
+    private long position;
+
+    @CreationTimestamp
+    private LocalDateTime addedAt;
+}
@@ -9,6 +9,9 @@ import lombok.ToString;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -24,7 +27,25 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "songs")
+// 二级缓存：findById 命中时不访问数据库；所有写操作都经过实体，由 Hibernate 负责失效
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "songs")
+@Table(name = "songs",
+        // 键集分页的两种排序：按上架时间和按标题；其余是多条件筛选用到的索引，
+        // 与 filter.SongIndex 一一对应，规划器只接受这些索引能完整支撑的条件组合
+        indexes = {
+                @Index(name = "idx_songs_created_at_id", columnList = "createdAt, id"),
+                @Index(name = "idx_songs_title_id", columnList = "title, id"),
+                @Index(name = "idx_songs_artist_album_id", columnList = "artist, album, id"),
+                @Index(name = "idx_songs_artist_release_date_id", columnList = "artist, releaseDate, id"),
+                @Index(name = "idx_songs_album_id", columnList = "album, id"),
+                @Index(name = "idx_songs_release_date_id", columnList = "releaseDate, id"),
+                @Index(name = "idx_songs_duration_id", columnList = "duration, id"),
+                @Index(name = "idx_songs_like_count_id", columnList = "likeCount, id"),
+                // 按存储文件名查引用（删除文件、孤儿回收），等值查询
+                @Index(name = "idx_songs_file_name", columnList = "fileName"),
+                @Index(name = "idx_songs_cover_file_name", columnList = "coverFileName")
+        })
 public class Song {
 
     @Id
@@ -45,11 +66,29 @@ public class Song {
 
     private Integer duration;
 
+    // 以下字段由后台音频摄取任务解析音频文件后写入
+    private Integer bitrate;    // 平均码率 (kbps)
+    private Integer sampleRate; // 采样率 (Hz)
+
+    // 收藏数，冗余自 user_liked_songs，由 SongLikeCountService 批量写回并定期对账。
+    // 实体的插入和更新都不写这一列，编辑歌曲时不会用加载时的旧值覆盖
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long likeCount;
+
     @Column(nullable = false)
     private String fileUrl;
 
     private String coverUrl;
 
+    // fileUrl / coverUrl 的最后一段（存储中的文件名，内容寻址下即 {hash}.ext），保存时自动填写。
+    // 升级前的歌曲为 NULL，由 db/migration/V4 脚本补写
+    @JsonIgnore
+    private String fileName;
+
+    @JsonIgnore
+    private String coverFileName;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -61,4 +100,15 @@ public class Song {
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     private Set<User> likedByUsers = new HashSet<>();
+
+    @PrePersist
+    @PreUpdate
+    void updateFileNames() {
+        fileName = lastPathSegment(fileUrl);
+        coverFileName = lastPathSegment(coverUrl);
+    }
+
+    private static String lastPathSegment(String url) {
+        return url == null ? null : url.substring(url.lastIndexOf('/') + 1);
+    }
 }
@@ -0,0 +1,28 @@
+package com.melodymix.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 歌曲波形峰值数据，由摄取任务预先计算，播放器直接获取而无需在客户端解码音频。
+ * 单独成表，避免每次加载 Song 时都带上这段二进制数据。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "song_waveforms")
+public class SongWaveform {
+
+    @Id
+    private Long songId;
+
+    // 每个字节是一个 0-255 的归一化峰值
+    @Lob
+    @Column(nullable = false, columnDefinition = "BLOB")
+    private byte[] peaks;
+}
@@ -0,0 +1,48 @@
+package com.melodymix.backend.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 键集分页（seek）的游标：上一页最后一行的排序键和 ID，对客户端不透明（Base64URL 编码）。
+ * 游标中记录了排序方式，换了排序之后的旧游标会被拒绝，而不是返回错乱的结果。
+ * @param sort 排序方式的名称
+ * @param id 最后一行的 ID，排序键相同时的次序
+ * @param key 最后一行的排序键，只按 ID 排序时为空字符串
+ */
+public record Cursor(String sort, long id, String key) {
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * @throws IllegalArgumentException 每页数量不在 1..MAX_PAGE_SIZE 范围内
+     */
+    public static int checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页数量必须在 1 到 " + MAX_PAGE_SIZE + " 之间");
+        }
+        return size;
+    }
+
+    public String encode() {
+        String raw = sort + "|" + id + "|" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException 游标格式错误或排序方式不一致
+     */
+    public static Cursor decode(String value, String expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            // 排序键放在最后，其中可以包含分隔符
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length == 3 && parts[0].equals(expectedSort)) {
+                return new Cursor(parts[0], Long.parseLong(parts[1]), parts[2]);
+            }
+        } catch (IllegalArgumentException ignored) {
+            // 统一在下面抛出
+        }
+        throw new IllegalArgumentException("无效的分页游标: " + value);
+    }
+}
@@ -0,0 +1,35 @@
+package com.melodymix.backend.pagination;
+
+import com.melodymix.backend.model.Song;
+
+import java.util.Locale;
+
+/**
+ * 键集分页支持的歌曲排序，每种都有对应的 (排序列, id) 联合索引
+ */
+public enum SongSort {
+    // created_at DESC, id DESC
+    NEWEST,
+    // title ASC, id ASC
+    TITLE;
+
+    /**
+     * 解析请求参数（不区分大小写）
+     * @throws IllegalArgumentException 不支持的排序方式
+     */
+    public static SongSort parse(String value) {
+        for (SongSort sort : values()) {
+            if (sort.name().equals(value.toUpperCase(Locale.ROOT))) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("不支持的排序方式: " + value);
+    }
+
+    public String keyOf(Song song) {
+        return switch (this) {
+            case NEWEST -> song.getCreatedAt().toString();
+            case TITLE -> song.getTitle();
+        };
+    }
+}
@@ -0,0 +1,173 @@
+package com.melodymix.backend.playlist;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 一个播放列表所有项的位置在内存中的副本，供批量修改使用：整批操作先在这里依次计算出位置，
+ * 最后只把变化的行一次性写回数据库，而不是每个操作都查询相邻项。
+ * <p>
+ * 位置规则与单项操作相同：相邻两项之间留有 {@link #POSITION_GAP} 的间隔，插入和移动取前后两项的中点，
+ * 没有空位时整体重新编号。位置相同的项按 id 排序。新插入的项还没有数据库 id，使用负数的临时 id。
+ * 非线程安全，只在一个事务内使用。
+ */
+public final class PlaylistOrder {
+
+    // 重新编号后相邻两项的位置间隔：同一个位置连续插入约 20 次才会用完
+    public static final long POSITION_GAP = 1L << 20;
+    // 插入后与相邻项的间隔小于该值时，应在后台重新编号，尽量不让请求碰到间隔用完的情况
+    public static final long REBALANCE_THRESHOLD = 1L << 6;
+
+    private record Key(long position, long id) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byPosition = Long.compare(position, other.position);
+            return byPosition != 0 ? byPosition : Long.compare(id, other.id);
+        }
+    }
+
+    private final TreeMap<Key, Long> order = new TreeMap<>();
+    private final Map<Long, Long> positions = new HashMap<>();
+    // 位置与数据库中不同、需要写回的已有项
+    private final Set<Long> moved = new HashSet<>();
+    private long nextTemporaryId = -1;
+    private boolean crowded;
+
+    /**
+     * 放入数据库中已有的一项
+     */
+    public void load(long id, long position) {
+        order.put(new Key(position, id), id);
+        positions.put(id, position);
+    }
+
+    public boolean contains(long id) {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * 在 afterId 之后插入一个新项
+     * @param afterId 锚点项；null 表示末尾，0 表示最前面
+     * @return 新项的临时 id（负数）
+     * @throws IllegalArgumentException 锚点不存在
+     */
+    public long insert(Long afterId) {
+        long id = nextTemporaryId--;
+        place(id, afterId);
+        return id;
+    }
+
+    /**
+     * 把已有的一项移动到 afterId 之后
+     * @param afterId 锚点项；null 或 0 表示最前面
+     * @throws IllegalArgumentException 被移动的项或锚点不存在
+     */
+    public void move(long id, Long afterId) {
+        long anchor = afterId == null ? 0 : afterId;
+        if (!contains(id)) {
+            throw new IllegalArgumentException("播放列表项未找到，ID: " + id);
+        }
+        if (anchor == id) {
+            return;
+        }
+        if (anchor != 0 && !contains(anchor)) {
+            throw new IllegalArgumentException("播放列表项未找到，ID: " + anchor);
+        }
+        remove(id);
+        place(id, anchor);
+    }
+
+    /**
+     * @throws IllegalArgumentException 该项不存在
+     */
+    public void remove(long id) {
+        Long position = positions.remove(id);
+        if (position == null) {
+            throw new IllegalArgumentException("播放列表项未找到，ID: " + id);
+        }
+        order.remove(new Key(position, id));
+    }
+
+    public long positionOf(long id) {
+        return positions.get(id);
+    }
+
+    /**
+     * 需要写回数据库的已有项（id 为正数）及其新位置；已被移除的项不包含在内
+     */
+    public Map<Long, Long> movedExisting() {
+        Map<Long, Long> result = new LinkedHashMap<>();
+        for (Long id : moved) {
+            if (id > 0 && positions.containsKey(id)) {
+                result.put(id, positions.get(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 是否有插入或移动落在了间隔小于 {@link #REBALANCE_THRESHOLD} 的位置
+     */
+    public boolean isCrowded() {
+        return crowded;
+    }
+
+    private void place(long id, Long afterId) {
+        Long position = positionAfter(afterId);
+        if (position == null) {
+            renumber();
+            position = positionAfter(afterId);
+        }
+        order.put(new Key(position, id), id);
+        positions.put(id, position);
+        moved.add(id);
+    }
+
+    private Long positionAfter(Long afterId) {
+        if (afterId == null) {
+            if (order.isEmpty()) {
+                return POSITION_GAP;
+            }
+            long last = order.lastKey().position();
+            return last > Long.MAX_VALUE - POSITION_GAP ? null : last + POSITION_GAP;
+        }
+        if (afterId == 0) {
+            if (order.isEmpty()) {
+                return POSITION_GAP;
+            }
+            long first = order.firstKey().position();
+            return first < Long.MIN_VALUE + POSITION_GAP ? null : first - POSITION_GAP;
+        }
+        Long anchorPosition = positions.get(afterId);
+        if (anchorPosition == null) {
+            throw new IllegalArgumentException("播放列表项未找到，ID: " + afterId);
+        }
+        Key next = order.higherKey(new Key(anchorPosition, afterId));
+        if (next == null) {
+            return anchorPosition > Long.MAX_VALUE - POSITION_GAP ? null : anchorPosition + POSITION_GAP;
+        }
+        long gap = next.position() - anchorPosition;
+        if (gap < 2) {
+            return null;
+        }
+        if (gap / 2 < REBALANCE_THRESHOLD) {
+            crowded = true;
+        }
+        return anchorPosition + gap / 2;
+    }
+
+    private void renumber() {
+        Long[] ids = order.values().toArray(new Long[0]);
+        order.clear();
+        for (int i = 0; i < ids.length; i++) {
+            long position = (i + 1) * POSITION_GAP;
+            order.put(new Key(position, ids[i]), ids[i]);
+            positions.put(ids[i], position);
+            moved.add(ids[i]);
+        }
+    }
+}
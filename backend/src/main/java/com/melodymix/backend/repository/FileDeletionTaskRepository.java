@@ -0,0 +1,18 @@
+package com.melodymix.backend.repository;
+
+import com.melodymix.backend.model.FileDeletionTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FileDeletionTaskRepository extends JpaRepository<FileDeletionTask, Long> {
+
+    // 锁定一批到期的任务；SKIP LOCKED 让多个实例各自领取不同的任务，必须在事务中调用
+    @Query(value = "SELECT * FROM file_deletion_tasks WHERE available_at <= :now ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<FileDeletionTask> lockAvailableTasks(LocalDateTime now, int limit);
+}
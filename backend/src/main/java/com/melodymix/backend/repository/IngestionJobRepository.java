@@ -0,0 +1,57 @@
+package com.melodymix.backend.repository;
+
+import com.melodymix.backend.model.IngestionJob;
+import com.melodymix.backend.model.IngestionStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    // 查找可以领取的任务，按创建顺序处理
+    @Query("SELECT j.id FROM IngestionJob j WHERE j.status = :status AND j.availableAt <= :now ORDER BY j.id")
+    List<Long> findAvailableJobIds(IngestionStatus status, LocalDateTime now, Pageable pageable);
+
+    // 条件更新实现领取：只有仍处于 PENDING 的任务才会被当前节点领到，多实例部署时也不会重复处理
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.status = com.melodymix.backend.model.IngestionStatus.RUNNING, j.updatedAt = :now, " +
+            "j.claimToken = :token WHERE j.id = :id AND j.status = com.melodymix.backend.model.IngestionStatus.PENDING")
+    int claim(Long id, String token, LocalDateTime now);
+
+    // 工作线程真正开始处理时刷新领取时间：任务在线程池队列中等待的时间不计入超时。
+    // 返回 0 说明等待期间已经超时被重新排队（可能已被别人领走），不应再处理
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.status = com.melodymix.backend.model.IngestionStatus.RUNNING AND j.claimToken = :token")
+    int refreshClaim(Long id, String token, LocalDateTime now);
+
+    // 写回处理结果，只有领取标识仍然是自己的才会生效
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.status = :status, j.attempts = :attempts, j.availableAt = :availableAt, " +
+            "j.lastError = :lastError, j.updatedAt = :now WHERE j.id = :id AND j.claimToken = :token")
+    int finish(Long id, String token, IngestionStatus status, int attempts, LocalDateTime availableAt,
+               String lastError, LocalDateTime now);
+
+    // 删除歌曲时一并删除它的任务，走 song_id 索引
+    @Modifying
+    @Query("DELETE FROM IngestionJob j WHERE j.songId IN :songIds")
+    int deleteBySongIds(Collection<Long> songIds);
+
+    // 把因节点宕机等原因长时间停留在 RUNNING 的任务放回队列
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.status = com.melodymix.backend.model.IngestionStatus.PENDING " +
+            "WHERE j.status = com.melodymix.backend.model.IngestionStatus.RUNNING AND j.updatedAt < :staleBefore")
+    int requeueStaleJobs(LocalDateTime staleBefore);
+}
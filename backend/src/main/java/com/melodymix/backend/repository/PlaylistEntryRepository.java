@@ -0,0 +1,73 @@
+package com.melodymix.backend.repository;
+
+import com.melodymix.backend.model.PlaylistEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 播放列表项。所有按顺序的查询都是 (playlist_id, position, id) 索引上的范围扫描，
+ * 查找相邻项只读一行，与播放列表长度无关
+ */
+@Repository
+public interface PlaylistEntryRepository extends JpaRepository<PlaylistEntry, Long> {
+
+    /**
+     * 只有 id 和 position 的投影：计算新位置时直接读标量，不受持久化上下文中旧实体状态的影响
+     */
+    interface Slot {
+        Long getId();
+
+        long getPosition();
+    }
+
+    @Query("SELECT e.id AS id, e.position AS position FROM PlaylistEntry e "
+            + "WHERE e.id = :entryId AND e.playlist.id = :playlistId")
+    Optional<Slot> findSlot(Long playlistId, Long entryId);
+
+    // 紧跟在 (position, id) 之后的项，Pageable 只取一行
+    @Query("SELECT e.id AS id, e.position AS position FROM PlaylistEntry e WHERE e.playlist.id = :playlistId "
+            + "AND (e.position > :position OR (e.position = :position AND e.id > :id)) ORDER BY e.position ASC, e.id ASC")
+    List<Slot> findSlotsAfter(Long playlistId, long position, Long id, Pageable pageable);
+
+    @Query("SELECT e.id AS id, e.position AS position FROM PlaylistEntry e WHERE e.playlist.id = :playlistId "
+            + "ORDER BY e.position ASC, e.id ASC")
+    List<Slot> findFirstSlots(Long playlistId, Pageable pageable);
+
+    @Query("SELECT e.id AS id, e.position AS position FROM PlaylistEntry e WHERE e.playlist.id = :playlistId "
+            + "ORDER BY e.position DESC, e.id DESC")
+    List<Slot> findLastSlots(Long playlistId, Pageable pageable);
+
+    // 批量修改用：整个播放列表的位置，一次读入内存
+    @Query("SELECT e.id AS id, e.position AS position FROM PlaylistEntry e WHERE e.playlist.id = :playlistId "
+            + "ORDER BY e.position ASC, e.id ASC")
+    List<Slot> findSlotsInOrder(Long playlistId);
+
+    // 重新编号用：整个播放列表的 id，按当前顺序
+    @Query("SELECT e.id FROM PlaylistEntry e WHERE e.playlist.id = :playlistId ORDER BY e.position ASC, e.id ASC")
+    List<Long> findIdsInOrder(Long playlistId);
+
+    // 键集分页：从 (position, id) 之后继续，不使用 OFFSET
+    @Query("SELECT e FROM PlaylistEntry e JOIN FETCH e.song WHERE e.playlist.id = :playlistId "
+            + "AND (e.position > :position OR (e.position = :position AND e.id > :id)) ORDER BY e.position ASC, e.id ASC")
+    Slice<PlaylistEntry> findWithSongsAfter(Long playlistId, long position, Long id, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE PlaylistEntry e SET e.position = :position WHERE e.id = :entryId")
+    int updatePosition(Long entryId, long position);
+
+    // 删除前先查出 id：同一批 id 先用于扣减播放列表的歌曲数和总时长，再按 id 删除
+    @Query("SELECT e.id FROM PlaylistEntry e WHERE e.playlist.id = :playlistId AND e.song.id = :songId")
+    List<Long> findIdsByPlaylistIdAndSongId(Long playlistId, Long songId);
+
+    // 删除歌曲时按块清理：走 song_id 索引，Pageable 限制每块的行数
+    @Query("SELECT e.id FROM PlaylistEntry e WHERE e.song.id IN :songIds")
+    List<Long> findIdsBySongIdIn(Collection<Long> songIds, Pageable pageable);
+}
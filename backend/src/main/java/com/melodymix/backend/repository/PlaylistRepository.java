@@ -1,14 +1,63 @@
 package com.melodymix.backend.repository;
 
+import com.melodymix.backend.dto.PlaylistSummary;
 import com.melodymix.backend.model.Playlist;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
-import com.melodymix.backend.model.Song;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     // 根据用户ID查找其所有播放列表
     List<Playlist> findByOwnerId(Long ownerId);
-    List<Playlist> findBySongsContaining(Song song);
+
+    // 用户的播放列表概要：歌曲数和总时长是播放列表上维护的列，只读 playlists 一张表；
+    // 升级前的播放列表在执行 db/migration/V2 之前两列为 NULL，按 0 返回
+    @Query("SELECT new com.melodymix.backend.dto.PlaylistSummary(p.id, p.name, p.description, p.createdAt, COALESCE(p.trackCount, 0L), COALESCE(p.totalDuration, 0L)) "
+            + "FROM Playlist p WHERE p.owner.id = :ownerId ORDER BY p.createdAt ASC, p.id ASC")
+    List<PlaylistSummary> findSummariesByOwnerId(Long ownerId);
+
+    @Query("SELECT new com.melodymix.backend.dto.PlaylistSummary(p.id, p.name, p.description, p.createdAt, COALESCE(p.trackCount, 0L), COALESCE(p.totalDuration, 0L)) "
+            + "FROM Playlist p WHERE p.id = :id")
+    Optional<PlaylistSummary> findSummaryById(Long id);
+
+    // 修改播放列表中的项之前锁住播放列表这一行，同一个播放列表的插入 / 移动 / 重新编号依次执行，
+    // 不会两个请求同时选中同一个空位
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Playlist p WHERE p.id = :id")
+    Optional<Playlist> findForUpdateById(Long id);
+
+    // --- 歌曲数 / 总时长的维护。都是原生 SQL，声明涉及的表，避免 Hibernate 清空整个二级缓存 ---
+
+    @Modifying
+    @Query(value = "UPDATE playlists SET track_count = track_count + :tracks, total_duration = total_duration + :duration "
+            + "WHERE id = :playlistId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "playlists"))
+    int addToStats(Long playlistId, long tracks, long duration);
+
+    // 删除这些播放列表项之前调用：按播放列表汇总后一次扣减
+    @Modifying
+    @Query(value = "UPDATE playlists p JOIN (SELECT e.playlist_id, COUNT(*) AS tracks, COALESCE(SUM(s.duration), 0) AS duration "
+            + "FROM playlist_entries e JOIN songs s ON s.id = e.song_id WHERE e.id IN (:entryIds) GROUP BY e.playlist_id) x "
+            + "ON x.playlist_id = p.id SET p.track_count = p.track_count - x.tracks, p.total_duration = p.total_duration - x.duration",
+            nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "playlists"))
+    int subtractEntriesFromStats(Collection<Long> entryIds);
+
+    // 歌曲时长变化时，包含它的播放列表按出现次数调整总时长；只走 playlist_entries 的 song_id 索引
+    @Modifying
+    @Query(value = "UPDATE playlists p JOIN (SELECT playlist_id, COUNT(*) AS tracks FROM playlist_entries "
+            + "WHERE song_id = :songId GROUP BY playlist_id) x ON x.playlist_id = p.id "
+            + "SET p.total_duration = p.total_duration + x.tracks * :delta", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "playlists"))
+    int applySongDurationChange(Long songId, long delta);
 }
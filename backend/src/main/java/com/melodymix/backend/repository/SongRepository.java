@@ -1,17 +1,26 @@
 package com.melodymix.backend.repository;
 
-import com.melodymix.backend.model.Playlist;
 import com.melodymix.backend.model.Song;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;         // 1. 新增导入
 import org.springframework.data.domain.Pageable;      // 1. 新增导入
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface SongRepository extends JpaRepository<Song, Long> {
+public interface SongRepository extends JpaRepository<Song, Long>, JpaSpecificationExecutor<Song> {
 
     // 2. 修改方法签名以支持分页
     // - 返回类型从 List<Song> 改为 Page<Song>
@@ -20,7 +29,74 @@ public interface SongRepository extends JpaRepository<Song, Long> {
 
     // JpaRepository 已经自带了 findAll(Pageable pageable) 方法，我们无需声明它
 
-    // 这个方法与分页无关，保持不变
-    @Query("SELECT p FROM Playlist p JOIN p.songs s WHERE s.id = :songId")
-    List<Playlist> findPlaylistsBySongId(Long songId);
+    // 按主键顺序分批遍历全部歌曲（构建搜索索引等），避免 OFFSET 越翻越慢
+    List<Song> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // 键集分页：返回 Slice，只多取一行判断是否还有下一页，不执行 COUNT；条件和排序都走 (排序列, id) 联合索引
+    Slice<Song> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+
+    @Query("SELECT s FROM Song s WHERE s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id) "
+            + "ORDER BY s.createdAt DESC, s.id DESC")
+    Slice<Song> findNewestBefore(LocalDateTime createdAt, Long id, Pageable pageable);
+
+    Slice<Song> findAllByOrderByTitleAscIdAsc(Pageable pageable);
+
+    @Query("SELECT s FROM Song s WHERE s.title > :title OR (s.title = :title AND s.id > :id) "
+            + "ORDER BY s.title ASC, s.id ASC")
+    Slice<Song> findByTitleAfter(String title, Long id, Pageable pageable);
+
+    // 标题前缀匹配，按 (title, id) 索引顺序的范围扫描，供未启用前缀树时的自动补全使用
+    Slice<Song> findByTitleStartingWithOrderByTitleAscIdAsc(String prefix, Pageable pageable);
+
+    // 用户收藏的歌曲，一次 JOIN 查出
+    @Query("SELECT s FROM User u JOIN u.likedSongs s WHERE u.id = :userId ORDER BY s.id ASC")
+    List<Song> findLikedByUserId(Long userId);
+
+    // FULLTEXT (ngram parser) 搜索：WHERE 用布尔模式的短语匹配保证每个 ngram 都按顺序出现，
+    // ORDER BY 用自然语言模式的相关度；索引由 db/migration/V1__songs_fulltext_index.sql 创建
+    @Query(value = "SELECT * FROM songs WHERE MATCH(title, artist, album) AGAINST (:phrase IN BOOLEAN MODE) "
+            + "ORDER BY MATCH(title, artist, album) AGAINST (:keyword IN NATURAL LANGUAGE MODE) DESC, id DESC",
+            countQuery = "SELECT COUNT(*) FROM songs WHERE MATCH(title, artist, album) AGAINST (:phrase IN BOOLEAN MODE)",
+            nativeQuery = true)
+    Page<Song> searchFulltext(String phrase, String keyword, Pageable pageable);
+
+    // 一批 ID 中仍存在的歌曲，只走主键；删除歌曲时在调用方的读写事务中执行（读主库）
+    @Query("SELECT s.id FROM Song s WHERE s.id IN :ids ORDER BY s.id ASC")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    // 每首被收藏过的歌曲的收藏数：[song_id, count]，供自动补全启动时计算权重
+    @Query(value = "SELECT song_id, COUNT(*) FROM user_liked_songs GROUP BY song_id", nativeQuery = true)
+    List<Object[]> countLikesBySong();
+
+    // 删除歌曲前按块清理收藏：走 song_id 索引，LIMIT 限制每个事务锁住的行数（播放列表项由 PlaylistService 清理）。
+    // 声明涉及的表，否则 Hibernate 不知道原生 SQL 改了什么，会清空整个二级缓存
+    @Modifying
+    @Query(value = "DELETE FROM user_liked_songs WHERE song_id IN (:songIds) LIMIT :limit", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_liked_songs"))
+    int deleteLikesOfSongs(Collection<Long> songIds, int limit);
+
+    // 统计仍然引用某个存储文件的歌曲数量（按文件名匹配 file_url / cover_url 的末尾），用于内容寻址文件的引用计数
+    // 决定文件能否删除，必须读主库：副本上可能还看不到刚引用了该文件的歌曲。REQUIRES_NEW 保证总是新开读写事务，
+    // 普通的 @Transactional 会加入调用方已有的只读事务而读副本；代价是在事务中调用时另占一个主库连接。
+    // 按 file_name / cover_file_name 索引等值查询；还没补写文件名的旧歌曲（file_name 为 NULL，
+    // 走同一索引定位）仍按 URL 后缀匹配，执行过 db/migration/V4 之后这部分为空
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "SELECT (SELECT COUNT(*) FROM songs WHERE file_name = :fileName) "
+            + "+ (SELECT COUNT(*) FROM songs WHERE cover_file_name = :fileName) "
+            + "+ (SELECT COUNT(*) FROM songs WHERE file_name IS NULL "
+            + "AND (file_url LIKE CONCAT('%/', :fileName) OR cover_url LIKE CONCAT('%/', :fileName)))",
+            nativeQuery = true)
+    long countReferencesToFile(String fileName);
+
+    // 一批文件名中仍被 file_url / cover_url 引用的那些，供孤儿文件回收批量检查；同上，在新的读写事务中读主库，
+    // 按 file_name / cover_file_name 索引 IN 查询，还没补写文件名的旧歌曲仍按 URL 截取匹配
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "SELECT file_name FROM songs WHERE file_name IN (:fileNames) "
+            + "UNION SELECT cover_file_name FROM songs WHERE cover_file_name IN (:fileNames) "
+            + "UNION SELECT SUBSTRING_INDEX(file_url, '/', -1) FROM songs "
+            + "WHERE file_name IS NULL AND SUBSTRING_INDEX(file_url, '/', -1) IN (:fileNames) "
+            + "UNION SELECT SUBSTRING_INDEX(cover_url, '/', -1) FROM songs "
+            + "WHERE file_name IS NULL AND SUBSTRING_INDEX(cover_url, '/', -1) IN (:fileNames)",
+            nativeQuery = true)
+    List<String> findReferencedFileNames(Collection<String> fileNames);
 }
@@ -0,0 +1,9 @@
+package com.melodymix.backend.repository;
+
+import com.melodymix.backend.model.SongWaveform;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SongWaveformRepository extends JpaRepository<SongWaveform, Long> {
+}
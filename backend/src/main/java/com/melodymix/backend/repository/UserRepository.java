@@ -1,7 +1,14 @@
 package com.melodymix.backend.repository;
 
 import com.melodymix.backend.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -22,7 +29,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
      *
      * @param username 用户名
      * @return 使用 Optional<User> 是为了更好地处理可能不存在的情况，避免空指针异常 (NullPointerException)。
+     * 每个带 JWT 的请求都会调用，结果（用户 ID）放在查询缓存里，实体本身从 users 区域取；users 表有写入时整个区域失效
+     * 总是在新的读写事务中执行（读主库）：配置了只读副本时，只读事务不写入二级缓存，缓存未命中的这次查询走主库才能把结果放进缓存；
+     * 普通的 @Transactional 会加入调用方已有的只读事务，仍然读副本。代价是在调用方的事务中调用时要暂停它、另占一个主库连接，
+     * 返回的 User 也不属于调用方的持久化上下文
      */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "user-by-username")
+    })
     Optional<User> findByUsername(String username);
 
     /**
@@ -33,4 +49,18 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return 返回一个 Optional<User>
      */
     Optional<User> findByEmail(String email);
+
+    // 收藏 / 取消收藏直接写中间表，不加载 User.likedSongs 集合；主键 (user_id, song_id) 保证幂等。
+    // 原生写语句必须声明涉及的表，否则 Hibernate 会清空整个二级缓存
+    // 注意 INSERT IGNORE 也会忽略外键错误：返回 0 时由调用方区分“已收藏”和“歌曲不存在”
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO user_liked_songs (user_id, song_id) VALUES (:userId, :songId)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_liked_songs"))
+    int insertLikedSong(Long userId, Long songId);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_liked_songs WHERE user_id = :userId AND song_id = :songId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_liked_songs"))
+    int deleteLikedSong(Long userId, Long songId);
 }
@@ -0,0 +1,65 @@
+package com.melodymix.backend.search;
+
+import java.util.Arrays;
+
+/**
+ * fuzzy 搜索模式的索引：n-gram 子串匹配之外，再按拼音全拼 / 首字母和有限编辑距离补充结果。
+ * 子串命中的结果（按 NgramIndex 的相关度）排在前面，其后是只被拼音或容错匹配命中的结果。
+ */
+public final class FuzzySearchIndex {
+
+    private final NgramIndex ngramIndex = new NgramIndex();
+    private final PinyinTermIndex pinyinIndex;
+    private final int maxCandidates;
+
+    /**
+     * @param maxCandidates 拼音 / 容错匹配每个词最多收集的候选歌曲数，限制宽泛查询的耗时
+     * @param mergeThreshold 拼音词典增量表的归并阈值（倒排项数）
+     * @param typoThreshold 某个词的精确和前缀匹配少于该数量时才进行容错匹配
+     */
+    public FuzzySearchIndex(int maxCandidates, int mergeThreshold, int typoThreshold) {
+        this.maxCandidates = maxCandidates;
+        // 初次加载时用更大的归并阈值，把归并次数控制在几十次以内
+        this.pinyinIndex = new PinyinTermIndex(mergeThreshold, Math.max(mergeThreshold, 200_000), typoThreshold);
+    }
+
+    /**
+     * 添加或替换一首歌曲的索引
+     */
+    public void put(long id, String title, String artist, String album) {
+        ngramIndex.put(id, title, artist, album);
+        pinyinIndex.put(id, title, artist);
+    }
+
+    public void remove(long id) {
+        ngramIndex.remove(id);
+        pinyinIndex.remove(id);
+    }
+
+    /**
+     * 初次批量加载全部歌曲后调用
+     */
+    public void finishBulkLoad() {
+        pinyinIndex.finishBulkLoad();
+    }
+
+    public int size() {
+        return ngramIndex.size();
+    }
+
+    public NgramIndex.SearchResult search(String query, int offset, int limit) {
+        NgramIndex.SearchResult exact = ngramIndex.search(query, offset, limit);
+        long[] extra = ngramIndex.excludeMatching(pinyinIndex.search(query, maxCandidates), query);
+        int total = exact.total() + extra.length;
+        if (exact.ids().length >= limit) {
+            return new NgramIndex.SearchResult(exact.ids(), total);
+        }
+
+        // 当前页的剩余位置由拼音 / 容错匹配的结果补上
+        int extraFrom = Math.max(0, offset - exact.total());
+        int extraCount = Math.max(0, Math.min(limit - exact.ids().length, extra.length - extraFrom));
+        long[] page = Arrays.copyOf(exact.ids(), exact.ids().length + extraCount);
+        System.arraycopy(extra, extraFrom, page, exact.ids().length, extraCount);
+        return new NgramIndex.SearchResult(page, total);
+    }
+}
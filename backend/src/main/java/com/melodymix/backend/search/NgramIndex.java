@@ -0,0 +1,417 @@
+package com.melodymix.backend.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 歌曲标题 / 歌手 / 专辑的字符 n-gram 倒排索引。
+ * <p>
+ * 文本先做 NFKC 规范化和小写化，非字母数字字符视为分隔符。每个词切成字符二元组（bigram），
+ * 中日韩文字额外索引单字，这样单字查询（例如“爱”）也能命中；其它文字只索引词首字母，
+ * 单个字母的查询按词首匹配。倒排表是有序的 long 数组，
+ * 查询时从最短的倒排表开始求交集，再用原文校验（二元组都出现不代表连续出现）并打分。
+ * 读多写少：查询持有读锁并发执行，增删持有写锁。
+ */
+public final class NgramIndex {
+
+    private static final long BIGRAM_FLAG = 1L << 42;
+    private static final long WORD_START_FLAG = 1L << 43;
+
+    // 打分权重：标题优先，其次歌手、专辑
+    private static final int SCORE_TITLE_EXACT = 100;
+    private static final int SCORE_TITLE_PREFIX = 60;
+    private static final int SCORE_TITLE_CONTAINS = 40;
+    private static final int SCORE_ARTIST_EXACT = 30;
+    private static final int SCORE_ARTIST_CONTAINS = 20;
+    private static final int SCORE_ALBUM_CONTAINS = 10;
+    // 打分和 ID 编码在同一个 long 中排序：高位为分数，低位为 ID（ID 越大越新，同分时排前面）
+    private static final int SCORE_SHIFT = 55;
+
+    // 歌曲 ID 是自增主键，直接用 ID 作下标，查询时逐个取文档不需要装箱和哈希
+    private Document[] documents = new Document[1024];
+    private int documentCount;
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换一首歌曲的索引
+     */
+    public void put(long id, String title, String artist, String album) {
+        if (id < 0 || id >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("不支持的歌曲 ID: " + id);
+        }
+        Document document = new Document(normalize(title), normalize(artist), normalize(album));
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            if (id >= documents.length) {
+                documents = Arrays.copyOf(documents, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(id + 1, documents.length * 2L)));
+            }
+            documents[(int) id] = document;
+            documentCount++;
+            for (long gram : document.grams()) {
+                postings.computeIfAbsent(gram, key -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按相关度排序的分页查询
+     * @return 当前页的歌曲 ID 和命中总数
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty() || limit <= 0) {
+            return new SearchResult(new long[0], 0);
+        }
+        long[] queryGrams = queryGramsOf(normalizedQuery);
+
+        lock.readLock().lock();
+        try {
+            TopK top = new TopK(offset + limit);
+            int total = 0;
+            if (queryGrams.length == 0) {
+                // 查询中没有字母或数字
+                return new SearchResult(new long[0], 0);
+            }
+            for (long id : intersect(queryGrams)) {
+                int score = score(documents[(int) id], normalizedQuery);
+                if (score > 0) {
+                    total++;
+                    top.offer(((long) score << SCORE_SHIFT) | id);
+                }
+            }
+
+            long[] ranked = top.drainDescending();
+            long[] page = offset >= ranked.length ? new long[0] : Arrays.copyOfRange(ranked, offset, ranked.length);
+            for (int i = 0; i < page.length; i++) {
+                page[i] &= (1L << SCORE_SHIFT) - 1;
+            }
+            return new SearchResult(page, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 去掉 ids 中已被 search(query) 命中的歌曲，供组合其它索引的结果时去重
+     */
+    long[] excludeMatching(long[] ids, String query) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery.isEmpty()) {
+            return ids;
+        }
+        lock.readLock().lock();
+        try {
+            long[] result = new long[ids.length];
+            int count = 0;
+            for (long id : ids) {
+                Document document = id < documents.length ? documents[(int) id] : null;
+                if (document == null || score(document, normalizedQuery) == 0) {
+                    result[count++] = id;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] intersect(long[] queryGrams) {
+        List<PostingList> lists = new ArrayList<>(queryGrams.length);
+        for (long gram : queryGrams) {
+            PostingList list = postings.get(gram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        long[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        int resultSize = result.length;
+        for (int i = 1; i < lists.size() && resultSize > 0; i++) {
+            resultSize = lists.get(i).retainAll(result, resultSize);
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    private int score(Document document, String query) {
+        int score = 0;
+        if (document.title.equals(query)) {
+            score += SCORE_TITLE_EXACT;
+        } else if (document.title.startsWith(query)) {
+            score += SCORE_TITLE_PREFIX;
+        } else if (document.title.contains(query)) {
+            score += SCORE_TITLE_CONTAINS;
+        }
+        if (document.artist.equals(query)) {
+            score += SCORE_ARTIST_EXACT;
+        } else if (document.artist.contains(query)) {
+            score += SCORE_ARTIST_CONTAINS;
+        }
+        if (document.album.contains(query)) {
+            score += SCORE_ALBUM_CONTAINS;
+        }
+        return score;
+    }
+
+    private void removeInternal(long id) {
+        Document existing = id < documents.length ? documents[(int) id] : null;
+        if (existing == null) {
+            return;
+        }
+        documents[(int) id] = null;
+        documentCount--;
+        for (long gram : existing.grams()) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * NFKC 规范化（全角转半角等）+ 小写，非字母数字字符替换为单个空格
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(normalized.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                if (pendingSpace && !builder.isEmpty()) {
+                    builder.append(' ');
+                }
+                pendingSpace = false;
+                builder.appendCodePoint(codePoint);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 规范化文本的去重 n-gram：每个词内的相邻二元组，中日韩文字再加单字，其它文字再加词首字母。
+     * 查询只有一个非中日韩字符时使用词首字母，否则只用二元组和中日韩单字。
+     */
+    static long[] gramsOf(String normalized) {
+        return gramsOf(normalized, true);
+    }
+
+    private static long[] queryGramsOf(String normalized) {
+        if (normalized.codePointCount(0, normalized.length()) == 1 && !isCjk(normalized.codePointAt(0))) {
+            return new long[]{WORD_START_FLAG | normalized.codePointAt(0)};
+        }
+        return gramsOf(normalized, false);
+    }
+
+    private static long[] gramsOf(String normalized, boolean wordStarts) {
+        long[] grams = new long[normalized.length() * 3];
+        int count = 0;
+        int previous = -1;
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint == ' ') {
+                previous = -1;
+                continue;
+            }
+            if (isCjk(codePoint)) {
+                grams[count++] = codePoint;
+            } else if (wordStarts && previous < 0) {
+                grams[count++] = WORD_START_FLAG | codePoint;
+            }
+            if (previous >= 0) {
+                grams[count++] = BIGRAM_FLAG | ((long) previous << 21) | codePoint;
+            }
+            previous = codePoint;
+        }
+        return Arrays.stream(grams, 0, count).sorted().distinct().toArray();
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    public record SearchResult(long[] ids, int total) {
+    }
+
+    /**
+     * 保留最大的 k 个 long 的小顶堆，避免 PriorityQueue 的装箱
+     */
+    private static final class TopK {
+        private final int capacity;
+        private long[] heap = new long[16];
+        private int size;
+
+        TopK(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void offer(long value) {
+            if (size < capacity) {
+                if (size == heap.length) {
+                    heap = Arrays.copyOf(heap, Math.min(capacity, size * 2));
+                }
+                heap[size] = value;
+                siftUp(size++);
+            } else if (value > heap[0]) {
+                heap[0] = value;
+                siftDown(0);
+            }
+        }
+
+        long[] drainDescending() {
+            long[] result = new long[size];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return result;
+        }
+
+        private void siftUp(int index) {
+            long value = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = value;
+        }
+
+        private void siftDown(int index) {
+            long value = heap[index];
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (value <= heap[child]) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = value;
+        }
+    }
+
+    private record Document(String title, String artist, String album) {
+
+        long[] grams() {
+            return gramsOf(title + " " + artist + " " + album);
+        }
+    }
+
+    /**
+     * 升序的 long 倒排表。歌曲 ID 自增，绝大多数写入是追加。
+     */
+    private static final class PostingList {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == 0 || ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -index - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * 就地保留 candidates[0, count) 中同样出现在本表中的 ID，返回保留的数量。
+         * 两边都有序，用指数步长（galloping）向前查找，代价与两次命中之间的距离成对数关系。
+         */
+        int retainAll(long[] candidates, int count) {
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                long target = candidates[i];
+                int step = 1;
+                int high = from;
+                while (high < size && ids[high] < target) {
+                    from = high + 1;
+                    high += step;
+                    step <<= 1;
+                }
+                int index = Arrays.binarySearch(ids, from, Math.min(high + 1, size), target);
+                if (index >= 0) {
+                    candidates[kept++] = target;
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            return kept;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,816 @@
+package com.melodymix.backend.search;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 歌曲标题 / 歌手的拼音词典，支持全拼、首字母和有限编辑距离的容错匹配。
+ * <p>
+ * 每个字段生成若干个词条：整段全拼（“qilixiang”）、含汉字时的首字母（“qlx”）以及多个词时每个词的全拼。
+ * 查询同样转成全拼，所以输入同音错字（“其里香”）也能精确命中。
+ * <p>
+ * 词条存放在两层结构中：按字典序排好的紧凑段（所有词条共用一个 char 数组，倒排表共用一个 long 数组），
+ * 以及记录最近修改的小型增量表。增量超过阈值时与紧凑段归并成新段；被修改或删除的歌曲在归并前
+ * 只记入失效集合，查询时跳过其在旧段中的倒排项。
+ * 归并不占用写锁：增量表先被冻结（换上一个新的空增量表），新段在锁外的后台线程中构建，完成后才在写锁内替换，
+ * 期间的查询同时读取旧段、冻结的增量表和新的增量表，写入只进入新的增量表。
+ * <p>
+ * 容错匹配不逐个计算编辑距离：有序词条相当于一棵隐式的前缀树，沿字典序遍历时与上一个词条共享的前缀
+ * 复用动态规划的行，某一行的最小值超过允许距离时，用二分查找直接跳过所有拥有该前缀的词条。
+ */
+final class PinyinTermIndex {
+
+    // 倒排项 = 歌曲 ID | 字段标记，标题排在歌手前面
+    static final long ARTIST_FLAG = 1L << 62;
+    static final long ID_MASK = ARTIST_FLAG - 1;
+
+    private static final int MAX_TERM_LENGTH = 32;
+
+    // 匹配等级：精确 > 前缀 > 编辑距离 1 > 编辑距离 2；分数 = 等级 * 2 + (标题 ? 1 : 0)
+    private static final int CLASS_EXACT = 4;
+    private static final int CLASS_PREFIX = 3;
+    private static final int CLASS_FUZZY = 2;
+    // 打分和 ID 编码在同一个 long 中排序，规则与 NgramIndex 一致
+    private static final int SCORE_SHIFT = 55;
+
+    private final int mergeThreshold;
+    private final int bulkMergeThreshold;
+    private final int typoThreshold;
+    private boolean bulkLoading = true;
+
+    private Segment base = Segment.EMPTY;
+    // 紧凑段中最大的歌曲 ID：更大的 ID 不可能出现在段中，新增歌曲不需要记入失效集合
+    private long maxIdInBase = -1;
+    private Map<String, Set<Long>> delta = new HashMap<>();
+    private Map<Long, List<String>> deltaTermsBySong = new HashMap<>();
+    private int deltaPostings;
+    // 在紧凑段（以及正在归并的增量表）中已经过期的歌曲（被修改或删除），下次归并时清除
+    private Set<Long> staleInBase = new HashSet<>();
+    // 正在归并的增量表和开始归并时的失效集合，没有归并时为空
+    private Map<String, Set<Long>> merging = Map.of();
+    private Set<Long> mergingSongs = Set.of();
+    private Set<Long> mergingStale = Set.of();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // 同一时间只有一个归并，持有期间 base 不会被其他线程替换
+    private final ReentrantLock mergeLock = new ReentrantLock();
+
+    /**
+     * @param mergeThreshold 增量表中的倒排项超过该数量时与紧凑段归并。增量表的查询是逐个比较，阈值不宜过大
+     * @param bulkMergeThreshold 初次批量加载期间使用的归并阈值，调大可以减少归并次数
+     * @param typoThreshold 精确和前缀匹配的结果少于该数量时才进行容错匹配
+     */
+    PinyinTermIndex(int mergeThreshold, int bulkMergeThreshold, int typoThreshold) {
+        this.mergeThreshold = mergeThreshold;
+        this.bulkMergeThreshold = bulkMergeThreshold;
+        this.typoThreshold = typoThreshold;
+    }
+
+    void put(long id, String title, String artist) {
+        List<String> titleTerms = termsOf(title);
+        List<String> artistTerms = termsOf(artist);
+        boolean mergeNeeded;
+        boolean mergeInline;
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            List<String> songTerms = new ArrayList<>(titleTerms.size() + artistTerms.size());
+            for (String term : titleTerms) {
+                addToDelta(term, id);
+                songTerms.add(term);
+            }
+            for (String term : artistTerms) {
+                addToDelta(term, id | ARTIST_FLAG);
+                songTerms.add(term);
+            }
+            deltaTermsBySong.put(id, songTerms);
+            mergeNeeded = mergingSongs.isEmpty() && mergeDue();
+            mergeInline = bulkLoading;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (mergeNeeded) {
+            if (mergeInline) {
+                // 批量加载线程自己归并，顺便限制加载速度
+                merge(false);
+            } else {
+                // 运行期的修改来自请求线程（事务提交后的事件），归并放到后台，不拖慢这次请求
+                Thread.ofPlatform().name("pinyin-index-merge").daemon().start(() -> merge(false));
+            }
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 初次批量加载完成：归并剩余的增量，之后使用运行期的归并阈值
+     */
+    void finishBulkLoad() {
+        lock.writeLock().lock();
+        try {
+            bulkLoading = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        merge(true);
+    }
+
+    /**
+     * 按匹配等级排序的候选歌曲 ID。多个词的查询要求每个词都命中（分数相加），
+     * 同时把所有词连起来当作一个整体再匹配一次（“zhou jie lun”）。
+     * @param maxCandidates 每个词最多收集的候选数，先收集高等级的匹配
+     */
+    long[] search(String query, int maxCandidates) {
+        List<String> words = queryWordsOf(query);
+        if (words.isEmpty()) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = searchWord(words.get(0), maxCandidates);
+            for (int i = 1; i < words.size() && !scores.isEmpty(); i++) {
+                Map<Long, Integer> wordScores = searchWord(words.get(i), maxCandidates);
+                scores.keySet().retainAll(wordScores.keySet());
+                scores.replaceAll((id, score) -> score + wordScores.get(id));
+            }
+            if (words.size() > 1) {
+                String joined = truncate(String.join("", words));
+                searchWord(joined, maxCandidates).forEach((id, score) -> scores.merge(id, score, Math::max));
+            }
+
+            long[] ranked = new long[scores.size()];
+            int count = 0;
+            for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                ranked[count++] = ((long) entry.getValue() << SCORE_SHIFT) | entry.getKey();
+            }
+            Arrays.sort(ranked);
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = ranked[count - 1 - i] & ((1L << SCORE_SHIFT) - 1);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Integer> searchWord(String word, int maxCandidates) {
+        Collector collector = new Collector(maxCandidates);
+        // 拼音很长（三个字的标题约十个字母），允许的距离按长度放宽；短词（多为首字母）不做容错
+        int maxDistance = word.length() <= 3 ? 0 : word.length() <= 10 ? 1 : 2;
+
+        // 紧凑段：精确和前缀匹配是同一段连续区间
+        Segment segment = base;
+        int from = segment.lowerBound(word);
+        int prefixEnd = segment.endOfPrefix(from, word);
+        for (int i = from; i < prefixEnd && !collector.isFull(); i++) {
+            collector.addPostings(segment, i, segment.termLength(i) == word.length() ? CLASS_EXACT : CLASS_PREFIX);
+        }
+        // 增量表很小，逐个比较；正在归并的增量表中的过期歌曲同样记在 staleInBase 中
+        for (Map.Entry<String, Set<Long>> entry : merging.entrySet()) {
+            if (entry.getKey().startsWith(word)) {
+                collector.addAll(entry.getValue(), entry.getKey().length() == word.length() ? CLASS_EXACT : CLASS_PREFIX, true);
+            }
+        }
+        for (Map.Entry<String, Set<Long>> entry : delta.entrySet()) {
+            if (entry.getKey().startsWith(word)) {
+                collector.addAll(entry.getValue(), entry.getKey().length() == word.length() ? CLASS_EXACT : CLASS_PREFIX, false);
+            }
+        }
+        if (maxDistance > 0 && collector.scores.size() < typoThreshold) {
+            fuzzyWalk(segment, word, maxDistance, collector);
+            int[][] rows = new int[MAX_TERM_LENGTH + 1][word.length() + 1];
+            fuzzyScan(merging, word, maxDistance, rows, collector, true);
+            fuzzyScan(delta, word, maxDistance, rows, collector, false);
+        }
+        return collector.scores;
+    }
+
+    private static void fuzzyScan(Map<String, Set<Long>> terms, String word, int maxDistance, int[][] rows,
+                                  Collector collector, boolean maskStale) {
+        for (Map.Entry<String, Set<Long>> entry : terms.entrySet()) {
+            if (entry.getKey().charAt(0) != word.charAt(0)) {
+                continue;
+            }
+            int distance = prefixDistance(entry.getKey(), word, maxDistance, rows);
+            if (distance > 0 && distance <= maxDistance) {
+                collector.addAll(entry.getValue(), CLASS_FUZZY - distance + 1, maskStale);
+            }
+        }
+    }
+
+    /**
+     * 在紧凑段中找出某个前缀与 word 的编辑距离不超过 maxDistance 的词条（距离为 0 的已由前缀匹配处理）。
+     * 与常见的搜索引擎做法一样，要求首字母正确，只遍历以它开头的词条。
+     * 词条的距离取所有前缀中的最小值，与 prefixDistance 一致：某个前缀距离为 2 时更长的前缀仍可能为 1，
+     * 只有距离已降到 1 或者更深的行不可能再满足要求时，才把整棵子树按当前距离处理。
+     */
+    private void fuzzyWalk(Segment segment, String word, int maxDistance, Collector collector) {
+        int[][] rows = new int[MAX_TERM_LENGTH + 1][word.length() + 1];
+        int[] rowMins = new int[MAX_TERM_LENGTH + 1];
+        // bestAt[depth]：长度 1..depth 的前缀与 word 的最小距离
+        int[] bestAt = new int[MAX_TERM_LENGTH + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            rows[0][j] = j;
+        }
+        bestAt[0] = Integer.MAX_VALUE;
+        // rows[0..validDepth] 和 bestAt[0..validDepth] 对应上一个处理过的词条的前缀
+        int previous = -1;
+        int validDepth = 0;
+        String first = word.substring(0, 1);
+        int i = segment.lowerBound(first);
+        int rangeEnd = segment.endOfPrefix(i, first);
+        while (i < rangeEnd && !collector.isFull()) {
+            int length = segment.termLength(i);
+            int depth = previous < 0 ? 0 : Math.min(validDepth, segment.commonPrefix(previous, i));
+            boolean wholeSubtree = false;
+            while (depth < length) {
+                char previousChar = depth > 0 ? segment.charAt(i, depth - 1) : 0;
+                rowMins[++depth] = fillRow(rows, depth, segment.charAt(i, depth - 1), previousChar, word);
+                bestAt[depth] = Math.min(bestAt[depth - 1], rows[depth][word.length()]);
+                // 距离 1 已是最高的容错等级：子树中更深的前缀即使距离为 0，对应的词条也已由前缀匹配以更高等级收集
+                if (bestAt[depth] <= 1 || canPrune(rowMins, depth, maxDistance)) {
+                    wholeSubtree = true;
+                    break;
+                }
+            }
+            previous = i;
+            validDepth = depth;
+            int distance = bestAt[depth];
+            int end = wholeSubtree ? segment.endOfPrefix(i, i, depth) : i + 1;
+            for (int k = i; k < end && distance > 0 && distance <= maxDistance && !collector.isFull(); k++) {
+                collector.addPostings(segment, k, CLASS_FUZZY - distance + 1);
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * term 的所有前缀与 word 的最小编辑距离，超过 maxDistance 时提前返回 maxDistance + 1
+     */
+    private static int prefixDistance(String term, String word, int maxDistance, int[][] rows) {
+        int[] rowMins = new int[term.length() + 1];
+        for (int j = 0; j <= word.length(); j++) {
+            rows[0][j] = j;
+        }
+        int best = word.length();
+        for (int depth = 1; depth <= term.length(); depth++) {
+            char previousChar = depth > 1 ? term.charAt(depth - 2) : 0;
+            rowMins[depth] = fillRow(rows, depth, term.charAt(depth - 1), previousChar, word);
+            best = Math.min(best, rows[depth][word.length()]);
+            if (canPrune(rowMins, depth, maxDistance)) {
+                break;
+            }
+        }
+        return Math.min(best, maxDistance + 1);
+    }
+
+    /**
+     * 计算编辑距离矩阵的第 depth 行（词条的前 depth 个字符对 word 的每个前缀）。
+     * 使用带相邻交换的编辑距离（OSA），“qilixaing” 这类输入顺序颠倒只算一次编辑。
+     * @return 该行的最小值
+     */
+    private static int fillRow(int[][] rows, int depth, char c, char previousChar, String word) {
+        int[] above = rows[depth - 1];
+        int[] row = rows[depth];
+        row[0] = depth;
+        int rowMin = depth;
+        for (int j = 1; j < row.length; j++) {
+            char w = word.charAt(j - 1);
+            int value = Math.min(Math.min(row[j - 1] + 1, above[j] + 1), above[j - 1] + (w == c ? 0 : 1));
+            if (depth > 1 && j > 1 && w == previousChar && word.charAt(j - 2) == c) {
+                value = Math.min(value, rows[depth - 2][j - 2] + 1);
+            }
+            row[j] = value;
+            rowMin = Math.min(rowMin, value);
+        }
+        return rowMin;
+    }
+
+    /**
+     * 后续的行只会比当前行和上一行（相邻交换）更大，两者都超出范围时任何更长的前缀都不可能匹配
+     */
+    private static boolean canPrune(int[] rowMins, int depth, int maxDistance) {
+        return rowMins[depth] > maxDistance && (depth < 2 || rowMins[depth - 1] >= maxDistance);
+    }
+
+    private void addToDelta(String term, long posting) {
+        if (delta.computeIfAbsent(term, key -> new HashSet<>(2)).add(posting)) {
+            deltaPostings++;
+        }
+    }
+
+    private void removeInternal(long id) {
+        List<String> terms = deltaTermsBySong.remove(id);
+        if (terms != null) {
+            for (String term : terms) {
+                Set<Long> postings = delta.get(term);
+                if (postings != null) {
+                    deltaPostings -= (postings.remove(id) ? 1 : 0) + (postings.remove(id | ARTIST_FLAG) ? 1 : 0);
+                    if (postings.isEmpty()) {
+                        delta.remove(term);
+                    }
+                }
+            }
+        }
+        // 旧段或正在归并的增量表中可能还有这首歌的倒排项
+        if (id <= maxIdInBase || mergingSongs.contains(id)) {
+            staleInBase.add(id);
+        }
+    }
+
+    private boolean mergeDue() {
+        return deltaPostings >= (bulkLoading ? bulkMergeThreshold : mergeThreshold);
+    }
+
+    /**
+     * 冻结当前增量表，在锁外与紧凑段归并成新段后替换。归并期间增量表又达到阈值时继续下一轮
+     * @param wait 已有归并在进行时是否等待它结束；不等待时由正在进行的归并在结束后检查
+     */
+    private void merge(boolean wait) {
+        if (wait) {
+            mergeLock.lock();
+        } else if (!mergeLock.tryLock()) {
+            return;
+        }
+        try {
+            boolean again = true;
+            while (again) {
+                Map<String, Set<Long>> frozen;
+                Set<Long> frozenStale;
+                int frozenPostings;
+                lock.writeLock().lock();
+                try {
+                    if (delta.isEmpty() && staleInBase.isEmpty()) {
+                        return;
+                    }
+                    frozen = delta;
+                    frozenStale = staleInBase;
+                    frozenPostings = deltaPostings;
+                    merging = frozen;
+                    mergingSongs = deltaTermsBySong.keySet();
+                    mergingStale = frozenStale;
+                    delta = new HashMap<>();
+                    deltaTermsBySong = new HashMap<>();
+                    deltaPostings = 0;
+                    staleInBase = new HashSet<>();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                // base 只由持有 mergeLock 的线程替换，冻结的增量表不再修改，构建新段不需要锁
+                long[] maxId = new long[1];
+                Segment merged = mergeSegment(base, frozen, frozenStale, frozenPostings, maxId);
+
+                lock.writeLock().lock();
+                try {
+                    // 归并期间记入 staleInBase 的歌曲在旧段或冻结的增量表中，现在都在新段中，继续有效
+                    base = merged;
+                    maxIdInBase = Math.max(maxId[0], maxIdInBase);
+                    merging = Map.of();
+                    mergingSongs = Set.of();
+                    mergingStale = Set.of();
+                    again = mergeDue() || (wait && !delta.isEmpty());
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * 把冻结的增量表归并进紧凑段，同时丢弃失效歌曲的倒排项。两边都有序，归并是线性的
+     * @param maxId 输出新段中最大的歌曲 ID
+     */
+    private static Segment mergeSegment(Segment old, Map<String, Set<Long>> frozen, Set<Long> stale,
+                                        int frozenPostings, long[] maxId) {
+        String[] terms = frozen.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        SegmentBuilder builder = new SegmentBuilder(old.size() + terms.length, old.postingCount() + frozenPostings);
+        maxId[0] = -1;
+        int i = 0;
+        int j = 0;
+        while (i < old.size() || j < terms.length) {
+            int compare = i >= old.size() ? 1 : j >= terms.length ? -1 : old.compareTo(i, terms[j]);
+            if (compare <= 0) {
+                builder.startTerm(old, i);
+                for (int p = old.postingStarts[i]; p < old.postingStarts[i + 1]; p++) {
+                    long posting = old.postings[p];
+                    if (stale.isEmpty() || !stale.contains(posting & ID_MASK)) {
+                        builder.addPosting(posting);
+                        maxId[0] = Math.max(maxId[0], posting & ID_MASK);
+                    }
+                }
+            } else {
+                builder.startTerm(terms[j]);
+            }
+            if (compare >= 0) {
+                Set<Long> postings = frozen.get(terms[j]);
+                long[] added = new long[postings.size()];
+                int count = 0;
+                for (Long posting : postings) {
+                    added[count++] = posting;
+                }
+                Arrays.sort(added);
+                for (long posting : added) {
+                    builder.addPosting(posting);
+                    maxId[0] = Math.max(maxId[0], posting & ID_MASK);
+                }
+            }
+            builder.endTerm();
+            if (compare <= 0) {
+                i++;
+            }
+            if (compare >= 0) {
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * 字段的拼音词条：整段全拼、含汉字时的首字母、多个词时每个词的全拼，长度截断到 MAX_TERM_LENGTH
+     */
+    static List<String> termsOf(String text) {
+        String normalized = NgramIndex.normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder full = new StringBuilder();
+        StringBuilder initials = new StringBuilder();
+        boolean hasHan = false;
+        String[] words = normalized.split(" ");
+        for (String word : words) {
+            StringBuilder wordFull = new StringBuilder();
+            boolean inRun = false;
+            for (int i = 0; i < word.length(); ) {
+                int codePoint = word.codePointAt(i);
+                i += Character.charCount(codePoint);
+                String syllable = Syllables.of(codePoint);
+                if (syllable != null) {
+                    wordFull.append(syllable);
+                    initials.append(syllable.charAt(0));
+                    hasHan = true;
+                    inRun = false;
+                } else {
+                    wordFull.appendCodePoint(codePoint);
+                    // 非汉字的连续字符只取第一个字母作首字母
+                    if (!inRun) {
+                        initials.appendCodePoint(codePoint);
+                    }
+                    inRun = true;
+                }
+            }
+            full.append(wordFull);
+            if (words.length > 1) {
+                terms.add(truncate(wordFull.toString()));
+            }
+        }
+        terms.add(truncate(full.toString()));
+        if (hasHan) {
+            terms.add(truncate(initials.toString()));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * 查询的每个词转成全拼
+     */
+    private static List<String> queryWordsOf(String query) {
+        String normalized = NgramIndex.normalize(query);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> words = new ArrayList<>();
+        for (String word : normalized.split(" ")) {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < word.length(); ) {
+                int codePoint = word.codePointAt(i);
+                i += Character.charCount(codePoint);
+                String syllable = Syllables.of(codePoint);
+                if (syllable != null) {
+                    builder.append(syllable);
+                } else {
+                    builder.appendCodePoint(codePoint);
+                }
+            }
+            words.add(truncate(builder.toString()));
+        }
+        return words;
+    }
+
+    private static String truncate(String term) {
+        return term.length() <= MAX_TERM_LENGTH ? term : term.substring(0, MAX_TERM_LENGTH);
+    }
+
+    /**
+     * 汉字到拼音（小写、无声调、ü 写作 v）的查找表，多音字取第一个读音
+     */
+    private static final class Syllables {
+        private static final int TABLE_START = 0x3400;
+        private static final int TABLE_END = 0x9FFF;
+        private static final String[] TABLE = buildTable();
+
+        static String of(int codePoint) {
+            return codePoint >= TABLE_START && codePoint <= TABLE_END ? TABLE[codePoint - TABLE_START] : null;
+        }
+
+        private static String[] buildTable() {
+            HanyuPinyinOutputFormat format = new HanyuPinyinOutputFormat();
+            format.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+            format.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+            format.setVCharType(HanyuPinyinVCharType.WITH_V);
+            String[] table = new String[TABLE_END - TABLE_START + 1];
+            try {
+                for (int codePoint = TABLE_START; codePoint <= TABLE_END; codePoint++) {
+                    String[] readings = PinyinHelper.toHanyuPinyinStringArray((char) codePoint, format);
+                    if (readings != null && readings.length > 0 && !readings[0].isEmpty()) {
+                        table[codePoint - TABLE_START] = readings[0].intern();
+                    }
+                }
+            } catch (BadHanyuPinyinOutputFormatCombination ex) {
+                throw new IllegalStateException(ex);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * 单个词的候选收集：每首歌保留最高分，达到上限后不再收集新的歌曲
+     */
+    private final class Collector {
+        private final int maxCandidates;
+        private final Map<Long, Integer> scores = new HashMap<>();
+
+        private Collector(int maxCandidates) {
+            this.maxCandidates = maxCandidates;
+        }
+
+        private boolean isFull() {
+            return scores.size() >= maxCandidates;
+        }
+
+        private void addPostings(Segment segment, int term, int matchClass) {
+            for (int p = segment.postingStarts[term]; p < segment.postingStarts[term + 1]; p++) {
+                long posting = segment.postings[p];
+                if (!isStale(posting) && (mergingStale.isEmpty() || !mergingStale.contains(posting & ID_MASK))) {
+                    add(posting, matchClass);
+                }
+            }
+        }
+
+        private void addAll(Set<Long> postings, int matchClass, boolean maskStale) {
+            for (long posting : postings) {
+                if (!maskStale || !isStale(posting)) {
+                    add(posting, matchClass);
+                }
+            }
+        }
+
+        private boolean isStale(long posting) {
+            return !staleInBase.isEmpty() && staleInBase.contains(posting & ID_MASK);
+        }
+
+        private void add(long posting, int matchClass) {
+            int score = matchClass * 2 + ((posting & ARTIST_FLAG) == 0 ? 1 : 0);
+            Long id = posting & ID_MASK;
+            Integer existing = scores.get(id);
+            if (existing == null) {
+                if (!isFull()) {
+                    scores.put(id, score);
+                }
+            } else if (score > existing) {
+                scores.put(id, score);
+            }
+        }
+    }
+
+    /**
+     * 有序、不可变的紧凑词条段
+     */
+    private static final class Segment {
+        private static final Segment EMPTY = new Segment(new char[0], new int[]{0}, new long[0], new int[]{0});
+
+        private final char[] chars;
+        private final int[] termStarts;
+        private final long[] postings;
+        private final int[] postingStarts;
+
+        private Segment(char[] chars, int[] termStarts, long[] postings, int[] postingStarts) {
+            this.chars = chars;
+            this.termStarts = termStarts;
+            this.postings = postings;
+            this.postingStarts = postingStarts;
+        }
+
+        private int size() {
+            return termStarts.length - 1;
+        }
+
+        private int postingCount() {
+            return postings.length;
+        }
+
+        private int termLength(int term) {
+            return termStarts[term + 1] - termStarts[term];
+        }
+
+        private char charAt(int term, int index) {
+            return chars[termStarts[term] + index];
+        }
+
+        private int compareTo(int term, String other) {
+            int length = termLength(term);
+            int start = termStarts[term];
+            int shared = Math.min(length, other.length());
+            for (int k = 0; k < shared; k++) {
+                int diff = chars[start + k] - other.charAt(k);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length - other.length();
+        }
+
+        private int commonPrefix(int a, int b) {
+            int limit = Math.min(termLength(a), termLength(b));
+            int startA = termStarts[a];
+            int startB = termStarts[b];
+            int k = 0;
+            while (k < limit && chars[startA + k] == chars[startB + k]) {
+                k++;
+            }
+            return k;
+        }
+
+        /**
+         * 第一个不小于 key 的词条
+         */
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareTo(mid, key) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * 从 from 开始第一个不以 prefix 开头的词条（from 必须以 prefix 开头或已越过该区间）
+         */
+        private int endOfPrefix(int from, String prefix) {
+            return gallop(from, index -> startsWith(index, prefix));
+        }
+
+        /**
+         * 从 from 开始第一个与词条 term 的前 length 个字符不同的词条
+         */
+        private int endOfPrefix(int from, int term, int length) {
+            return gallop(from, index -> termLength(index) >= length && commonPrefix(index, term) >= length);
+        }
+
+        /**
+         * 从 from 开始第一个不满足 inRange 的位置（inRange 在 from 之后单调）。
+         * 先按 1、2、4... 的步长试探再二分，跳过的区间通常很短，比整段二分查找快
+         */
+        private int gallop(int from, IntPredicate inRange) {
+            int low = from;
+            int step = 1;
+            int high = from;
+            while (high < size() && inRange.test(high)) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            high = Math.min(high, size());
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (inRange.test(mid)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private boolean startsWith(int term, String prefix) {
+            if (termLength(term) < prefix.length()) {
+                return false;
+            }
+            int start = termStarts[term];
+            for (int k = 0; k < prefix.length(); k++) {
+                if (chars[start + k] != prefix.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class SegmentBuilder {
+        private char[] chars;
+        private int charCount;
+        private int[] termStarts;
+        private int termCount;
+        private long[] postings;
+        private int postingCount;
+        private int[] postingStarts;
+        private int termPostingStart;
+
+        private SegmentBuilder(int expectedTerms, int expectedPostings) {
+            chars = new char[Math.max(16, expectedTerms * 12)];
+            termStarts = new int[expectedTerms + 1];
+            postings = new long[Math.max(16, expectedPostings)];
+            postingStarts = new int[expectedTerms + 1];
+        }
+
+        private void startTerm(Segment segment, int term) {
+            int length = segment.termLength(term);
+            ensureChars(length);
+            System.arraycopy(segment.chars, segment.termStarts[term], chars, charCount, length);
+            startTerm(length);
+        }
+
+        private void startTerm(String term) {
+            ensureChars(term.length());
+            term.getChars(0, term.length(), chars, charCount);
+            startTerm(term.length());
+        }
+
+        private void startTerm(int length) {
+            if (termCount + 1 >= termStarts.length) {
+                termStarts = Arrays.copyOf(termStarts, termStarts.length * 2);
+                postingStarts = Arrays.copyOf(postingStarts, postingStarts.length * 2);
+            }
+            termStarts[termCount] = charCount;
+            charCount += length;
+            termPostingStart = postingCount;
+        }
+
+        private void addPosting(long posting) {
+            if (postingCount == postings.length) {
+                postings = Arrays.copyOf(postings, postings.length * 2);
+            }
+            postings[postingCount++] = posting;
+        }
+
+        /**
+         * 没有倒排项的词条（对应的歌曲都已失效）直接丢弃
+         */
+        private void endTerm() {
+            if (postingCount == termPostingStart) {
+                charCount = termStarts[termCount];
+                return;
+            }
+            postingStarts[termCount] = termPostingStart;
+            termCount++;
+        }
+
+        private Segment build() {
+            int[] starts = Arrays.copyOf(termStarts, termCount + 1);
+            starts[termCount] = charCount;
+            int[] postingOffsets = Arrays.copyOf(postingStarts, termCount + 1);
+            postingOffsets[termCount] = postingCount;
+            return new Segment(Arrays.copyOf(chars, charCount), starts,
+                    Arrays.copyOf(postings, postingCount), postingOffsets);
+        }
+
+        private void ensureChars(int length) {
+            if (charCount + length > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + length));
+            }
+        }
+    }
+}
@@ -0,0 +1,556 @@
+package com.melodymix.backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 搜索框自动补全用的前缀树。补全项是歌曲的标题、歌手和专辑，权重为相关歌曲的收藏数之和（每首歌至少计 1）。
+ * <p>
+ * 每个节点预先保存其子树中权重最高的 k 个补全项，查询只需沿前缀走到对应节点，耗时与前缀长度成正比。
+ * 只有一个子节点、也没有补全项在此结束的节点（长文本的尾部大多如此）与子节点的 top-k 完全相同，
+ * 不单独保存，查询时沿单链走到第一个分叉的节点读取。
+ * 除了完整文本，每个词的起始位置也作为一条路径插入，输入 “story” 也能补全出 “Love Story”。
+ * 为控制内存，路径最多 maxDepth 个字符；更长的前缀在最深的节点上逐个过滤。
+ * 权重增加时只需沿路径把该补全项上浮；减少或删除时自底向上用子节点的 top-k 重新合并。
+ */
+public final class SuggestionTrie {
+
+    public enum Kind { TITLE, ARTIST, ALBUM }
+
+    public record Suggestion(String text, Kind kind) {
+    }
+
+    private static final Completion[] NO_COMPLETIONS = new Completion[0];
+    private static final Node[] NO_NODES = new Node[0];
+    private static final int[] NO_KEYS = new int[0];
+    // 只有一个子节点的节点共用的单元素 keys 数组（数组创建后不再修改）
+    private static final Map<Integer, int[]> SINGLE_KEYS = new ConcurrentHashMap<>();
+
+    private final int topK;
+    private final int maxDepth;
+    private final Node root = new Node();
+    // 按类型分开，以规范化文本为键，键直接使用 Completion.key，不另外拼接字符串
+    private final Map<String, Completion>[] completions = newCompletionMaps();
+    private final Map<Long, SongEntry> songs = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param topK 每个节点保留的补全项数量，即单次查询最多返回的数量
+     * @param maxDepth 路径的最大字符数
+     */
+    public SuggestionTrie(int topK, int maxDepth) {
+        this.topK = topK;
+        this.maxDepth = maxDepth;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Completion>[] newCompletionMaps() {
+        Map<String, Completion>[] maps = new Map[Kind.values().length];
+        for (int i = 0; i < maps.length; i++) {
+            maps[i] = new HashMap<>();
+        }
+        return maps;
+    }
+
+    /**
+     * 添加或替换一首歌曲，收藏数保持不变（新歌曲为 0）
+     */
+    public void putSong(long songId, String title, String artist, String album) {
+        putSong(songId, title, artist, album, -1);
+    }
+
+    /**
+     * 添加或替换一首歌曲并设置其收藏数，用于启动时批量构建
+     */
+    public void putSong(long songId, String title, String artist, String album, long likes) {
+        lock.writeLock().lock();
+        try {
+            SongEntry existing = songs.remove(songId);
+            if (existing != null) {
+                detach(existing);
+            }
+            if (likes < 0) {
+                likes = existing == null ? 0 : existing.likes;
+            }
+            SongEntry entry = new SongEntry(likes);
+            entry.parts[Kind.TITLE.ordinal()] = attachPart(entry, Kind.TITLE, title);
+            entry.parts[Kind.ARTIST.ordinal()] = attachPart(entry, Kind.ARTIST, artist);
+            entry.parts[Kind.ALBUM.ordinal()] = attachPart(entry, Kind.ALBUM, album);
+            songs.put(songId, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeSong(long songId) {
+        lock.writeLock().lock();
+        try {
+            SongEntry existing = songs.remove(songId);
+            if (existing != null) {
+                detach(existing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 调整歌曲的收藏数，该歌曲的标题、歌手、专辑补全项的权重随之变化
+     */
+    public void addLikes(long songId, long delta) {
+        lock.writeLock().lock();
+        try {
+            SongEntry entry = songs.get(songId);
+            if (entry == null || delta == 0) {
+                return;
+            }
+            long applied = Math.max(-entry.likes, delta);
+            entry.likes += applied;
+            for (Completion completion : entry.parts) {
+                if (completion != null) {
+                    adjust(completion, applied, 0);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return songs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 返回以 prefix 开头（或其中某个词以 prefix 开头）的补全项，按权重从高到低
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String query = NgramIndex.normalize(prefix);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int depth = 0;
+            for (int i = 0; i < query.length() && depth < maxDepth; depth++) {
+                int codePoint = query.codePointAt(i);
+                i += Character.charCount(codePoint);
+                node = node.child(codePoint);
+                if (node == null) {
+                    return List.of();
+                }
+            }
+
+            List<Suggestion> result = new ArrayList<>(Math.min(limit, topK));
+            if (query.codePointCount(0, query.length()) <= maxDepth) {
+                Completion[] top = node.effectiveTop();
+                for (int i = 0; i < top.length && result.size() < limit; i++) {
+                    result.add(top[i].toSuggestion());
+                }
+                return result;
+            }
+            // 前缀超过最大深度：最深的节点没有子节点，所有经过它的补全项都在 bucket 中，逐个过滤
+            Completion[] best = new Completion[Math.min(limit, topK)];
+            String wordStart = " " + query;
+            int found = 0;
+            for (int i = 0; i < node.bucketSize; i++) {
+                Completion candidate = node.bucket[i];
+                if (candidate.key.startsWith(query) || candidate.key.contains(wordStart)) {
+                    found = offer(best, found, candidate);
+                }
+            }
+            for (int i = 0; i < found; i++) {
+                result.add(best[i].toSuggestion());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 该字段对应的补全项，字段为空时返回 null
+     */
+    private Completion attachPart(SongEntry entry, Kind kind, String text) {
+        String key = text == null ? "" : NgramIndex.normalize(text);
+        if (key.isEmpty()) {
+            return null;
+        }
+        Completion completion = completions[kind.ordinal()].get(key);
+        if (completion == null) {
+            String trimmed = text.trim();
+            // 显示文本与规范化文本相同（中文标题大多如此）时共用同一个字符串
+            completion = new Completion(key, trimmed.equals(key) ? key : trimmed, kind);
+            completions[kind.ordinal()].put(key, completion);
+            insertPaths(completion);
+        }
+        adjust(completion, entry.likes + 1, 1);
+        return completion;
+    }
+
+    private void detach(SongEntry entry) {
+        for (Completion completion : entry.parts) {
+            if (completion != null) {
+                adjust(completion, -(entry.likes + 1), -1);
+            }
+        }
+    }
+
+    private void adjust(Completion completion, long weightDelta, int songDelta) {
+        completion.weight += weightDelta;
+        completion.songCount += songDelta;
+        if (completion.songCount <= 0) {
+            completions[completion.kind.ordinal()].remove(completion.key);
+            removePaths(completion);
+        } else if (weightDelta > 0) {
+            for (List<Node> path : pathsOf(completion, false)) {
+                for (Node node : path) {
+                    node.promote(completion, topK);
+                }
+            }
+        } else if (weightDelta < 0) {
+            refreshUpwards(completion, pathsOf(completion, false));
+        }
+    }
+
+    private void insertPaths(Completion completion) {
+        for (List<Node> path : pathsOf(completion, true)) {
+            path.get(path.size() - 1).addToBucket(completion, topK);
+        }
+    }
+
+    private void removePaths(Completion completion) {
+        List<List<Node>> paths = pathsOf(completion, false);
+        for (List<Node> path : paths) {
+            if (!path.isEmpty()) {
+                path.get(path.size() - 1).removeFromBucket(completion);
+            }
+        }
+        refreshUpwards(completion, paths);
+    }
+
+    /**
+     * 补全项权重减少或被删除后，自底向上重新合并各路径上节点的 top-k，并剪掉已经没有内容的节点；
+     * 补全项不在 top-k 中的节点不受影响。多条路径可能共用前面的节点，必须按深度统一处理，
+     * 逐条路径处理时共用的祖先会在另一条路径上的子节点更新之前合并，读到过时的 top-k。
+     */
+    private void refreshUpwards(Completion completion, List<List<Node>> paths) {
+        int depth = 0;
+        for (List<Node> path : paths) {
+            depth = Math.max(depth, path.size());
+        }
+        Set<Node> visited = new HashSet<>();
+        for (int i = depth - 1; i >= 0; i--) {
+            for (List<Node> path : paths) {
+                if (i >= path.size() || !visited.add(path.get(i))) {
+                    continue;
+                }
+                Node node = path.get(i);
+                if (node.isEmpty()) {
+                    (i > 0 ? path.get(i - 1) : root).removeChild(node);
+                } else if (!node.isPassThrough() && node.inTop(completion)) {
+                    node.recompute(topK);
+                }
+            }
+        }
+    }
+
+    /**
+     * 补全项的所有路径（完整文本 + 每个词的起始位置），每条路径是从第一层到末端的节点列表
+     */
+    private List<List<Node>> pathsOf(Completion completion, boolean create) {
+        List<List<Node>> paths = new ArrayList<>();
+        String key = completion.key;
+        for (int start = 0; start < key.length(); start++) {
+            if (start > 0 && key.charAt(start - 1) != ' ') {
+                continue;
+            }
+            List<Node> path = new ArrayList<>(maxDepth);
+            Node node = root;
+            for (int i = start; i < key.length() && path.size() < maxDepth; ) {
+                int codePoint = key.codePointAt(i);
+                i += Character.charCount(codePoint);
+                Node child = node.child(codePoint);
+                if (child == null) {
+                    if (!create) {
+                        break;
+                    }
+                    child = node.addChild(codePoint, topK);
+                }
+                node = child;
+                path.add(node);
+            }
+            paths.add(path);
+        }
+        return paths;
+    }
+
+    /**
+     * 把候选项放入按权重有序、容量固定的数组中，返回新的元素个数。同一补全项可能经由多条路径重复出现，需要去重。
+     */
+    private static int offer(Completion[] best, int size, Completion candidate) {
+        if (candidate.songCount <= 0) {
+            return size;
+        }
+        if (size == best.length && compare(candidate, best[size - 1]) >= 0) {
+            return size;
+        }
+        for (int i = 0; i < size; i++) {
+            if (best[i] == candidate) {
+                return size;
+            }
+        }
+        int index = size < best.length ? size++ : size - 1;
+        while (index > 0 && compare(candidate, best[index - 1]) < 0) {
+            best[index] = best[index - 1];
+            index--;
+        }
+        best[index] = candidate;
+        return size;
+    }
+
+    /**
+     * 权重高的在前，同权重按文本排序保证结果稳定
+     */
+    private static int compare(Completion a, Completion b) {
+        if (a.weight != b.weight) {
+            return a.weight > b.weight ? -1 : 1;
+        }
+        int byKey = a.key.compareTo(b.key);
+        return byKey != 0 ? byKey : a.kind.compareTo(b.kind);
+    }
+
+    private static final class Completion {
+        private final String key;
+        private final String text;
+        private final Kind kind;
+        private long weight;
+        private int songCount;
+
+        private Completion(String key, String text, Kind kind) {
+            this.key = key;
+            this.text = text;
+            this.kind = kind;
+        }
+
+        private Suggestion toSuggestion() {
+            return new Suggestion(text, kind);
+        }
+    }
+
+    private static final class SongEntry {
+        // 按 Kind 顺序的标题、歌手、专辑补全项，字段为空时为 null
+        private final Completion[] parts = new Completion[Kind.values().length];
+        private long likes;
+
+        private SongEntry(long likes) {
+            this.likes = likes;
+        }
+    }
+
+    private static final class Node {
+        // 子节点按字符有序存放，二分查找，比 HashMap 省内存。大部分节点只有一个子节点，
+        // 这时 keys 使用共享的单元素数组，children 直接是该子节点，不分配数组
+        private int[] keys = NO_KEYS;
+        private Object children = NO_NODES;
+        // 单链节点（见 isPassThrough）不保存，始终为空
+        private Completion[] top = NO_COMPLETIONS;
+        // 路径在此结束的补全项，按需扩容
+        private Completion[] bucket = NO_COMPLETIONS;
+        private int bucketSize;
+
+        private Node child(int codePoint) {
+            int index = Arrays.binarySearch(keys, codePoint);
+            return index >= 0 ? childAt(index) : null;
+        }
+
+        private int childCount() {
+            return children instanceof Node ? 1 : ((Node[]) children).length;
+        }
+
+        private Node childAt(int index) {
+            return children instanceof Node only ? only : ((Node[]) children)[index];
+        }
+
+        private Node[] childArray() {
+            return children instanceof Node only ? new Node[]{only} : (Node[]) children;
+        }
+
+        private void setChildren(int[] newKeys, Node[] newChildren) {
+            if (newChildren.length == 1) {
+                keys = SINGLE_KEYS.computeIfAbsent(newKeys[0], key -> new int[]{key});
+                children = newChildren[0];
+            } else {
+                keys = newKeys;
+                children = newChildren;
+            }
+        }
+
+        /**
+         * 只有一个子节点、没有补全项在此结束：top-k 与子节点相同，不单独保存
+         */
+        private boolean isPassThrough() {
+            return children instanceof Node && bucketSize == 0;
+        }
+
+        private Completion[] effectiveTop() {
+            Node node = this;
+            while (node.isPassThrough()) {
+                node = (Node) node.children;
+            }
+            return node.top;
+        }
+
+        private Node addChild(int codePoint, int topK) {
+            boolean wasPassThrough = isPassThrough();
+            int insertAt = -Arrays.binarySearch(keys, codePoint) - 1;
+            Node child = new Node();
+            Node[] current = childArray();
+            int[] newKeys = new int[keys.length + 1];
+            Node[] newChildren = new Node[current.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(current, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = codePoint;
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(current, insertAt, newChildren, insertAt + 1, current.length - insertAt);
+            setChildren(newKeys, newChildren);
+            if (wasPassThrough) {
+                // 开始分叉，需要保存自己的 top-k（新的子节点还是空的）
+                recompute(topK);
+            }
+            return child;
+        }
+
+        private void removeChild(Node child) {
+            Node[] current = childArray();
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == child) {
+                    int[] newKeys = new int[keys.length - 1];
+                    Node[] newChildren = new Node[current.length - 1];
+                    System.arraycopy(keys, 0, newKeys, 0, i);
+                    System.arraycopy(current, 0, newChildren, 0, i);
+                    System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+                    System.arraycopy(current, i + 1, newChildren, i, current.length - i - 1);
+                    if (newChildren.length == 0) {
+                        keys = NO_KEYS;
+                        children = NO_NODES;
+                    } else {
+                        setChildren(newKeys, newChildren);
+                    }
+                    if (isPassThrough()) {
+                        top = NO_COMPLETIONS;
+                    }
+                    return;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return childCount() == 0 && bucketSize == 0;
+        }
+
+        private boolean inTop(Completion completion) {
+            for (Completion existing : top) {
+                if (existing == completion) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void addToBucket(Completion completion, int topK) {
+            for (int i = 0; i < bucketSize; i++) {
+                if (bucket[i] == completion) {
+                    return;
+                }
+            }
+            boolean wasPassThrough = isPassThrough();
+            if (bucketSize == bucket.length) {
+                bucket = Arrays.copyOf(bucket, Math.max(2, bucketSize + (bucketSize >> 1)));
+            }
+            bucket[bucketSize++] = completion;
+            if (wasPassThrough) {
+                recompute(topK);
+            }
+        }
+
+        private void removeFromBucket(Completion completion) {
+            for (int i = 0; i < bucketSize; i++) {
+                if (bucket[i] == completion) {
+                    // 顺序无关，用最后一个元素填补空位
+                    bucket[i] = bucket[--bucketSize];
+                    bucket[bucketSize] = null;
+                    if (bucketSize == 0) {
+                        bucket = NO_COMPLETIONS;
+                    }
+                    if (isPassThrough()) {
+                        top = NO_COMPLETIONS;
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 权重增加：补全项可能进入或在 top-k 中上移，其它项不受影响
+         */
+        private void promote(Completion completion, int topK) {
+            if (isPassThrough()) {
+                return;
+            }
+            int index = 0;
+            while (index < top.length && top[index] != completion) {
+                index++;
+            }
+            if (index == top.length) {
+                if (top.length < topK) {
+                    top = Arrays.copyOf(top, top.length + 1);
+                } else if (compare(completion, top[top.length - 1]) >= 0) {
+                    return;
+                }
+                index = top.length - 1;
+            }
+            // 向前插入排序
+            while (index > 0 && compare(completion, top[index - 1]) < 0) {
+                top[index] = top[index - 1];
+                index--;
+            }
+            top[index] = completion;
+        }
+
+        /**
+         * 由 bucket 和子节点的 top-k 重新合并出本节点的 top-k（子节点必须已是最新）
+         */
+        private void recompute(int topK) {
+            if (isPassThrough()) {
+                top = NO_COMPLETIONS;
+                return;
+            }
+            Completion[] best = new Completion[topK];
+            int size = 0;
+            for (int i = 0; i < bucketSize; i++) {
+                size = offer(best, size, bucket[i]);
+            }
+            for (int i = 0, count = childCount(); i < count; i++) {
+                for (Completion completion : childAt(i).effectiveTop()) {
+                    size = offer(best, size, completion);
+                }
+            }
+            top = size == topK ? best : Arrays.copyOf(best, size);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.melodymix.backend.service;
+
+import com.melodymix.backend.dto.SongWaveformResponse;
+
+import java.util.Collection;
+
+/**
+ * 音频摄取：歌曲创建后在后台解析音频文件，得到精确时长、码率、标签和波形峰值。
+ */
+public interface AudioIngestionService {
+
+    /**
+     * 为歌曲登记一个摄取任务。应在创建歌曲的同一事务中调用，任务随事务一起提交。
+     */
+    void enqueue(Long songId);
+
+    /**
+     * 获取预先计算好的波形峰值
+     */
+    SongWaveformResponse getWaveform(Long songId);
+
+    /**
+     * 在当前事务中删除这些歌曲的波形数据和摄取任务（两张表都没有指向 songs 的外键）。应在删除歌曲的同一事务中调用
+     */
+    void removeDataOfSongs(Collection<Long> songIds);
+}
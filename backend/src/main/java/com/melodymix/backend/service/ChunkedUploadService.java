@@ -0,0 +1,33 @@
+package com.melodymix.backend.service;
+
+import com.melodymix.backend.dto.CreateUploadSessionRequest;
+import com.melodymix.backend.dto.UploadSessionResponse;
+import com.melodymix.backend.model.User;
+
+import java.io.InputStream;
+
+/**
+ * 可断点续传的分片上传：创建会话 -> 按偏移量并行 PUT 分片 -> 查询已提交偏移量 -> 完成。
+ */
+public interface ChunkedUploadService {
+
+    /**
+     * 创建会话。每个用户同时打开的会话数有上限，超出时抛出 IllegalArgumentException。
+     */
+    UploadSessionResponse createSession(CreateUploadSessionRequest request, User owner);
+
+    /**
+     * 写入一个分片。offset 必须是 chunkSize 的整数倍，分片长度必须等于 chunkSize（最后一片除外）。
+     * 会话一旦开始完成（或被中止、清理），之后的分片请求都按会话不存在处理。
+     */
+    UploadSessionResponse writeChunk(String uploadId, long offset, InputStream body, User owner);
+
+    UploadSessionResponse getSession(String uploadId, User owner);
+
+    /**
+     * 所有分片到齐后把文件纳入存储，返回文件访问 URL。
+     */
+    String completeSession(String uploadId, User owner);
+
+    void abortSession(String uploadId, User owner);
+}
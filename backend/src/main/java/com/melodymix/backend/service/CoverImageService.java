@@ -0,0 +1,40 @@
+package com.melodymix.backend.service;
+
+import java.nio.file.Path;
+
+/**
+ * 封面图片的多尺寸缩略图（渐进式 JPEG）。
+ * 缩略图与原图存放在同一目录，文件名为 {原文件名}_{尺寸}.jpg，原图不变。
+ * 缩略图本身不能再作为原图生成缩略图，否则 abc_64.jpg?size=64 会生成 abc_64_64.jpg，如此无限叠加。
+ */
+public interface CoverImageService {
+
+    /**
+     * 在后台线程池中为封面原图生成所有预设尺寸的缩略图，已存在的尺寸会跳过。
+     */
+    void generateDerivativesAsync(Path original);
+
+    /**
+     * 文件名是否是缩略图（{原文件名}_{预设尺寸}.jpg）
+     * @return 缩略图对应原图去掉扩展名后的文件名；不是缩略图时返回 null
+     */
+    String getDerivativeBaseName(String fileName);
+
+    /**
+     * 计算指定尺寸缩略图应在的路径（向上取整到最近的预设尺寸），不访问磁盘
+     */
+    Path getDerivativePath(Path original, int requestedSize);
+
+    /**
+     * 获取指定尺寸的缩略图。请求的尺寸会向上取整到最近的预设尺寸；
+     * 缩略图尚未生成（例如后台任务还没跑完，或是旧数据）时同步生成。
+     * @throws IllegalArgumentException original 本身是缩略图
+     * @return 缩略图路径；原图无法解码时返回原图本身
+     */
+    Path getDerivative(Path original, int requestedSize);
+
+    /**
+     * 删除原图对应的所有缩略图
+     */
+    void deleteDerivatives(Path original);
+}
@@ -0,0 +1,14 @@
+package com.melodymix.backend.service;
+
+/**
+ * 延迟到事务提交之后执行的文件删除（事务性 outbox）。
+ */
+public interface FileDeletionService {
+
+    /**
+     * 在当前事务中登记待删除的文件。事务提交后由后台任务删除，失败会按退避策略重试；
+     * 事务回滚时登记一并撤销。
+     * @param fileUrl 文件 URL，为空时忽略
+     */
+    void scheduleDeletion(String fileUrl);
+}
@@ -1,7 +1,12 @@
 package com.melodymix.backend.service;
 
+import com.melodymix.backend.dto.StoredFileResponse;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
 
 public interface FileStorageService {
     // ✅ 新增：通用的文件存储方法
@@ -11,7 +16,79 @@ public interface FileStorageService {
 
     String storeCoverFile(MultipartFile file); // 保持原有
 
-    boolean deleteFile(String fileUrl);
+    /**
+     * 直接从请求体输入流存储文件（不经过 multipart 临时文件），一次读取同时计算 SHA-256 和大小。
+     * @param contentType 文件 MIME 类型，audio/* 存入歌曲目录，image/* 存入封面目录
+     * @param originalFilename 原始文件名（可选），用于确定扩展名
+     */
+    StoredFileResponse storeFile(InputStream inputStream, String contentType, String originalFilename);
+
+    /**
+     * 在与最终存储目录相同的文件系统上创建一个临时文件，供分片上传等需要先落盘再入库的场景使用。
+     * @param contentType 文件 MIME 类型，用于决定歌曲 / 封面目录
+     */
+    Path createTempFile(String contentType);
+
+    /**
+     * 把已完整写入的临时文件纳入内容寻址存储，临时文件会被移动或删除。
+     * @return 文件的完整访问 URL
+     */
+    String storeTempFile(Path tempFile, String contentType, String originalFilename);
+
+    /**
+     * 按 URL 删除文件，规则同 {@link #deleteIfUnreferenced(Path)}
+     */
+    DeletionResult deleteFile(String fileUrl);
+
+    /**
+     * 删除存储目录中的文件（连同封面缩略图和哈希索引），前提是没有任何歌曲仍引用它，
+     * 并且文件在 file.deletion.grace-period 之内没有被修改过（刚上传或刚被重复上传复用）。
+     * @throws com.melodymix.backend.exception.FileOperationException 文件系统错误，调用方可以稍后重试
+     */
+    DeletionResult deleteIfUnreferenced(Path file);
+
+    /**
+     * 删除的结果
+     * @param deleted 是否真正删除了文件
+     * @param retryAt 文件仍在宽限期内而暂不删除时为宽限期结束的时间，调用方应在此之后再试；
+     *                已删除、仍被引用或文件不存在时为 null
+     */
+    record DeletionResult(boolean deleted, Instant retryAt) {
+
+        public static final DeletionResult DELETED = new DeletionResult(true, null);
+        public static final DeletionResult KEPT = new DeletionResult(false, null);
+
+        public static DeletionResult deferredUntil(Instant retryAt) {
+            return new DeletionResult(false, retryAt);
+        }
+
+        public boolean deferred() {
+            return retryAt != null;
+        }
+    }
+
+    /**
+     * 歌曲和封面的存储根目录，供孤儿文件回收等后台任务遍历
+     */
+    List<Path> getStorageLocations();
 
     Path getFileByUrl(String fileUrl);
+
+    /**
+     * 根据 URL 中的分类（songs / covers）和相对路径定位已存储的文件。包含路径遍历检查。
+     * @return 文件路径；分类未知或路径越界时返回 null
+     */
+    Path resolveStoredFile(String category, String relativePath);
+
+    /**
+     * 从文件名推导内容标识，不访问磁盘。内容寻址文件 ({hash}.ext) 返回哈希，
+     * 封面缩略图 ({hash}_{size}.jpg) 返回 {hash}_{size}；其它文件名返回 null。
+     */
+    String getContentTagFromName(Path file);
+
+    /**
+     * 获取文件的内容标识，用作强 ETag。文件名无法推导时（内容寻址之前上传的旧文件），
+     * 只在第一次访问时计算 SHA-256，结果保存在存储目录下的 .sha256 索引中。
+     */
+    String getContentTag(Path file);
 }
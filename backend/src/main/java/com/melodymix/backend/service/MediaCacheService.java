@@ -0,0 +1,27 @@
+package com.melodymix.backend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * 热点媒体文件（主要是封面）的进程内缓存，内容保存在堆外内存中。
+ * 仅在 file.cache.enabled=true 时启用。
+ */
+public interface MediaCacheService {
+
+    /**
+     * 返回缓存中的文件内容；未命中时，文件足够小且近期被多次访问才读入缓存后返回。
+     * @return 缓存的文件内容；文件过大或访问频率不足、不适合缓存时返回 null，调用方直接从文件输出
+     */
+    CachedMedia getOrLoad(Path file) throws IOException;
+
+    void invalidate(Path file);
+
+    /**
+     * @param content 文件内容（堆外内存）
+     * @param lastModified 文件最后修改时间（毫秒）
+     */
+    record CachedMedia(ByteBuffer content, long lastModified) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.melodymix.backend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface MediaStreamingService {
+
+    /**
+     * 将本地文件写入 HTTP 响应，支持 Range / If-Range、多段字节范围以及 206 Partial Content。
+     * 上传的文件一经写入不再改变，响应会带上强 ETag 和长期有效的 immutable 缓存头。
+     * @param file 要输出的文件（已通过 FileStorageService 做过路径安全检查）
+     * @param etag 文件内容标识（不含引号），见 FileStorageService#getContentTag
+     * @param immutable 该 URL 以后是否总是返回同样的内容；为 false 时（例如缩略图生成失败、临时用原图代替）
+     *                  改为 no-cache，客户端每次都要重新校验
+     * @param request 当前请求
+     * @param response 当前响应
+     */
+    void streamFile(Path file, String etag, boolean immutable, HttpServletRequest request, HttpServletResponse response)
+            throws IOException;
+
+    /**
+     * 如果请求的 If-None-Match 与 etag 匹配，直接写出 304 响应（不访问文件）。
+     * @return 是否已经写出 304
+     */
+    boolean checkNotModified(String etag, HttpServletRequest request, HttpServletResponse response);
+}
@@ -0,0 +1,13 @@
+package com.melodymix.backend.service;
+
+/**
+ * 回收存储目录中没有任何歌曲引用的孤儿文件（例如上传后没有创建歌曲的文件）。
+ */
+public interface OrphanFileService {
+
+    /**
+     * 执行一步增量回收：最多检查 file.gc.files-per-run 个文件，下次调用从上次停下的位置继续。
+     * @return 本次回收（dry-run 模式下为本应回收）的文件数
+     */
+    int sweep();
+}
@@ -1,40 +1,93 @@
 package com.melodymix.backend.service;
 
-import com.melodymix.backend.model.Playlist;
+import com.melodymix.backend.dto.CursorSlice;
+import com.melodymix.backend.dto.PlaylistBatchOperation;
+import com.melodymix.backend.dto.PlaylistBatchResponse;
+import com.melodymix.backend.dto.PlaylistSummary;
+import com.melodymix.backend.dto.PlaylistTrack;
+import com.melodymix.backend.model.Song;
 import com.melodymix.backend.model.User;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional; // 1. 新增导入
 
 public interface PlaylistService {
+    // 读接口和增删改的返回值都是 DTO，在事务内组装完毕，序列化时不再触发懒加载
+
     // 创建播放列表
-    Playlist createPlaylist(String name, String description, User owner);
+    PlaylistSummary createPlaylist(String name, String description, User owner);
+
+    // 获取用户的所有播放列表（只带歌曲数，一条 SQL）
+    List<PlaylistSummary> getPlaylistsByUser(User user);
+
+    /**
+     * 向播放列表添加歌曲，同一首歌可以添加多次
+     * @param afterEntryId 插入到这一项之后；null 表示追加到末尾，0 表示插入到最前面
+     */
+    PlaylistSummary addSongToPlaylist(Long playlistId, Long songId, Long afterEntryId, User user);
+
+    /**
+     * 移动播放列表中的一项，只更新这一项的位置
+     * @param afterEntryId 移动到这一项之后；null 或 0 表示移动到最前面
+     * @throws jakarta.persistence.EntityNotFoundException 播放列表或其中的项不存在
+     */
+    void moveEntry(Long playlistId, Long entryId, Long afterEntryId, User currentUser);
 
-    // 获取用户的所有播放列表
-    List<Playlist> getPlaylistsByUser(User user);
+    /**
+     * 移除播放列表中的一项（同一首歌的其它项保留）
+     */
+    void removeEntry(Long playlistId, Long entryId, User currentUser);
 
-    // 向播放列表添加歌曲
-    Playlist addSongToPlaylist(Long playlistId, Long songId, User user);
+    /**
+     * 在一个事务中按顺序执行一批添加 / 移除 / 移动操作。单个操作无效（歌曲或项不存在等）时只记录为失败，
+     * 其余操作照常执行
+     * @throws jakarta.persistence.EntityNotFoundException 播放列表不存在
+     * @throws org.springframework.security.access.AccessDeniedException 不是播放列表的所有者
+     */
+    PlaylistBatchResponse applyBatch(Long playlistId, List<PlaylistBatchOperation> operations, User currentUser);
 
     // 删除播放列表
     void deletePlaylist(Long playlistId, User currentUser);
 
     // 更新播放列表
-    Playlist updatePlaylist(Long playlistId, String newName, String newDescription, User currentUser);
+    PlaylistSummary updatePlaylist(Long playlistId, String newName, String newDescription, User currentUser);
 
     // --- 2. 新增方法声明 ---
     /**
-     * 根据ID获取播放列表
+     * 根据ID获取播放列表的概要（歌曲数、总时长），歌曲用 {@link #getPlaylistTracks} 分页获取
      * @param playlistId 播放列表的ID
-     * @return 返回一个包含播放列表的 Optional，如果未找到则为空
+     * @throws jakarta.persistence.EntityNotFoundException 播放列表不存在
      */
-    Optional<Playlist> getPlaylistById(Long playlistId);
+    PlaylistSummary getPlaylistById(Long playlistId);
 
     /**
-     * 从播放列表中移除一首歌曲
+     * 键集分页获取播放列表中的项（按播放列表中的顺序），只读 (playlist_id, position, id) 索引上的一段
+     * @param cursor 上一页返回的 nextCursor，第一页传 null
+     */
+    CursorSlice<PlaylistTrack> getPlaylistTracks(Long playlistId, String cursor, int size);
+
+    /**
+     * 同 {@link #getPlaylistTracks}，只返回歌曲
+     */
+    CursorSlice<Song> getPlaylistSongs(Long playlistId, String cursor, int size);
+
+    /**
+     * 从播放列表中移除一首歌曲（出现多次时全部移除）
      * @param playlistId 播放列表的ID
      * @param songId 要移除的歌曲ID
      * @param currentUser 当前操作的用户，用于权限验证
      */
     void removeSongFromPlaylist(Long playlistId, Long songId, User currentUser);
+
+    /**
+     * 在当前事务中删除这些歌曲的播放列表项（最多 limit 项），同时扣减所在播放列表的歌曲数和总时长。
+     * 供删除歌曲时按块清理
+     * @return 删除的项数，小于 limit 说明已经清理完
+     */
+    int removeEntriesOfSongs(Collection<Long> songIds, int limit);
+
+    /**
+     * 在当前事务中按歌曲时长的变化调整包含这首歌的播放列表的总时长
+     */
+    void applySongDurationChange(Long songId, Integer oldDuration, Integer newDuration);
 }
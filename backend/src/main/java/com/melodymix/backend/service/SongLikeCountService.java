@@ -0,0 +1,21 @@
+package com.melodymix.backend.service;
+
+/**
+ * 歌曲收藏数（songs.like_count）的写后缓冲。收藏 / 取消收藏只累加内存计数，
+ * 定期把各歌曲的净增量批量写回数据库；进程崩溃丢失的增量由对账任务按 user_liked_songs 修正。
+ */
+public interface SongLikeCountService {
+
+    /**
+     * 把内存中累计的增量批量写入数据库，写入失败的增量放回缓冲等待下次重试
+     * @return 更新的歌曲数
+     */
+    int flush();
+
+    /**
+     * 按 user_liked_songs 重新计算全部歌曲的收藏数（按 ID 分段，每段一条 UPDATE）。
+     * 同一时间只有一个节点执行，其他节点调用时直接返回 0
+     * @return 被修正的歌曲数
+     */
+    int reconcile();
+}
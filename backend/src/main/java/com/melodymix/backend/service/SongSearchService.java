@@ -0,0 +1,17 @@
+package com.melodymix.backend.service;
+
+import com.melodymix.backend.model.Song;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * 歌曲搜索。具体实现由 search.mode 配置选择：
+ * memory（进程内 n-gram 索引）、fuzzy（memory + 拼音和容错匹配）、fulltext（MySQL FULLTEXT 索引）或 like（数据库 LIKE 查询）。
+ */
+public interface SongSearchService {
+
+    /**
+     * 在标题（以及实现支持时的歌手、专辑）中搜索关键词
+     */
+    Page<Song> search(String keyword, Pageable pageable);
+}
@@ -1,26 +1,57 @@
 package com.melodymix.backend.service;
 
 import com.melodymix.backend.dto.CreateSongRequest;
+import com.melodymix.backend.dto.CursorSlice;
+import com.melodymix.backend.dto.SongFilterRequest;
 import com.melodymix.backend.model.Song;
+import com.melodymix.backend.pagination.SongSort;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
 
 public interface SongService {
 
     Song createSong(CreateSongRequest request);
 
     // ✅ 新增：更新歌曲方法
+    // 音频摄取完成（已解析出码率）后时长由服务端决定，请求中的时长与当前值不同时抛出 IllegalArgumentException
     Song updateSong(Long songId, CreateSongRequest request);
 
     Page<Song> getAllSongs(Pageable pageable);
 
     Page<Song> searchSongsByTitle(String title, Pageable pageable);
 
+    /**
+     * 键集分页浏览全部歌曲，适合无限滚动：不统计总数，深翻页和第一页代价相同
+     * @param cursor 上一页返回的 nextCursor，第一页传 null
+     * @throws IllegalArgumentException 游标无效或与排序方式不匹配
+     */
+    CursorSlice<Song> getSongsAfter(SongSort sort, String cursor, int size);
+
+    /**
+     * 按歌手、专辑、发行日期范围、时长范围多条件筛选并排序。只接受有联合索引支撑的组合；
+     * 关键词 q 交给搜索索引，按相关度排序
+     * @param pageable 只使用页码和页大小，排序由 filter 决定
+     * @return 不统计总数，只返回是否还有下一页
+     * @throws IllegalArgumentException 参数非法或组合没有索引支撑
+     */
+    Slice<Song> filterSongs(SongFilterRequest filter, Pageable pageable);
+
     // ✅ 修正：deleteSong 方法的返回类型 (之前是Song，通常删除是返回void或被删除的实体用于确认)
     // 根据上下文，如果 Controller 需要处理文件删除，返回 Song 是合理的，但通常 void 即可
     // 如果需要返回被删除的歌曲信息以便 Controller 处理文件删除，则 Song 是合适的。
     void deleteSong(Long songId); // 通常删除返回 void
 
+    /**
+     * 批量删除歌曲。播放列表和收藏中的关联行先按块删除（每块一个短事务），
+     * 最后一个事务删除剩余关联行和歌曲本身，耗时与歌曲被多少播放列表 / 用户引用基本无关。
+     * 只清理调用时仍存在的歌曲的关联行。整个操作不是原子的：中途失败时，已提交的块中删除的关联行不会恢复
+     * @return 实际删除的歌曲数，不存在的 ID 被忽略
+     */
+    int deleteSongs(Collection<Long> songIds);
+
     // ✅ 新增：根据ID获取歌曲
     Song getSongById(Long songId);
 }
@@ -0,0 +1,18 @@
+package com.melodymix.backend.service;
+
+import com.melodymix.backend.dto.SongSuggestion;
+
+import java.util.List;
+
+/**
+ * 搜索框自动补全
+ */
+public interface SongSuggestionService {
+
+    /**
+     * @param prefix 用户已输入的前缀
+     * @param limit 返回数量，为 null 时使用配置的最大值
+     * @return 补全项；前缀树实现按收藏数加权排序，索引尚未构建完成时返回空列表
+     */
+    List<SongSuggestion> suggest(String prefix, Integer limit);
+}
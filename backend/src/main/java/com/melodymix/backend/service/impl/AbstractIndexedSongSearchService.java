@@ -0,0 +1,60 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.search.NgramIndex;
+import com.melodymix.backend.service.SongSearchService;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 基于进程内索引的搜索（memory / fuzzy 模式）：索引构建完成前退回数据库 LIKE 查询，
+ * 之后按索引给出的顺序加载当前页的歌曲。
+ */
+public abstract class AbstractIndexedSongSearchService extends AbstractSongIndexService implements SongSearchService {
+
+    protected AbstractIndexedSongSearchService(SongRepository songRepository, PlatformTransactionManager transactionManager,
+                                               int buildBatchSize, String threadName, String description) {
+        super(songRepository, transactionManager, buildBatchSize, threadName, description);
+    }
+
+    /**
+     * 按相关度排序的一页歌曲 ID 和总数
+     */
+    protected abstract NgramIndex.SearchResult searchIndex(String keyword, int offset, int limit);
+
+    @Override
+    public Page<Song> search(String keyword, Pageable pageable) {
+        if (!isReady()) {
+            return songRepository.findByTitleContainingIgnoreCase(keyword, pageable);
+        }
+        // 结果按相关度排序，忽略 pageable 中的排序字段
+        NgramIndex.SearchResult result = searchIndex(keyword, (int) pageable.getOffset(), pageable.getPageSize());
+        if (result.ids().length == 0) {
+            return new PageImpl<>(List.of(), pageable, result.total());
+        }
+
+        List<Long> ids = new ArrayList<>(result.ids().length);
+        for (long id : result.ids()) {
+            ids.add(id);
+        }
+        Map<Long, Song> songsById = songRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Song::getId, Function.identity()));
+        List<Song> songs = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Song song = songsById.get(id);
+            if (song != null) {
+                songs.add(song);
+            }
+        }
+        return new PageImpl<>(songs, pageable, result.total());
+    }
+}
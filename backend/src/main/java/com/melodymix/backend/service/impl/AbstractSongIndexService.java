@@ -0,0 +1,191 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.event.SongChangedEvent;
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.repository.SongRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 由全部歌曲构建的进程内索引（搜索索引、自动补全）的公共部分：启动完成后在独立线程中按 ID 分批加载全部歌曲，
+ * 之后通过 SongChangedEvent 在事务提交后增量维护。构建完成前 {@link #isReady()} 为 false。
+ * 每个实例各自持有一份，只能感知本实例上的修改。
+ * <p>
+ * 构建期间收到的修改先缓冲起来，全部歌曲加载完成后按收到的顺序重放：某一批歌曲被读出之后才提交的修改
+ * 如果直接写入索引，会被这一批读到的旧数据覆盖。构建从主库读取（非只读事务），不受副本延迟影响。
+ * <p>
+ * 读取失败（数据库暂时不可用等）时清空索引，按指数退避从头重新构建；每次重新构建开始时丢弃已缓冲的修改，
+ * 缓冲区只保存最近一次构建开始之后的修改。
+ */
+@Slf4j
+public abstract class AbstractSongIndexService {
+
+    // 构建失败后的重试间隔，每次失败翻倍，最多约 5 分钟
+    private static final Duration BUILD_RETRY_DELAY = Duration.ofSeconds(5);
+    private static final int MAX_RETRY_DOUBLINGS = 6;
+
+    protected final SongRepository songRepository;
+    private final TransactionTemplate primaryReads;
+    private final int buildBatchSize;
+    private final String threadName;
+    private final String description;
+
+    private volatile boolean ready;
+    // 构建完成前收到的修改，构建结束后重放；重放之后（或放弃构建后）置为 null，修改直接写入索引
+    private final Object pendingLock = new Object();
+    private List<Runnable> pendingChanges = new ArrayList<>();
+
+    /**
+     * @param threadName 构建线程名
+     * @param description 日志中的索引名称
+     */
+    protected AbstractSongIndexService(SongRepository songRepository, PlatformTransactionManager transactionManager,
+                                       int buildBatchSize, String threadName, String description) {
+        this.songRepository = songRepository;
+        this.primaryReads = new TransactionTemplate(transactionManager);
+        this.primaryReads.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.buildBatchSize = buildBatchSize;
+        this.threadName = threadName;
+        this.description = description;
+    }
+
+    /**
+     * 添加或替换一首歌曲
+     */
+    protected abstract void putSong(long id, String title, String artist, String album);
+
+    protected abstract void removeSong(long id);
+
+    /**
+     * 丢弃索引中的全部内容，构建失败后重新构建之前调用。此时修改都在缓冲，不会与其他线程并发写入
+     */
+    protected abstract void resetIndex();
+
+    /**
+     * 索引中的歌曲数，用于日志
+     */
+    protected abstract int indexedSongs();
+
+    /**
+     * 构建时加载到的每首歌曲，默认按 {@link #putSong} 添加。在构建读取的事务中调用
+     */
+    protected void indexSong(Song song) {
+        putSong(song.getId(), song.getTitle(), song.getArtist(), song.getAlbum());
+    }
+
+    /**
+     * 开始加载歌曲之前调用，在构建读取的事务中执行
+     */
+    protected void beforeBuild() {
+    }
+
+    /**
+     * 全部歌曲加载完成、重放构建期间的修改之前调用
+     */
+    protected void afterBuild() {
+    }
+
+    protected boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 把一次修改应用到索引；构建完成前先缓冲，构建结束后按顺序重放
+     */
+    protected void applyChange(Runnable change) {
+        synchronized (pendingLock) {
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+                return;
+            }
+        }
+        change.run();
+    }
+
+    /**
+     * 启动完成后在独立线程中构建，不阻塞启动流程
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBuild() {
+        Thread.ofPlatform().name(threadName).daemon().start(this::build);
+    }
+
+    /**
+     * 构建失败时记录日志并在退避之后从头重试，直到成功；期间搜索一直使用各自的降级方式
+     */
+    private void build() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                buildOnce();
+                return;
+            } catch (RuntimeException ex) {
+                Duration delay = BUILD_RETRY_DELAY.multipliedBy(1L << Math.min(attempt - 1, MAX_RETRY_DOUBLINGS));
+                log.error("{}构建失败（第 {} 次）, {} 秒后重试", description, attempt, delay.toSeconds(), ex);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    // 放弃构建（应用正在关闭），索引不会再就绪，不再缓冲修改
+                    Thread.currentThread().interrupt();
+                    synchronized (pendingLock) {
+                        pendingChanges = null;
+                    }
+                    return;
+                }
+            }
+            resetIndex();
+        }
+    }
+
+    /**
+     * 按 ID 分批加载全部歌曲
+     */
+    private void buildOnce() {
+        long start = System.currentTimeMillis();
+        // 在此之前提交的修改都会被下面的读取看到，不需要重放
+        synchronized (pendingLock) {
+            pendingChanges.clear();
+        }
+        primaryReads.executeWithoutResult(status -> beforeBuild());
+        long[] lastId = {0};
+        while (true) {
+            List<Song> batch = primaryReads.execute(status -> {
+                List<Song> songs = songRepository.findByIdGreaterThanOrderByIdAsc(lastId[0], PageRequest.of(0, buildBatchSize));
+                songs.forEach(this::indexSong);
+                return songs;
+            });
+            if (batch.size() < buildBatchSize) {
+                break;
+            }
+            lastId[0] = batch.get(batch.size() - 1).getId();
+        }
+        afterBuild();
+        int replayed;
+        synchronized (pendingLock) {
+            replayed = pendingChanges.size();
+            pendingChanges.forEach(Runnable::run);
+            pendingChanges = null;
+        }
+        ready = true;
+        log.info("{}构建完成: {} 首歌曲, 重放构建期间的修改 {} 个, 耗时 {} ms",
+                description, indexedSongs(), replayed, System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongChanged(SongChangedEvent event) {
+        if (event.deleted()) {
+            applyChange(() -> removeSong(event.songId()));
+        } else {
+            applyChange(() -> putSong(event.songId(), event.title(), event.artist(), event.album()));
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.audio.AudioMetadata;
+import com.melodymix.backend.audio.AudioMetadataExtractor;
+import com.melodymix.backend.dto.SongWaveformResponse;
+import com.melodymix.backend.exception.FileOperationException;
+import com.melodymix.backend.model.IngestionJob;
+import com.melodymix.backend.model.IngestionStatus;
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.model.SongWaveform;
+import com.melodymix.backend.repository.IngestionJobRepository;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.repository.SongWaveformRepository;
+import com.melodymix.backend.service.AudioIngestionService;
+import com.melodymix.backend.service.FileStorageService;
+import com.melodymix.backend.service.PlaylistService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Service
+public class AudioIngestionServiceImpl implements AudioIngestionService {
+
+    private final IngestionJobRepository ingestionJobRepository;
+    private final SongRepository songRepository;
+    private final SongWaveformRepository songWaveformRepository;
+    private final FileStorageService fileStorageService;
+    private final PlaylistService playlistService;
+    private final AudioMetadataExtractor audioMetadataExtractor;
+    private final ThreadPoolTaskExecutor ingestionExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration staleTimeout;
+
+    private final Timer ingestionTimer;
+    private final AtomicLong filesSinceReport = new AtomicLong();
+    private final AtomicLong busyNanosSinceReport = new AtomicLong();
+
+    public AudioIngestionServiceImpl(
+            IngestionJobRepository ingestionJobRepository,
+            SongRepository songRepository,
+            SongWaveformRepository songWaveformRepository,
+            FileStorageService fileStorageService,
+            PlaylistService playlistService,
+            AudioMetadataExtractor audioMetadataExtractor,
+            @Qualifier("ingestionExecutor") ThreadPoolTaskExecutor ingestionExecutor,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${audio.ingestion.max-attempts}") int maxAttempts,
+            @Value("${audio.ingestion.retry-delay}") Duration retryDelay,
+            @Value("${audio.ingestion.stale-timeout}") Duration staleTimeout) {
+        this.ingestionJobRepository = ingestionJobRepository;
+        this.songRepository = songRepository;
+        this.songWaveformRepository = songWaveformRepository;
+        this.fileStorageService = fileStorageService;
+        this.playlistService = playlistService;
+        this.audioMetadataExtractor = audioMetadataExtractor;
+        this.ingestionExecutor = ingestionExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.staleTimeout = staleTimeout;
+        this.ingestionTimer = Timer.builder("melodymix.ingestion.duration")
+                .description("单个音频文件的摄取耗时")
+                .register(meterRegistry);
+    }
+
+    @Override
+    @Transactional
+    public void enqueue(Long songId) {
+        ingestionJobRepository.save(IngestionJob.builder()
+                .songId(songId)
+                .status(IngestionStatus.PENDING)
+                .attempts(0)
+                .availableAt(LocalDateTime.now())
+                .build());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SongWaveformResponse getWaveform(Long songId) {
+        SongWaveform waveform = songWaveformRepository.findById(songId)
+                .orElseThrow(() -> new EntityNotFoundException("歌曲 " + songId + " 的波形数据尚未生成"));
+        byte[] peaks = waveform.getPeaks();
+        int[] values = new int[peaks.length];
+        for (int i = 0; i < peaks.length; i++) {
+            values[i] = peaks[i] & 0xFF;
+        }
+        return SongWaveformResponse.builder()
+                .songId(songId)
+                .peaks(values)
+                .build();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void removeDataOfSongs(Collection<Long> songIds) {
+        songWaveformRepository.deleteAllByIdInBatch(songIds);
+        // 正在处理的任务被删除后无法写回结果，applyMetadata 也会因为歌曲已不存在而放弃
+        ingestionJobRepository.deleteBySongIds(songIds);
+    }
+
+    /**
+     * 从数据库队列中领取任务，数量不超过线程池队列的剩余容量
+     */
+    @Scheduled(fixedDelayString = "${audio.ingestion.poll-interval}")
+    public void pollJobs() {
+        int capacity = ingestionExecutor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (capacity <= 0) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> jobIds = ingestionJobRepository.findAvailableJobIds(IngestionStatus.PENDING, now, PageRequest.of(0, capacity));
+        for (Long jobId : jobIds) {
+            String token = UUID.randomUUID().toString();
+            if (ingestionJobRepository.claim(jobId, token, now) != 1) {
+                continue; // 已被其他节点领取
+            }
+            try {
+                ingestionExecutor.execute(() -> processJob(jobId, token));
+            } catch (TaskRejectedException ex) {
+                transactionTemplate.executeWithoutResult(status -> ingestionJobRepository.findById(jobId)
+                        .ifPresent(job -> job.setStatus(IngestionStatus.PENDING)));
+                return;
+            }
+        }
+    }
+
+    /**
+     * 节点宕机时处理中的任务会停留在 RUNNING，超过超时时间后重新放回队列。
+     * 超时从工作线程开始处理时算起（refreshClaim）；被重新排队的任务即使原来的线程还在处理，
+     * 它也无法写回结果（领取标识已不匹配）
+     */
+    @Scheduled(fixedDelayString = "${audio.ingestion.stale-check-interval}")
+    public void requeueStaleJobs() {
+        int requeued = ingestionJobRepository.requeueStaleJobs(LocalDateTime.now().minus(staleTimeout));
+        if (requeued > 0) {
+            log.warn("重新排队 {} 个超时的音频摄取任务", requeued);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${audio.ingestion.report-interval}")
+    public void reportThroughput() {
+        long files = filesSinceReport.getAndSet(0);
+        long busyNanos = busyNanosSinceReport.getAndSet(0);
+        if (files == 0 || busyNanos == 0) {
+            return;
+        }
+        // 每个工作线程独占一个核，所以 文件数 / 工作线程累计耗时 即单核吞吐
+        double filesPerCoreSecond = files / (busyNanos / 1_000_000_000.0);
+        log.info("音频摄取: 本周期处理 {} 个文件, 单核吞吐 {} 文件/秒",
+                files, String.format("%.2f", filesPerCoreSecond));
+    }
+
+    private void processJob(Long jobId, String token) {
+        long start = System.nanoTime();
+        if (ingestionJobRepository.refreshClaim(jobId, token, LocalDateTime.now()) != 1) {
+            log.warn("音频摄取任务 {} 在队列中等待超时，已被重新排队，跳过", jobId);
+            return;
+        }
+        // 仓库的 findById 在事务之外调用时自带只读事务，会读副本；任务和歌曲可能刚刚提交，必须在读写事务里从主库读
+        IngestionJob job = transactionTemplate.execute(status -> ingestionJobRepository.findById(jobId).orElse(null));
+        if (job == null) {
+            return;
+        }
+        try {
+            Song song = transactionTemplate.execute(status -> songRepository.findById(job.getSongId()).orElse(null));
+            if (song == null) {
+                // 歌曲已被删除，任务直接结束
+                finishJob(job, token, IngestionStatus.DONE, job.getAttempts(), null);
+                return;
+            }
+            Path file = fileStorageService.getFileByUrl(song.getFileUrl());
+            if (file == null || !Files.isRegularFile(file)) {
+                throw new FileOperationException("音频文件不存在: " + song.getFileUrl());
+            }
+
+            AudioMetadata metadata = audioMetadataExtractor.extract(file);
+            transactionTemplate.executeWithoutResult(status -> applyMetadata(job.getSongId(), metadata));
+            finishJob(job, token, IngestionStatus.DONE, job.getAttempts(), null);
+
+            long elapsed = System.nanoTime() - start;
+            ingestionTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            filesSinceReport.incrementAndGet();
+            busyNanosSinceReport.addAndGet(elapsed);
+        } catch (Exception ex) {
+            int attempts = job.getAttempts() + 1;
+            String error = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+            if (attempts >= maxAttempts) {
+                log.error("歌曲 {} 的音频摄取失败，已放弃: {}", job.getSongId(), error);
+                finishJob(job, token, IngestionStatus.FAILED, attempts, error);
+            } else {
+                log.warn("歌曲 {} 的音频摄取失败，第 {} 次重试: {}", job.getSongId(), attempts, error);
+                finishJob(job, token, IngestionStatus.PENDING, attempts, error);
+            }
+        }
+    }
+
+    private void applyMetadata(Long songId, AudioMetadata metadata) {
+        Song song = songRepository.findById(songId).orElse(null);
+        if (song == null) {
+            return;
+        }
+        int duration = (int) Math.max(1, Math.round(metadata.getDurationMillis() / 1000.0));
+        playlistService.applySongDurationChange(songId, song.getDuration(), duration);
+        song.setDuration(duration);
+        song.setBitrate(metadata.getBitrateKbps());
+        song.setSampleRate(metadata.getSampleRate());
+        // 标题和歌手以用户填写的为准，标签只用来补全缺失的专辑信息
+        if ((song.getAlbum() == null || song.getAlbum().isBlank()) && metadata.getAlbum() != null) {
+            song.setAlbum(metadata.getAlbum());
+        }
+        if (metadata.getPeaks() != null) {
+            songWaveformRepository.save(SongWaveform.builder()
+                    .songId(songId)
+                    .peaks(metadata.getPeaks())
+                    .build());
+        }
+    }
+
+    private void finishJob(IngestionJob job, String token, IngestionStatus status, int attempts, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        // 失败重试时指数退避
+        LocalDateTime availableAt = attempts == job.getAttempts()
+                ? job.getAvailableAt()
+                : now.plus(retryDelay.multipliedBy(1L << Math.min(attempts - 1, 10)));
+        String lastError = error == null ? null : error.substring(0, Math.min(error.length(), 1000));
+        if (ingestionJobRepository.finish(job.getId(), token, status, attempts, availableAt, lastError, now) != 1) {
+            log.warn("音频摄取任务 {} 处理期间已超时并被重新领取（或歌曲已被删除），丢弃本次结果", job.getId());
+        }
+    }
+}
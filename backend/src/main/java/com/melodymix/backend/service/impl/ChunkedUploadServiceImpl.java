@@ -0,0 +1,319 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.dto.CreateUploadSessionRequest;
+import com.melodymix.backend.dto.UploadSessionResponse;
+import com.melodymix.backend.exception.FileOperationException;
+import com.melodymix.backend.model.User;
+import com.melodymix.backend.service.ChunkedUploadService;
+import com.melodymix.backend.service.FileStorageService;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final long chunkSize;
+    private final long maxFileSize;
+    private final Duration sessionTimeout;
+    private final int maxSessionsPerUser;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    // 每个用户当前打开的会话数，会话从 sessions 中移除时同步减少
+    private final Map<Long, Integer> openSessionCounts = new ConcurrentHashMap<>();
+
+    public ChunkedUploadServiceImpl(
+            FileStorageService fileStorageService,
+            @Value("${file.upload.chunked.chunk-size}") DataSize chunkSize,
+            @Value("${file.upload.chunked.max-file-size}") DataSize maxFileSize,
+            @Value("${file.upload.chunked.session-timeout}") Duration sessionTimeout,
+            @Value("${file.upload.chunked.max-sessions-per-user}") int maxSessionsPerUser) {
+        this.fileStorageService = fileStorageService;
+        this.chunkSize = chunkSize.toBytes();
+        this.maxFileSize = maxFileSize.toBytes();
+        this.sessionTimeout = sessionTimeout;
+        this.maxSessionsPerUser = maxSessionsPerUser;
+    }
+
+    @Override
+    public UploadSessionResponse createSession(CreateUploadSessionRequest request, User owner) {
+        if (request.getTotalSize() > maxFileSize) {
+            throw new IllegalArgumentException("文件过大，最大允许 " + maxFileSize + " 字节");
+        }
+
+        // 每个会话都会预先占用 totalSize 的磁盘空间，先占用名额再创建文件
+        reserveSessionSlot(owner.getId());
+        Path tempFile;
+        try {
+            tempFile = fileStorageService.createTempFile(request.getContentType());
+        } catch (RuntimeException ex) {
+            releaseSessionSlot(owner.getId());
+            throw ex;
+        }
+        // 预先分配目标文件大小，之后每个分片都按偏移量直接写入，不再二次拷贝
+        try (RandomAccessFile file = new RandomAccessFile(tempFile.toFile(), "rw")) {
+            file.setLength(request.getTotalSize());
+        } catch (IOException ex) {
+            deleteQuietly(tempFile);
+            releaseSessionSlot(owner.getId());
+            throw new FileOperationException("无法创建上传文件！", ex);
+        }
+
+        int chunkCount = (int) ((request.getTotalSize() + chunkSize - 1) / chunkSize);
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), owner.getId(),
+                request.getFileName(), request.getContentType(), request.getTotalSize(), chunkCount, tempFile);
+        sessions.put(session.uploadId, session);
+        return toResponse(session);
+    }
+
+    @Override
+    public UploadSessionResponse writeChunk(String uploadId, long offset, InputStream body, User owner) {
+        UploadSession session = findSession(uploadId, owner);
+        if (offset < 0 || offset >= session.totalSize || offset % chunkSize != 0) {
+            throw new IllegalArgumentException("无效的分片偏移量: " + offset + "，必须是 " + chunkSize + " 的整数倍");
+        }
+        int chunkIndex = (int) (offset / chunkSize);
+        long expectedLength = Math.min(chunkSize, session.totalSize - offset);
+
+        // 多个分片共享读锁可以并发写入；完成、中止和过期清理持有写锁，开始后不再接受任何分片
+        Lock lock = session.lock.readLock();
+        lock.lock();
+        try {
+            if (session.closed) {
+                throw new EntityNotFoundException("上传会话不存在或已完成: " + uploadId);
+            }
+            writeChunkData(session, chunkIndex, offset, expectedLength, body);
+        } finally {
+            lock.unlock();
+        }
+        return toResponse(session);
+    }
+
+    private void writeChunkData(UploadSession session, int chunkIndex, long offset, long expectedLength, InputStream body) {
+        long written = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(session.tempFile, StandardOpenOption.WRITE);
+             ReadableByteChannel source = Channels.newChannel(body)) {
+            while (true) {
+                int read = source.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                if (written + buffer.position() > expectedLength) {
+                    throw new IllegalArgumentException("分片长度超过预期的 " + expectedLength + " 字节");
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer, offset + written);
+                }
+                buffer.clear();
+            }
+        } catch (IOException ex) {
+            // 连接中断等情况：该分片不标记为完成，客户端重传即可
+            throw new FileOperationException("写入分片失败，请重试该分片", ex);
+        }
+
+        if (written != expectedLength) {
+            throw new IllegalArgumentException("分片不完整：期望 " + expectedLength + " 字节，实际 " + written + " 字节");
+        }
+        session.markReceived(chunkIndex);
+    }
+
+    @Override
+    public UploadSessionResponse getSession(String uploadId, User owner) {
+        return toResponse(findSession(uploadId, owner));
+    }
+
+    @Override
+    public String completeSession(String uploadId, User owner) {
+        UploadSession session = findSession(uploadId, owner);
+        // 写锁等待正在写入的分片结束；关闭并移除会话后，重试的分片请求会被拒绝，不会在入库期间改动文件
+        Lock lock = session.lock.writeLock();
+        lock.lock();
+        try {
+            if (session.closed) {
+                throw new EntityNotFoundException("上传会话不存在或已完成: " + uploadId);
+            }
+            if (!session.isComplete()) {
+                throw new IllegalArgumentException("文件尚未上传完整，已提交偏移量: " + session.committedOffset(chunkSize));
+            }
+            closeSession(session);
+        } finally {
+            lock.unlock();
+        }
+        return fileStorageService.storeTempFile(session.tempFile, session.contentType, session.fileName);
+    }
+
+    @Override
+    public void abortSession(String uploadId, User owner) {
+        UploadSession session = findSession(uploadId, owner);
+        discardSession(session);
+    }
+
+    /**
+     * 定期清理长时间没有新分片的会话及其临时文件
+     */
+    @Scheduled(fixedDelayString = "${file.upload.chunked.cleanup-interval}")
+    public void cleanupExpiredSessions() {
+        long deadline = System.currentTimeMillis() - sessionTimeout.toMillis();
+        for (UploadSession session : sessions.values()) {
+            // 正在写入分片的会话仍然活跃，不等待它的锁，下次清理时再检查
+            if (session.lastActivity < deadline && session.lock.writeLock().tryLock()) {
+                try {
+                    discardSession(session);
+                } finally {
+                    session.lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private void reserveSessionSlot(Long ownerId) {
+        openSessionCounts.compute(ownerId, (id, count) -> {
+            int open = count == null ? 0 : count;
+            if (open >= maxSessionsPerUser) {
+                throw new IllegalArgumentException("未完成的上传会话过多，最多允许 " + maxSessionsPerUser + " 个，请先完成或取消已有的上传");
+            }
+            return open + 1;
+        });
+    }
+
+    private void releaseSessionSlot(Long ownerId) {
+        openSessionCounts.computeIfPresent(ownerId, (id, count) -> count <= 1 ? null : count - 1);
+    }
+
+    /**
+     * 关闭会话并从会话表中移除，调用方需持有会话的写锁
+     */
+    private void closeSession(UploadSession session) {
+        session.closed = true;
+        if (sessions.remove(session.uploadId, session)) {
+            releaseSessionSlot(session.ownerId);
+        }
+    }
+
+    /**
+     * 中止或过期：等待正在写入的分片结束后关闭会话并删除临时文件
+     */
+    private void discardSession(UploadSession session) {
+        Lock lock = session.lock.writeLock();
+        lock.lock();
+        try {
+            if (session.closed) {
+                return;
+            }
+            closeSession(session);
+            deleteQuietly(session.tempFile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private UploadSession findSession(String uploadId, User owner) {
+        UploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new EntityNotFoundException("上传会话不存在或已过期: " + uploadId);
+        }
+        if (!Objects.equals(session.ownerId, owner.getId())) {
+            throw new AccessDeniedException("您没有权限访问此上传会话");
+        }
+        return session;
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.uploadId)
+                .totalSize(session.totalSize)
+                .chunkSize(chunkSize)
+                .committedOffset(session.committedOffset(chunkSize))
+                .receivedBytes(session.receivedBytes(chunkSize))
+                .complete(session.isComplete())
+                .build();
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // 临时文件残留不影响业务
+        }
+    }
+
+    /**
+     * 单个上传会话的内存状态。分片接收情况用位图记录，多个分片可以并发写入。
+     * 写分片持有读锁，完成 / 中止 / 清理持有写锁并把 closed 置为 true。
+     */
+    private static final class UploadSession {
+        private final String uploadId;
+        private final Long ownerId;
+        private final String fileName;
+        private final String contentType;
+        private final long totalSize;
+        private final int chunkCount;
+        private final Path tempFile;
+        private final BitSet receivedChunks;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile boolean closed;
+        private volatile long lastActivity;
+
+        private UploadSession(String uploadId, Long ownerId, String fileName, String contentType,
+                              long totalSize, int chunkCount, Path tempFile) {
+            this.uploadId = uploadId;
+            this.ownerId = ownerId;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.totalSize = totalSize;
+            this.chunkCount = chunkCount;
+            this.tempFile = tempFile;
+            this.receivedChunks = new BitSet(chunkCount);
+            this.lastActivity = System.currentTimeMillis();
+        }
+
+        private synchronized void markReceived(int chunkIndex) {
+            receivedChunks.set(chunkIndex);
+            lastActivity = System.currentTimeMillis();
+        }
+
+        private synchronized boolean isComplete() {
+            return receivedChunks.nextClearBit(0) >= chunkCount;
+        }
+
+        private synchronized long committedOffset(long chunkSize) {
+            return Math.min(totalSize, receivedChunks.nextClearBit(0) * chunkSize);
+        }
+
+        private synchronized long receivedBytes(long chunkSize) {
+            long bytes = receivedChunks.cardinality() * chunkSize;
+            // 最后一片可能不足 chunkSize
+            if (receivedChunks.get(chunkCount - 1)) {
+                bytes -= (long) chunkCount * chunkSize - totalSize;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.event.MediaFileDeletedEvent;
+import com.melodymix.backend.exception.FileOperationException;
+import com.melodymix.backend.service.CoverImageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+@Slf4j
+@Service
+public class CoverImageServiceImpl implements CoverImageService {
+
+    private final int[] sizes;
+    private final float jpegQuality;
+    private final TaskExecutor coverExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CoverImageServiceImpl(
+            @Value("${file.upload.covers.derivative-sizes}") int[] sizes,
+            @Value("${file.upload.covers.jpeg-quality}") float jpegQuality,
+            @Qualifier("coverExecutor") TaskExecutor coverExecutor,
+            ApplicationEventPublisher eventPublisher) {
+        this.sizes = Arrays.stream(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        if (this.sizes.length == 0) {
+            throw new IllegalStateException("file.upload.covers.derivative-sizes 至少需要一个正整数");
+        }
+        this.jpegQuality = jpegQuality;
+        this.coverExecutor = coverExecutor;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void generateDerivativesAsync(Path original) {
+        try {
+            coverExecutor.execute(() -> {
+                try {
+                    generateMissing(original, sizes);
+                } catch (Exception ex) {
+                    // 后台生成失败不影响上传，访问时会再按需生成一次
+                    log.warn("生成封面缩略图失败: {}, 错误: {}", original, ex.getMessage());
+                }
+            });
+        } catch (TaskRejectedException ex) {
+            log.warn("封面缩略图线程池已满，跳过预生成: {}", original);
+        }
+    }
+
+    @Override
+    public String getDerivativeBaseName(String fileName) {
+        if (!fileName.endsWith(".jpg")) {
+            return null;
+        }
+        int underscore = fileName.lastIndexOf('_');
+        if (underscore <= 0) {
+            return null;
+        }
+        String size = fileName.substring(underscore + 1, fileName.length() - ".jpg".length());
+        for (int preset : sizes) {
+            if (size.equals(Integer.toString(preset))) {
+                return fileName.substring(0, underscore);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Path getDerivativePath(Path original, int requestedSize) {
+        return derivativePath(original, snapSize(requestedSize));
+    }
+
+    @Override
+    public Path getDerivative(Path original, int requestedSize) {
+        if (getDerivativeBaseName(original.getFileName().toString()) != null) {
+            throw new IllegalArgumentException("缩略图不能再生成缩略图: " + original.getFileName());
+        }
+        int size = snapSize(requestedSize);
+        Path derivative = derivativePath(original, size);
+        if (Files.isRegularFile(derivative)) {
+            return derivative;
+        }
+        try {
+            generateMissing(original, new int[]{size});
+        } catch (IOException | FileOperationException ex) {
+            log.warn("按需生成封面缩略图失败，返回原图: {}, 错误: {}", original, ex.getMessage());
+        }
+        return Files.isRegularFile(derivative) ? derivative : original;
+    }
+
+    @Override
+    public void deleteDerivatives(Path original) {
+        for (int size : sizes) {
+            try {
+                Path derivative = derivativePath(original, size);
+                if (Files.deleteIfExists(derivative)) {
+                    eventPublisher.publishEvent(new MediaFileDeletedEvent(derivative));
+                }
+            } catch (IOException ex) {
+                log.warn("删除封面缩略图失败: {}, 错误: {}", original, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 请求的尺寸向上取整到预设尺寸，超过最大尺寸时使用最大尺寸，避免任意尺寸撑爆磁盘
+     */
+    private int snapSize(int requestedSize) {
+        for (int size : sizes) {
+            if (size >= requestedSize) {
+                return size;
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    private Path derivativePath(Path original, int size) {
+        String fileName = original.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return original.resolveSibling(baseName + "_" + size + ".jpg");
+    }
+
+    /**
+     * 原图只解码一次，然后从大到小逐级缩放，生成所有缺失的尺寸
+     */
+    private void generateMissing(Path original, int[] targetSizes) throws IOException {
+        int[] missing = Arrays.stream(targetSizes)
+                .filter(size -> !Files.exists(derivativePath(original, size)))
+                .toArray();
+        if (missing.length == 0) {
+            return;
+        }
+
+        BufferedImage image = decode(original, missing[missing.length - 1]);
+        for (int i = missing.length - 1; i >= 0; i--) {
+            image = scaleToFit(image, missing[i]);
+            writeProgressiveJpeg(image, derivativePath(original, missing[i]));
+        }
+    }
+
+    /**
+     * 解码原图。超大图片按整数倍降采样读取，只保留生成最大缩略图所需的像素，控制内存占用。
+     */
+    private BufferedImage decode(Path original, int largestSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new FileOperationException("无法识别的封面图片格式: " + original.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                // 保留至少 2 倍目标尺寸，后续再平滑缩放，避免降采样带来的锯齿
+                int subsampling = Math.max(1, longestSide / (largestSize * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 等比缩放到长边不超过 size。每次最多缩小一半，多步双线性插值的效果接近高质量缩放，但速度快得多。
+     */
+    private BufferedImage scaleToFit(BufferedImage source, int size) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int longestSide = Math.max(width, height);
+        int targetWidth = longestSide <= size ? width : Math.max(1, Math.round((float) width * size / longestSide));
+        int targetHeight = longestSide <= size ? height : Math.max(1, Math.round((float) height * size / longestSide));
+
+        BufferedImage current = source;
+        do {
+            int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int stepHeight = Math.max(targetHeight, current.getHeight() / 2);
+            // JPEG 不支持透明通道：统一转成 RGB，透明区域填充白色
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (current.getWidth() != targetWidth || current.getHeight() != targetHeight);
+        return current;
+    }
+
+    private void writeProgressiveJpeg(BufferedImage image, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new FileOperationException("当前运行环境不支持 JPEG 编码");
+        }
+        ImageWriter writer = writers.next();
+        // 先写临时文件再原子重命名，并发请求同一尺寸时不会读到写了一半的图片
+        Path tempFile = Files.createTempFile(target.getParent(), ".derivative-", ".part");
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(tempFile.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(jpegQuality);
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
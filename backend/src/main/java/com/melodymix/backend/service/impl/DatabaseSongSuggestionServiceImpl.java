@@ -0,0 +1,60 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.dto.SongSuggestion;
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.service.SongSuggestionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 未启用前缀树（suggest.enabled=false，多实例部署的默认值）时的自动补全：
+ * 按标题前缀在 (title, id) 索引上做一次范围扫描，只补全标题，按标题排序而不按收藏数加权。
+ */
+@Service
+@ConditionalOnProperty(prefix = "suggest", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class DatabaseSongSuggestionServiceImpl implements SongSuggestionService {
+
+    private final SongRepository songRepository;
+    private final int maxResults;
+
+    public DatabaseSongSuggestionServiceImpl(
+            SongRepository songRepository,
+            @Value("${suggest.max-results}") int maxResults) {
+        this.songRepository = songRepository;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SongSuggestion> suggest(String prefix, Integer limit) {
+        int size = limit == null ? maxResults : Math.min(limit, maxResults);
+        if (size <= 0) {
+            throw new IllegalArgumentException("无效的补全数量: " + limit);
+        }
+        String trimmed = prefix == null ? "" : prefix.trim();
+        if (trimmed.isEmpty()) {
+            return List.of();
+        }
+        // 同名歌曲只补全一次，多取一些行用于去重
+        List<Song> songs = songRepository.findByTitleStartingWithOrderByTitleAscIdAsc(trimmed, PageRequest.of(0, size * 2))
+                .getContent();
+        Set<String> titles = new LinkedHashSet<>();
+        for (Song song : songs) {
+            if (titles.size() == size) {
+                break;
+            }
+            titles.add(song.getTitle());
+        }
+        return titles.stream()
+                .map(title -> SongSuggestion.builder().text(title).type("title").build())
+                .toList();
+    }
+}
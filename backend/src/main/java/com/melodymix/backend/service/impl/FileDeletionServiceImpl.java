@@ -0,0 +1,105 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.model.FileDeletionTask;
+import com.melodymix.backend.repository.FileDeletionTaskRepository;
+import com.melodymix.backend.service.FileDeletionService;
+import com.melodymix.backend.service.FileStorageService;
+import com.melodymix.backend.service.FileStorageService.DeletionResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+public class FileDeletionServiceImpl implements FileDeletionService {
+
+    private final FileDeletionTaskRepository fileDeletionTaskRepository;
+    private final FileStorageService fileStorageService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+
+    public FileDeletionServiceImpl(
+            FileDeletionTaskRepository fileDeletionTaskRepository,
+            FileStorageService fileStorageService,
+            PlatformTransactionManager transactionManager,
+            @Value("${file.deletion.batch-size}") int batchSize,
+            @Value("${file.deletion.max-attempts}") int maxAttempts,
+            @Value("${file.deletion.retry-delay}") Duration retryDelay) {
+        this.fileDeletionTaskRepository = fileDeletionTaskRepository;
+        this.fileStorageService = fileStorageService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void scheduleDeletion(String fileUrl) {
+        if (fileUrl == null || fileUrl.isBlank()) {
+            return;
+        }
+        fileDeletionTaskRepository.save(FileDeletionTask.builder()
+                .fileUrl(fileUrl)
+                .attempts(0)
+                .availableAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * 分批处理到期的删除任务，直到没有到期任务为止
+     */
+    @Scheduled(fixedDelayString = "${file.deletion.poll-interval}")
+    public void processPendingDeletions() {
+        Integer processed;
+        do {
+            processed = transactionTemplate.execute(status -> processBatch());
+        } while (processed != null && processed >= batchSize);
+    }
+
+    private int processBatch() {
+        List<FileDeletionTask> tasks = fileDeletionTaskRepository.lockAvailableTasks(LocalDateTime.now(), batchSize);
+        List<FileDeletionTask> finished = new ArrayList<>(tasks.size());
+        for (FileDeletionTask task : tasks) {
+            try {
+                DeletionResult result = fileStorageService.deleteFile(task.getFileUrl());
+                if (result.deferred()) {
+                    // 文件刚上传或刚被重复上传复用，还在宽限期内：保留任务，宽限期结束后再试（不计入失败次数）
+                    task.setAvailableAt(LocalDateTime.ofInstant(result.retryAt(), ZoneId.systemDefault()));
+                    continue;
+                }
+                // 已删除，或仍被其他歌曲引用（内容寻址去重）而不删除，任务都视为完成
+                finished.add(task);
+            } catch (Exception ex) {
+                int attempts = task.getAttempts() + 1;
+                String error = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+                if (attempts >= maxAttempts) {
+                    // 放弃后文件成为孤儿，由孤儿文件回收兜底
+                    log.error("删除文件 {} 失败，已放弃: {}", task.getFileUrl(), error);
+                    finished.add(task);
+                    continue;
+                }
+                log.warn("删除文件 {} 失败，第 {} 次重试: {}", task.getFileUrl(), attempts, error);
+                task.setAttempts(attempts);
+                task.setAvailableAt(LocalDateTime.now().plus(retryDelay.multipliedBy(1L << Math.min(attempts - 1, 10))));
+                task.setLastError(error.substring(0, Math.min(error.length(), 1000)));
+            }
+        }
+        fileDeletionTaskRepository.deleteAllInBatch(finished);
+        return tasks.size();
+    }
+}
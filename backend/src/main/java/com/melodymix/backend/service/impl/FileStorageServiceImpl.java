@@ -2,23 +2,46 @@
 
 package com.melodymix.backend.service.impl;
 
+import com.melodymix.backend.dto.StoredFileResponse;
+import com.melodymix.backend.event.MediaFileDeletedEvent;
 import com.melodymix.backend.exception.FileOperationException;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.service.CoverImageService;
 import com.melodymix.backend.service.FileStorageService;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects; // 导入 Objects
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class FileStorageServiceImpl implements FileStorageService {
@@ -26,6 +49,40 @@ public class FileStorageServiceImpl implements FileStorageService {
     private final String songUploadDir;
     private final String coverUploadDir;
     private final String baseUrl;
+    private final SongRepository songRepository;
+    private final CoverImageService coverImageService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // 上传过程中的临时文件目录，位于各存储目录之下
+    private static final String TEMP_DIR_NAME = ".tmp";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    // 旧文件（非内容寻址命名）的 SHA-256 索引目录，位于各存储目录之下
+    private static final String HASH_INDEX_DIR_NAME = ".sha256";
+    // {hash}.ext 或封面缩略图 {hash}_{size}.jpg
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("([0-9a-f]{64}(?:_\\d+)?)(?:\\.[a-z0-9]{1,10})?");
+
+    // 原始请求体上传时，根据 Content-Type 推断扩展名
+    private static final Map<String, String> EXTENSIONS_BY_CONTENT_TYPE = Map.ofEntries(
+            Map.entry("audio/mpeg", "mp3"),
+            Map.entry("audio/mp3", "mp3"),
+            Map.entry("audio/flac", "flac"),
+            Map.entry("audio/x-flac", "flac"),
+            Map.entry("audio/wav", "wav"),
+            Map.entry("audio/x-wav", "wav"),
+            Map.entry("audio/ogg", "ogg"),
+            Map.entry("audio/aac", "aac"),
+            Map.entry("audio/mp4", "m4a"),
+            Map.entry("image/jpeg", "jpg"),
+            Map.entry("image/png", "png"),
+            Map.entry("image/webp", "webp"),
+            Map.entry("image/gif", "gif"));
+
+    private final long rawUploadMaxBytes;
+    // 修改时间在该时间之内的文件不删除：重复上传复用已有文件时会刷新修改时间，歌曲可能还没来得及创建
+    private final Duration deletionGracePeriod;
+
+    // 旧文件的内容哈希缓存，避免每次请求都读取索引文件
+    private final Map<Path, String> legacyContentTags = new ConcurrentHashMap<>();
 
     private Path songStorageLocation;
     private Path coverStorageLocation;
@@ -34,10 +91,20 @@ public class FileStorageServiceImpl implements FileStorageService {
     public FileStorageServiceImpl(
             @Value("${file.upload.dir.songs}") String songUploadDir,
             @Value("${file.upload.dir.covers}") String coverUploadDir,
-            @Value("${file.upload.base-url}") String baseUrl) {
+            @Value("${file.upload.base-url}") String baseUrl,
+            @Value("${file.upload.raw.max-file-size}") DataSize rawUploadMaxSize,
+            @Value("${file.deletion.grace-period}") Duration deletionGracePeriod,
+            SongRepository songRepository,
+            CoverImageService coverImageService,
+            ApplicationEventPublisher eventPublisher) {
+        this.rawUploadMaxBytes = rawUploadMaxSize.toBytes();
+        this.deletionGracePeriod = deletionGracePeriod;
         this.songUploadDir = songUploadDir;
         this.coverUploadDir = coverUploadDir;
         this.baseUrl = baseUrl;
+        this.songRepository = songRepository;
+        this.coverImageService = coverImageService;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostConstruct
@@ -72,36 +139,141 @@ public class FileStorageServiceImpl implements FileStorageService {
     }
 
     /**
-     * 通用的文件存储辅助方法。
+     * 通用的文件存储辅助方法（内容寻址）。
+     * 上传内容在写入临时文件的同时计算 SHA-256，随后原子地移动到按哈希分片的路径
+     * （例如 songs/ab/cd/{hash}.mp3）。相同内容的重复上传只会得到同一个文件，不会再占用磁盘。
      * @param file 要存储的 MultipartFile
      * @param storageLocation 目标存储路径 (Path)
      * @param subDirName URL 中表示子目录的名称 (例如 "songs", "covers")
      * @return 文件的完整访问 URL
      */
-    private String storeInternalFile(MultipartFile file, Path storageLocation, String subDirName) { // ✅ 原有的 storeFile 改名为 storeInternalFile
+    private String storeInternalFile(MultipartFile file, Path storageLocation, String subDirName) {
         String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-        String fileExtension = StringUtils.getFilenameExtension(originalFilename);
+        String fileExtension = normalizeExtension(StringUtils.getFilenameExtension(originalFilename));
 
-        String fileName = UUID.randomUUID().toString() + (fileExtension != null && !fileExtension.isEmpty() ? "." + fileExtension : "");
+        try (InputStream inputStream = file.getInputStream()) {
+            StoredContent content = storeContentAddressed(inputStream, fileExtension, storageLocation, Long.MAX_VALUE);
+            onStored(subDirName, content.relativePath());
+            return buildFileUrl(subDirName, content.relativePath());
+        } catch (IOException ex) {
+            throw new FileOperationException("无法存储文件 " + originalFilename + "，请重试！", ex);
+        }
+    }
 
+    /**
+     * 把输入流写入内容寻址存储。写入临时文件的同一遍读取中计算 SHA-256 和文件大小。
+     * @param maxBytes 允许写入的最大字节数，超过时中止并删除临时文件
+     */
+    private StoredContent storeContentAddressed(InputStream inputStream, String fileExtension,
+                                                Path storageLocation, long maxBytes) throws IOException {
+        Path tempFile = newTempFile(storageLocation);
         try {
-            if (fileName.contains("..")) {
-                throw new FileOperationException("文件名包含无效路径序列 " + fileName);
+            MessageDigest digest = newSha256Digest();
+            long size = 0;
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new IllegalArgumentException("文件过大，最大允许 " + maxBytes + " 字节");
+                    }
+                    digest.update(buffer, 0, read);
+                    outputStream.write(buffer, 0, read);
+                }
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String relativePath = commitTempFile(tempFile, sha256, fileExtension, storageLocation);
+            return new StoredContent(relativePath, sha256, size);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private Path newTempFile(Path storageLocation) throws IOException {
+        Path tempDirectory = storageLocation.resolve(TEMP_DIR_NAME);
+        Files.createDirectories(tempDirectory);
+        // 临时文件与目标目录位于同一文件系统，保证最后一步可以原子重命名
+        return Files.createTempFile(tempDirectory, "upload-", ".part");
+    }
+
+    /**
+     * 把已经写完并算好哈希的临时文件移动到内容寻址路径。目标已存在时说明是重复内容，直接复用。
+     */
+    private String commitTempFile(Path tempFile, String hash, String fileExtension, Path storageLocation) throws IOException {
+        String relativePath = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash
+                + (fileExtension.isEmpty() ? "" : "." + fileExtension);
+
+        Path targetLocation = storageLocation.resolve(relativePath);
+        if (Files.exists(targetLocation)) {
+            // 内容已存在：重复上传直接复用已有文件。刷新修改时间，宽限期内 deleteIfUnreferenced
+            // 和孤儿回收都不会删除它，即使引用它的最后一首歌曲在新歌曲保存之前被删掉
+            try {
+                Files.setLastModifiedTime(targetLocation, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.deleteIfExists(tempFile);
+                return relativePath;
+            } catch (NoSuchFileException ex) {
+                // 刚好被删除：用这次上传的内容重新写入
             }
+        }
+        Files.createDirectories(targetLocation.getParent());
+        try {
+            Files.move(tempFile, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(tempFile, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return relativePath;
+    }
+
+    /**
+     * 文件入库后的后续处理：封面在后台生成多尺寸缩略图
+     */
+    private void onStored(String category, String relativePath) {
+        if ("covers".equals(category)) {
+            coverImageService.generateDerivativesAsync(coverStorageLocation.resolve(relativePath));
+        }
+    }
+
+    private String categoryForContentType(String contentType) {
+        if (contentType != null && contentType.startsWith("audio/")) {
+            return "songs";
+        } else if (contentType != null && contentType.startsWith("image/")) {
+            return "covers";
+        }
+        throw new FileOperationException("不支持的文件类型: " + contentType + "。请上传音频或图片文件。");
+    }
 
-            Path targetLocation = storageLocation.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    private Path storageLocationFor(String category) {
+        return "songs".equals(category) ? songStorageLocation : coverStorageLocation;
+    }
 
-            return ServletUriComponentsBuilder.fromCurrentContextPath()
-                    .path(baseUrl) // e.g., /uploads
-                    .path("/")
-                    .path(subDirName) // "songs" or "covers"
-                    .path("/")
-                    .path(fileName)
-                    .toUriString();
+    private String buildFileUrl(String subDirName, String relativePath) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path(baseUrl) // e.g., /uploads
+                .path("/")
+                .path(subDirName) // "songs" or "covers"
+                .path("/")
+                .path(relativePath)
+                .toUriString();
+    }
 
-        } catch (IOException ex) {
-            throw new FileOperationException("无法存储文件 " + fileName + "，请重试！", ex);
+    private String normalizeExtension(String fileExtension) {
+        if (fileExtension == null || fileExtension.isEmpty()) {
+            return "";
+        }
+        String extension = fileExtension.toLowerCase(Locale.ROOT);
+        // 扩展名会出现在存储路径中，只允许字母和数字
+        if (!extension.matches("[a-z0-9]{1,10}")) {
+            throw new FileOperationException("文件扩展名无效: " + fileExtension);
+        }
+        return extension;
+    }
+
+    private MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new FileOperationException("当前运行环境不支持 SHA-256", ex);
         }
     }
 
@@ -122,33 +294,159 @@ public class FileStorageServiceImpl implements FileStorageService {
      */
     @Override
     public String storeFile(MultipartFile file) {
-        String contentType = file.getContentType();
-        if (contentType != null && contentType.startsWith("audio/")) {
-            return storeSongFile(file); // 歌曲文件
-        } else if (contentType != null && contentType.startsWith("image/")) {
-            return storeCoverFile(file); // 封面文件
-        } else {
-            // 更多默认处理或抛出不支持的类型异常
-            throw new FileOperationException("不支持的文件类型: " + contentType + "。请上传音频或图片文件。");
+        String category = categoryForContentType(file.getContentType());
+        return storeInternalFile(file, storageLocationFor(category), category);
+    }
+
+
+    @Override
+    public StoredFileResponse storeFile(InputStream inputStream, String contentType, String originalFilename) {
+        String category = categoryForContentType(contentType);
+        String fileExtension = originalFilename != null && !originalFilename.isBlank()
+                ? normalizeExtension(StringUtils.getFilenameExtension(StringUtils.cleanPath(originalFilename)))
+                : "";
+        if (fileExtension.isEmpty()) {
+            String baseType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            fileExtension = EXTENSIONS_BY_CONTENT_TYPE.getOrDefault(baseType, "");
+        }
+
+        try {
+            StoredContent content = storeContentAddressed(inputStream, fileExtension,
+                    storageLocationFor(category), rawUploadMaxBytes);
+            onStored(category, content.relativePath());
+            return StoredFileResponse.builder()
+                    .url(buildFileUrl(category, content.relativePath()))
+                    .sha256(content.sha256())
+                    .size(content.size())
+                    .build();
+        } catch (IOException ex) {
+            throw new FileOperationException("无法存储文件，请重试！", ex);
+        }
+    }
+
+    @Override
+    public Path createTempFile(String contentType) {
+        try {
+            return newTempFile(storageLocationFor(categoryForContentType(contentType)));
+        } catch (IOException ex) {
+            throw new FileOperationException("无法创建临时上传文件！", ex);
         }
     }
 
+    @Override
+    public String storeTempFile(Path tempFile, String contentType, String originalFilename) {
+        String category = categoryForContentType(contentType);
+        String fileExtension = normalizeExtension(StringUtils.getFilenameExtension(StringUtils.cleanPath(originalFilename)));
+        try {
+            // 分片是并行写入的，只能在所有分片到齐后顺序读一遍计算哈希
+            MessageDigest digest = newSha256Digest();
+            try (DigestInputStream digestInputStream = new DigestInputStream(Files.newInputStream(tempFile), digest)) {
+                digestInputStream.transferTo(OutputStream.nullOutputStream());
+            }
+            String relativePath = commitTempFile(tempFile, HexFormat.of().formatHex(digest.digest()),
+                    fileExtension, storageLocationFor(category));
+            onStored(category, relativePath);
+            return buildFileUrl(category, relativePath);
+        } catch (IOException ex) {
+            throw new FileOperationException("无法存储文件 " + originalFilename + "，请重试！", ex);
+        } finally {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException ignored) {
+                // 临时文件残留不影响结果
+            }
+        }
+    }
 
     @Override
-    public boolean deleteFile(String fileUrl) {
+    public DeletionResult deleteFile(String fileUrl) {
         if (fileUrl == null || fileUrl.isBlank()) {
-            return false;
+            return DeletionResult.KEPT;
         }
+        return deleteIfUnreferenced(getFileByUrl(fileUrl));
+    }
 
+    /**
+     * 引用检查和删除之间，重复上传可能正好复用了这个文件（commitTempFile 刷新修改时间后返回它的 URL）。
+     * 所以先把文件原子地移进临时目录，再看修改时间：
+     * 移走之前刷新过的，说明刚被复用，移回原处；移走之后才刷新的会失败，上传方自己重新写入文件。
+     */
+    @Override
+    public DeletionResult deleteIfUnreferenced(Path filePath) {
         try {
-            Path filePath = getFileByUrl(fileUrl);
             if (filePath != null && Files.exists(filePath) && filePath.startsWith(this.baseStorageLocation)) {
-                return Files.deleteIfExists(filePath);
+                // 内容寻址存储下多首歌曲可能共享同一个文件，只有不再被任何歌曲引用时才真正删除
+                long references = songRepository.countReferencesToFile(filePath.getFileName().toString());
+                if (references > 0) {
+                    return DeletionResult.KEPT;
+                }
+                Instant graceEnd = gracePeriodEnd(filePath);
+                if (graceEnd != null) {
+                    return DeletionResult.deferredUntil(graceEnd);
+                }
+                Path trashFile = moveToTrash(filePath);
+                if (trashFile == null) {
+                    return DeletionResult.KEPT;
+                }
+                graceEnd = gracePeriodEnd(trashFile);
+                if (graceEnd != null) {
+                    restoreFromTrash(trashFile, filePath);
+                    return DeletionResult.deferredUntil(graceEnd);
+                }
+                if (filePath.startsWith(this.coverStorageLocation)) {
+                    coverImageService.deleteDerivatives(filePath);
+                }
+                legacyContentTags.remove(filePath);
+                Path hashIndexFile = hashIndexFileFor(filePath);
+                if (hashIndexFile != null) {
+                    Files.deleteIfExists(hashIndexFile);
+                }
+                Files.deleteIfExists(trashFile);
+                eventPublisher.publishEvent(new MediaFileDeletedEvent(filePath));
+                return DeletionResult.DELETED;
             }
         } catch (IOException e) {
-            System.err.println("删除文件时出错: " + fileUrl + ", 错误: " + e.getMessage());
+            throw new FileOperationException("删除文件时出错: " + filePath, e);
+        }
+        return DeletionResult.KEPT;
+    }
+
+    /**
+     * @return 文件仍在删除宽限期内时返回宽限期结束的时间，否则返回 null
+     */
+    private Instant gracePeriodEnd(Path file) throws IOException {
+        Instant end = Files.getLastModifiedTime(file).toInstant().plus(deletionGracePeriod);
+        return end.isAfter(Instant.now()) ? end : null;
+    }
+
+    /**
+     * 移到所在存储目录的临时目录（同一文件系统，原子重命名）
+     * @return 移动后的路径；文件已被其他人删除时返回 null
+     */
+    private Path moveToTrash(Path filePath) throws IOException {
+        Path storageLocation = filePath.startsWith(songStorageLocation) ? songStorageLocation : coverStorageLocation;
+        Path trashFile = newTempFile(storageLocation);
+        try {
+            Files.move(filePath, trashFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return trashFile;
+        } catch (NoSuchFileException ex) {
+            Files.deleteIfExists(trashFile);
+            return null;
+        }
+    }
+
+    private void restoreFromTrash(Path trashFile, Path filePath) throws IOException {
+        try {
+            Files.move(trashFile, filePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException ex) {
+            // 移走之后已经有上传重新写入了相同内容
+            Files.deleteIfExists(trashFile);
         }
-        return false;
+    }
+
+    @Override
+    public List<Path> getStorageLocations() {
+        return List.of(songStorageLocation, coverStorageLocation);
     }
 
     /**
@@ -191,4 +489,96 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
         return null;
     }
+
+    @Override
+    public Path resolveStoredFile(String category, String relativePath) {
+        if (relativePath == null || relativePath.isBlank()) {
+            return null;
+        }
+        Path storageLocation;
+        if ("songs".equals(category)) {
+            storageLocation = this.songStorageLocation;
+        } else if ("covers".equals(category)) {
+            storageLocation = this.coverStorageLocation;
+        } else {
+            return null;
+        }
+
+        String cleaned = relativePath.startsWith("/") ? relativePath.substring(1) : relativePath;
+        Path resolvedPath = storageLocation.resolve(cleaned).normalize();
+        // 防止 ../ 之类的路径遍历
+        if (!resolvedPath.startsWith(storageLocation)) {
+            return null;
+        }
+        // 不对外暴露 .tmp 等内部目录
+        for (Path segment : storageLocation.relativize(resolvedPath)) {
+            if (segment.toString().startsWith(".")) {
+                return null;
+            }
+        }
+        return resolvedPath;
+    }
+
+    @Override
+    public String getContentTagFromName(Path file) {
+        Matcher matcher = CONTENT_ADDRESSED_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    @Override
+    public String getContentTag(Path file) {
+        String tag = getContentTagFromName(file);
+        if (tag != null) {
+            return tag;
+        }
+        return legacyContentTags.computeIfAbsent(file, this::loadOrComputeContentHash);
+    }
+
+    /**
+     * 旧文件同样是一次写入不再修改，所以哈希只需计算一次并写入索引文件，重启后直接读取
+     */
+    private String loadOrComputeContentHash(Path file) {
+        Path hashIndexFile = hashIndexFileFor(file);
+        try {
+            if (hashIndexFile != null && Files.isRegularFile(hashIndexFile)) {
+                String indexed = Files.readString(hashIndexFile).trim();
+                if (indexed.matches("[0-9a-f]{64}")) {
+                    return indexed;
+                }
+            }
+
+            MessageDigest digest = newSha256Digest();
+            try (DigestInputStream digestInputStream = new DigestInputStream(Files.newInputStream(file), digest)) {
+                digestInputStream.transferTo(OutputStream.nullOutputStream());
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            if (hashIndexFile != null) {
+                Files.createDirectories(hashIndexFile.getParent());
+                Path tempFile = Files.createTempFile(hashIndexFile.getParent(), ".index-", ".part");
+                Files.writeString(tempFile, hash);
+                try {
+                    Files.move(tempFile, hashIndexFile, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(tempFile, hashIndexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            return hash;
+        } catch (IOException ex) {
+            throw new FileOperationException("无法读取文件: " + file.getFileName(), ex);
+        }
+    }
+
+    private Path hashIndexFileFor(Path file) {
+        for (Path storageLocation : new Path[]{songStorageLocation, coverStorageLocation}) {
+            if (file.startsWith(storageLocation)) {
+                return storageLocation.resolve(HASH_INDEX_DIR_NAME)
+                        .resolve(storageLocation.relativize(file) + ".sha256");
+            }
+        }
+        return null;
+    }
+
+    private record StoredContent(String relativePath, String sha256, long size) {
+    }
 }
@@ -0,0 +1,72 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.service.SongSearchService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * 基于 MySQL FULLTEXT 索引（ngram 分词）的歌曲搜索，同时匹配标题、歌手和专辑，按 MATCH ... AGAINST 相关度排序。
+ * 索引在数据库中，多个应用实例共享，适合无法在每个实例内存中保存完整索引的部署。
+ * 索引由 db/migration/V1__songs_fulltext_index.sql 创建，应用本身不执行 DDL；索引不存在时退回 LIKE 查询。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "search", name = "mode", havingValue = "fulltext")
+public class FulltextSongSearchServiceImpl implements SongSearchService {
+
+    private static final String INDEX_NAME = "ft_songs_title_artist_album";
+
+    private final SongRepository songRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int ngramTokenSize;
+
+    private volatile boolean indexAvailable;
+
+    public FulltextSongSearchServiceImpl(
+            SongRepository songRepository,
+            JdbcTemplate jdbcTemplate,
+            @Value("${search.fulltext.ngram-token-size}") int ngramTokenSize) {
+        this.songRepository = songRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ngramTokenSize = ngramTokenSize;
+    }
+
+    /**
+     * 启动时只检查索引是否存在（只读）。多个节点同时启动时在这里建索引会让每个节点都去执行 ALTER TABLE，
+     * 所以建索引放在迁移脚本中，由部署流程执行一次。
+     */
+    @PostConstruct
+    public void checkFulltextIndex() {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics "
+                        + "WHERE table_schema = DATABASE() AND table_name = 'songs' AND index_name = ?",
+                Integer.class, INDEX_NAME);
+        indexAvailable = existing != null && existing > 0;
+        if (!indexAvailable) {
+            log.warn("songs 表缺少 FULLTEXT 索引 {}，请执行 db/migration/V1__songs_fulltext_index.sql；在此之前搜索退回 LIKE 查询",
+                    INDEX_NAME);
+        }
+    }
+
+    @Override
+    public Page<Song> search(String keyword, Pageable pageable) {
+        // 去掉布尔模式的运算符，整个关键词作为一个短语
+        String cleaned = keyword.replaceAll("[\"+\\-<>()~*@]", " ").trim().replaceAll("\\s+", " ");
+        if (!indexAvailable || cleaned.codePointCount(0, cleaned.length()) < ngramTokenSize) {
+            // 比 ngram 长度还短的关键词无法命中 FULLTEXT 索引
+            return songRepository.findByTitleContainingIgnoreCase(keyword.trim(), pageable);
+        }
+        // 结果按相关度排序，忽略 pageable 中的排序字段
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return songRepository.searchFulltext("\"" + cleaned + "\"", cleaned, unsorted);
+    }
+}
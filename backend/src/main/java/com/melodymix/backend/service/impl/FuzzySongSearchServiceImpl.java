@@ -0,0 +1,70 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.search.FuzzySearchIndex;
+import com.melodymix.backend.search.NgramIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * memory 模式的超集：n-gram 子串匹配之外，标题和歌手还可以用拼音全拼（“qilixiang”）、
+ * 首字母（“zjl”）或带少量输错的拼音 / 英文（“qilixaing”、“love stroy”）搜到。
+ * 构建和增量维护方式与 InMemorySongSearchServiceImpl 相同，同样只适用于单实例部署。
+ */
+@Service
+@ConditionalOnProperty(prefix = "search", name = "mode", havingValue = "fuzzy")
+public class FuzzySongSearchServiceImpl extends AbstractIndexedSongSearchService {
+
+    private final int maxCandidates;
+    private final int mergeThreshold;
+    private final int typoThreshold;
+    // 构建失败重试时整体替换
+    private volatile FuzzySearchIndex index;
+
+    public FuzzySongSearchServiceImpl(
+            SongRepository songRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${search.memory.build-batch-size}") int buildBatchSize,
+            @Value("${search.fuzzy.max-candidates}") int maxCandidates,
+            @Value("${search.fuzzy.merge-threshold}") int mergeThreshold,
+            @Value("${search.fuzzy.typo-threshold}") int typoThreshold) {
+        super(songRepository, transactionManager, buildBatchSize, "fuzzy-index-build", "模糊搜索索引");
+        this.maxCandidates = maxCandidates;
+        this.mergeThreshold = mergeThreshold;
+        this.typoThreshold = typoThreshold;
+        this.index = new FuzzySearchIndex(maxCandidates, mergeThreshold, typoThreshold);
+    }
+
+    @Override
+    protected NgramIndex.SearchResult searchIndex(String keyword, int offset, int limit) {
+        // 结果按匹配程度排序
+        return index.search(keyword, offset, limit);
+    }
+
+    @Override
+    protected void putSong(long id, String title, String artist, String album) {
+        index.put(id, title, artist, album);
+    }
+
+    @Override
+    protected void removeSong(long id) {
+        index.remove(id);
+    }
+
+    @Override
+    protected void resetIndex() {
+        index = new FuzzySearchIndex(maxCandidates, mergeThreshold, typoThreshold);
+    }
+
+    @Override
+    protected void afterBuild() {
+        index.finishBulkLoad();
+    }
+
+    @Override
+    protected int indexedSongs() {
+        return index.size();
+    }
+}
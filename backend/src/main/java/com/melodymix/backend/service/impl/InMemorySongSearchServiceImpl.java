@@ -0,0 +1,53 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.search.NgramIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * 基于进程内 n-gram 倒排索引的歌曲搜索，同时匹配标题、歌手和专辑，结果按相关度排序。
+ * 索引在启动后构建（构建完成前退回数据库 LIKE 查询），之后通过 SongChangedEvent 在事务提交后增量维护。
+ * 每个实例各自持有一份索引，只能感知本实例上的修改，多实例部署请使用 fulltext 模式。
+ */
+@Service
+@ConditionalOnProperty(prefix = "search", name = "mode", havingValue = "memory")
+public class InMemorySongSearchServiceImpl extends AbstractIndexedSongSearchService {
+
+    // 构建失败重试时整体替换
+    private volatile NgramIndex index = new NgramIndex();
+
+    public InMemorySongSearchServiceImpl(
+            SongRepository songRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${search.memory.build-batch-size}") int buildBatchSize) {
+        super(songRepository, transactionManager, buildBatchSize, "search-index-build", "歌曲搜索索引");
+    }
+
+    @Override
+    protected NgramIndex.SearchResult searchIndex(String keyword, int offset, int limit) {
+        return index.search(keyword, offset, limit);
+    }
+
+    @Override
+    protected void putSong(long id, String title, String artist, String album) {
+        index.put(id, title, artist, album);
+    }
+
+    @Override
+    protected void removeSong(long id) {
+        index.remove(id);
+    }
+
+    @Override
+    protected void resetIndex() {
+        index = new NgramIndex();
+    }
+
+    @Override
+    protected int indexedSongs() {
+        return index.size();
+    }
+}
@@ -0,0 +1,26 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.service.SongSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+/**
+ * 原有的 LIKE '%keyword%' 标题搜索，无需任何索引，数据量小时足够使用
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "search", name = "mode", havingValue = "like", matchIfMissing = true)
+public class LikeSongSearchServiceImpl implements SongSearchService {
+
+    private final SongRepository songRepository;
+
+    @Override
+    public Page<Song> search(String keyword, Pageable pageable) {
+        return songRepository.findByTitleContainingIgnoreCase(keyword, pageable);
+    }
+}
@@ -0,0 +1,311 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.service.MediaCacheService;
+import com.melodymix.backend.service.MediaCacheService.CachedMedia;
+import com.melodymix.backend.service.MediaStreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class MediaStreamingServiceImpl implements MediaStreamingService {
+
+    // Tomcat NIO 连接器的 sendfile 约定属性，由容器在响应结束后直接用 sendfile 输出文件区间
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // 文件名即内容哈希，同一 URL 的内容永远不会变化，浏览器和 CDN 可以缓存一年且无需再验证
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE_CACHE_CONTROL = "no-cache";
+
+    // 未启用 file.cache 时为 null
+    private final MediaCacheService mediaCacheService;
+
+    public MediaStreamingServiceImpl(ObjectProvider<MediaCacheService> mediaCacheService) {
+        this.mediaCacheService = mediaCacheService.getIfAvailable();
+    }
+
+    @Override
+    public void streamFile(Path file, String contentTag, boolean immutable,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = quote(contentTag);
+        String cacheControl = immutable ? IMMUTABLE_CACHE_CONTROL : REVALIDATE_CACHE_CONTROL;
+        if (checkNotModified(contentTag, cacheControl, request, response)) {
+            return;
+        }
+
+        // 命中内存缓存时直接从堆外内存输出，不再访问文件系统
+        CachedMedia cached = mediaCacheService == null ? null : mediaCacheService.getOrLoad(file);
+        long fileLength;
+        long lastModified;
+        if (cached != null) {
+            fileLength = cached.content().remaining();
+            lastModified = cached.lastModified();
+        } else {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            fileLength = attributes.size();
+            lastModified = attributes.lastModifiedTime().toMillis();
+        }
+        MediaType contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        writeCacheHeaders(etag, cacheControl, response);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+        List<HttpRange> ranges = resolveRanges(request, etag, lastModified);
+        boolean headRequest = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        // 1. 没有 Range（或 If-Range 校验失败）时返回完整文件
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType.toString());
+            response.setContentLengthLong(fileLength);
+            if (!headRequest) {
+                writeRegion(file, cached, 0, fileLength, request, response);
+            }
+            return;
+        }
+
+        // 2. 把 HttpRange 转成具体的 [start, end] 区间，任何一个越界都返回 416
+        List<long[]> regions = new ArrayList<>(ranges.size());
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(fileLength);
+                end = range.getRangeEnd(fileLength);
+            } catch (IllegalArgumentException ex) {
+                start = -1;
+                end = -1;
+            }
+            if (start < 0 || start > end || start >= fileLength) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+                return;
+            }
+            regions.add(new long[]{start, end});
+        }
+        // 与 Spring 的 HttpRange.toResourceRegions 一致：多段范围加起来不能覆盖整个文件，
+        // 另外也不接受相互重叠的范围，防止用很小的请求放大出远大于文件本身的响应
+        if (regions.size() > 1 && !isValidMultipartRanges(regions, fileLength)) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        // 3. 单段范围：最常见的拖动进度条场景
+        if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            response.setContentType(contentType.toString());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileLength);
+            response.setContentLengthLong(end - start + 1);
+            if (!headRequest) {
+                writeRegion(file, cached, start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        // 4. 多段范围：multipart/byteranges
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (long[] region : regions) {
+            String partHeader = "\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + region[0] + "-" + region[1] + "/" + fileLength + "\r\n\r\n";
+            byte[] headerBytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(headerBytes);
+            contentLength += headerBytes.length + (region[1] - region[0] + 1);
+        }
+        byte[] closingBoundary = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closingBoundary.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headRequest) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        if (cached != null) {
+            for (int i = 0; i < regions.size(); i++) {
+                out.write(partHeaders.get(i));
+                long start = regions.get(i)[0];
+                transfer(cached.content(), start, regions.get(i)[1] - start + 1, target);
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < regions.size(); i++) {
+                    out.write(partHeaders.get(i));
+                    long start = regions.get(i)[0];
+                    transfer(channel, start, regions.get(i)[1] - start + 1, target);
+                }
+            }
+        }
+        out.write(closingBoundary);
+        out.flush();
+    }
+
+    @Override
+    public boolean checkNotModified(String contentTag, HttpServletRequest request, HttpServletResponse response) {
+        return checkNotModified(contentTag, IMMUTABLE_CACHE_CONTROL, request, response);
+    }
+
+    private boolean checkNotModified(String contentTag, String cacheControl,
+                                     HttpServletRequest request, HttpServletResponse response) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String etag = quote(contentTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            // If-None-Match 使用弱比较：忽略 W/ 前缀
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                writeCacheHeaders(etag, cacheControl, response);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeCacheHeaders(String etag, String cacheControl, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+    }
+
+    private String quote(String contentTag) {
+        return "\"" + contentTag + "\"";
+    }
+
+    /**
+     * 解析 Range 请求头；如果 If-Range 与当前文件版本不一致，则按规范忽略 Range 返回完整内容。
+     * 语法错误的 Range 同样被忽略，而不是报错。
+     */
+    private List<HttpRange> resolveRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.isBlank()) {
+            ifRange = ifRange.trim();
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                // If-Range 只允许强校验：弱 ETag 永远不匹配
+                if (!ifRange.equals(etag)) {
+                    return List.of();
+                }
+            } else {
+                long ifRangeDate;
+                try {
+                    ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+                } catch (IllegalArgumentException ex) {
+                    return List.of();
+                }
+                // HTTP 日期只精确到秒
+                if (ifRangeDate == -1 || lastModified / 1000 != ifRangeDate / 1000) {
+                    return List.of();
+                }
+            }
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException ex) {
+            return List.of();
+        }
+    }
+
+    private boolean isValidMultipartRanges(List<long[]> regions, long fileLength) {
+        List<long[]> sorted = new ArrayList<>(regions);
+        sorted.sort((a, b) -> Long.compare(a[0], b[0]));
+        long total = 0;
+        long previousEnd = -1;
+        for (long[] region : sorted) {
+            if (region[0] <= previousEnd) {
+                return false;
+            }
+            previousEnd = region[1];
+            total += region[1] - region[0] + 1;
+        }
+        return total < fileLength;
+    }
+
+    /**
+     * 输出单个文件区间。已缓存的文件直接从内存输出；容器支持 sendfile 时交给 Tomcat 直接由内核输出（零拷贝），
+     * 否则用 FileChannel.transferTo 写入包装了响应输出流的通道。这条路径并不是零拷贝：目标不是文件或套接字通道，
+     * JDK 会经过一个小的临时缓冲区逐段读出再写入输出流，只是避免了按区间大小分配缓冲区。
+     */
+    private void writeRegion(Path file, CachedMedia cached, long start, long length,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (cached != null) {
+            OutputStream out = response.getOutputStream();
+            transfer(cached.content(), start, length, Channels.newChannel(out));
+            out.flush();
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR)) && !response.isCommitted()) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, length, Channels.newChannel(out));
+        }
+        out.flush();
+    }
+
+    private void transfer(ByteBuffer content, long position, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer region = content.duplicate();
+        region.position((int) position).limit((int) (position + count));
+        while (region.hasRemaining()) {
+            target.write(region);
+        }
+    }
+
+    private void transfer(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long transferred = channel.transferTo(position, count, target);
+            if (transferred <= 0) {
+                throw new IOException("文件在传输过程中被截断");
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+}
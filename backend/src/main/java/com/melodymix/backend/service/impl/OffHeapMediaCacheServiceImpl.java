@@ -0,0 +1,131 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.cache.WindowTinyLfuCache;
+import com.melodymix.backend.event.MediaFileDeletedEvent;
+import com.melodymix.backend.service.MediaCacheService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 W-TinyLFU 的堆外媒体缓存。每个条目是一个 direct ByteBuffer，不占用 Java 堆，也不会被 GC 复制。
+ * 注意 JVM 的 -XX:MaxDirectMemorySize 需要大于 file.cache.max-size。
+ * 上传文件一经写入不再修改，所以缓存只需在文件被删除时失效。
+ */
+@Service
+@ConditionalOnProperty(prefix = "file.cache", name = "enabled", havingValue = "true")
+public class OffHeapMediaCacheServiceImpl implements MediaCacheService {
+
+    // 仅用于估算频率统计表的大小
+    private static final long AVERAGE_ENTRY_BYTES = 64 * 1024;
+    // 未命中时，近期至少被访问过这么多次（包括本次）才读入缓存；只访问一次的文件不分配堆外内存、不读整个文件
+    private static final int MIN_LOAD_FREQUENCY = 2;
+    // 失效计数按路径哈希分段，不同文件落在同一段只会多放弃一次缓存
+    private static final int INVALIDATION_STRIPES = 64;
+
+    private final long maxEntryBytes;
+    private final WindowTinyLfuCache<Path, CachedMedia> cache;
+    private final LongAdder skippedLoads = new LongAdder();
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    public OffHeapMediaCacheServiceImpl(
+            @Value("${file.cache.max-size}") DataSize maxSize,
+            @Value("${file.cache.max-entry-size}") DataSize maxEntrySize,
+            MeterRegistry meterRegistry) {
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        int expectedEntries = (int) Math.min(Integer.MAX_VALUE, maxSize.toBytes() / AVERAGE_ENTRY_BYTES);
+        this.cache = new WindowTinyLfuCache<>(maxSize.toBytes(), maxEntryBytes, expectedEntries,
+                media -> media.content().capacity());
+
+        FunctionCounter.builder("melodymix.media.cache.requests", cache, WindowTinyLfuCache::hitCount)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("melodymix.media.cache.requests", cache, WindowTinyLfuCache::missCount)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("melodymix.media.cache.evictions", cache, WindowTinyLfuCache::evictionCount)
+                .description("被更热的条目挤出主区的缓存条目数").register(meterRegistry);
+        FunctionCounter.builder("melodymix.media.cache.rejections", cache, WindowTinyLfuCache::rejectionCount)
+                .description("离开窗口区时未通过频率准入的条目数").register(meterRegistry);
+        FunctionCounter.builder("melodymix.media.cache.skipped.loads", skippedLoads, LongAdder::sum)
+                .description("访问频率不足、未命中后直接从文件输出的请求数").register(meterRegistry);
+        Gauge.builder("melodymix.media.cache.size", cache, WindowTinyLfuCache::weightedSize)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("melodymix.media.cache.entries", cache, WindowTinyLfuCache::entryCount)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CachedMedia getOrLoad(Path file) throws IOException {
+        CachedMedia cached = cache.get(file);
+        if (cached != null) {
+            return readOnlyView(cached);
+        }
+        // 先按频率过滤，再分配内存、读文件：一次性访问（扫库、爬虫）只会走 sendfile，不会把整个文件读进堆外内存
+        if (cache.frequency(file) < MIN_LOAD_FREQUENCY) {
+            skippedLoads.increment();
+            return null;
+        }
+
+        // 读文件期间文件可能被删除并失效，记下开始读取前的失效计数，放入缓存后再核对
+        int stripe = stripeOf(file);
+        long generation = invalidations.get(stripe);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() > maxEntryBytes) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) attributes.size());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    // 文件在读取过程中被截断，不缓存
+                    return null;
+                }
+            }
+        }
+        buffer.flip();
+        CachedMedia loaded = new CachedMedia(buffer, attributes.lastModifiedTime().toMillis());
+        cache.put(file, loaded);
+        // 失效发生在核对之后时，它的 remove 一定在这次 put 之后执行；发生在核对之前时由这里撤销
+        if (invalidations.get(stripe) != generation) {
+            cache.remove(file);
+        }
+        return readOnlyView(loaded);
+    }
+
+    @Override
+    public void invalidate(Path file) {
+        // 先增加计数再移除，正在读取该文件的 getOrLoad 据此放弃已放入的条目
+        invalidations.incrementAndGet(stripeOf(file));
+        cache.remove(file);
+    }
+
+    @EventListener
+    public void onMediaFileDeleted(MediaFileDeletedEvent event) {
+        invalidate(event.file());
+    }
+
+    private static int stripeOf(Path file) {
+        return Math.floorMod(file.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    /**
+     * 每次请求使用独立的只读视图，并发输出同一条目时互不影响 position
+     */
+    private CachedMedia readOnlyView(CachedMedia media) {
+        return new CachedMedia(media.content().asReadOnlyBuffer(), media.lastModified());
+    }
+}
@@ -0,0 +1,220 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.exception.FileOperationException;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.service.CoverImageService;
+import com.melodymix.backend.service.FileStorageService;
+import com.melodymix.backend.service.OrphanFileService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 孤儿文件回收。按目录增量遍历存储树，每次调度只处理有限数量的文件（限速），
+ * 文件名按批次到数据库中核对引用，超过宽限期且无人引用的文件才会被删除。
+ * 遍历进度只保存在内存中，重启后从头开始一轮新的遍历。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "file.gc", name = "enabled", havingValue = "true")
+public class OrphanFileServiceImpl implements OrphanFileService {
+
+    private final FileStorageService fileStorageService;
+    private final CoverImageService coverImageService;
+    private final SongRepository songRepository;
+
+    private final boolean dryRun;
+    private final Duration gracePeriod;
+    private final int filesPerRun;
+    private final int batchSize;
+
+    private final Counter scannedFiles;
+    private final Counter reclaimedFiles;
+    private final Counter reclaimedBytes;
+
+    // 遍历状态：待访问的目录和当前目录中待检查的文件
+    private final Deque<Path> pendingDirectories = new ArrayDeque<>();
+    private final Deque<Path> pendingFiles = new ArrayDeque<>();
+    private long passReclaimedFiles;
+    private long passReclaimedBytes;
+
+    public OrphanFileServiceImpl(
+            FileStorageService fileStorageService,
+            CoverImageService coverImageService,
+            SongRepository songRepository,
+            MeterRegistry meterRegistry,
+            @Value("${file.gc.dry-run}") boolean dryRun,
+            @Value("${file.gc.grace-period}") Duration gracePeriod,
+            @Value("${file.gc.files-per-run}") int filesPerRun,
+            @Value("${file.gc.batch-size}") int batchSize) {
+        this.fileStorageService = fileStorageService;
+        this.coverImageService = coverImageService;
+        this.songRepository = songRepository;
+        this.dryRun = dryRun;
+        this.gracePeriod = gracePeriod;
+        this.filesPerRun = filesPerRun;
+        this.batchSize = batchSize;
+
+        String mode = dryRun ? "dry-run" : "delete";
+        this.scannedFiles = Counter.builder("melodymix.uploads.gc.scanned")
+                .description("孤儿文件回收检查过的文件数").register(meterRegistry);
+        this.reclaimedFiles = Counter.builder("melodymix.uploads.gc.reclaimed.files")
+                .tag("mode", mode).register(meterRegistry);
+        this.reclaimedBytes = Counter.builder("melodymix.uploads.gc.reclaimed.bytes")
+                .tag("mode", mode).baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${file.gc.interval}")
+    public void scheduledSweep() {
+        try {
+            sweep();
+        } catch (Exception ex) {
+            // 遍历状态保留，下次调度继续
+            log.warn("孤儿文件回收失败: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized int sweep() {
+        int budget = filesPerRun;
+        int reclaimed = 0;
+        while (budget > 0) {
+            if (pendingFiles.isEmpty()) {
+                Path directory = pendingDirectories.poll();
+                if (directory == null) {
+                    finishPass();
+                    break;
+                }
+                listDirectory(directory);
+                continue;
+            }
+
+            List<Path> batch = new ArrayList<>(Math.min(batchSize, budget));
+            while (batch.size() < Math.min(batchSize, budget) && !pendingFiles.isEmpty()) {
+                batch.add(pendingFiles.poll());
+            }
+            budget -= batch.size();
+            reclaimed += processBatch(batch);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * 一轮遍历结束时输出汇总，并把存储根目录放回队列开始下一轮（下一次调度时执行）
+     */
+    private void finishPass() {
+        if (passReclaimedFiles > 0) {
+            log.info("孤儿文件回收{}: 本轮{} {} 个文件, 共 {} 字节",
+                    dryRun ? "(dry-run)" : "", dryRun ? "发现" : "回收", passReclaimedFiles, passReclaimedBytes);
+        }
+        passReclaimedFiles = 0;
+        passReclaimedBytes = 0;
+        pendingDirectories.addAll(fileStorageService.getStorageLocations());
+    }
+
+    private void listDirectory(Path directory) {
+        List<Path> files = new ArrayList<>();
+        Set<String> baseNames = new HashSet<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                // .tmp（上传中的临时文件）、.sha256（哈希索引）等内部文件不参与回收
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                if (Files.isDirectory(entry)) {
+                    pendingDirectories.push(entry);
+                } else {
+                    files.add(entry);
+                    int dot = name.lastIndexOf('.');
+                    baseNames.add(dot > 0 ? name.substring(0, dot) : name);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("孤儿文件回收: 无法读取目录 {}: {}", directory, ex.getMessage());
+            return;
+        }
+
+        for (Path file : files) {
+            // 原图还在的缩略图随原图一起处理；原图已不存在的缩略图，以及以前由缩略图再生成的缩略图
+            // （abc_64_64.jpg，原图 abc_64.jpg 本身是缩略图）当作普通文件检查，它们不会被歌曲引用，过了宽限期即被回收
+            String baseName = coverImageService.getDerivativeBaseName(file.getFileName().toString());
+            if (baseName != null && baseNames.contains(baseName)
+                    && coverImageService.getDerivativeBaseName(baseName + ".jpg") == null) {
+                continue;
+            }
+            pendingFiles.add(file);
+        }
+    }
+
+    private int processBatch(List<Path> batch) {
+        long cutoff = System.currentTimeMillis() - gracePeriod.toMillis();
+        Map<String, Path> candidates = new LinkedHashMap<>();
+        Map<Path, Long> sizes = new LinkedHashMap<>();
+        for (Path file : batch) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                // 宽限期内的文件可能刚上传、还没来得及创建歌曲
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toMillis() < cutoff) {
+                    candidates.put(file.getFileName().toString(), file);
+                    sizes.put(file, attributes.size());
+                }
+            } catch (IOException ignored) {
+                // 文件已被删除
+            }
+        }
+        scannedFiles.increment(batch.size());
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+
+        // 同名文件（内容寻址下同一哈希）只要有一个被引用就都保留，按文件名核对即可
+        for (String referenced : songRepository.findReferencedFileNames(candidates.keySet())) {
+            candidates.remove(referenced);
+        }
+
+        int reclaimed = 0;
+        for (Path file : candidates.values()) {
+            long size = sizes.get(file);
+            if (dryRun) {
+                log.info("孤儿文件回收(dry-run): 将删除 {} ({} 字节)", file, size);
+            } else {
+                try {
+                    if (!fileStorageService.deleteIfUnreferenced(file).deleted()) {
+                        // 删除前会再检查一次引用，期间被新歌曲引用的文件不会被删除
+                        continue;
+                    }
+                } catch (FileOperationException ex) {
+                    // 下一轮遍历时再试
+                    log.warn("孤儿文件回收: 删除 {} 失败: {}", file, ex.getMessage());
+                    continue;
+                }
+            }
+            reclaimed++;
+            passReclaimedFiles++;
+            passReclaimedBytes += size;
+            reclaimedFiles.increment();
+            reclaimedBytes.increment(size);
+        }
+        return reclaimed;
+    }
+}
@@ -1,56 +1,215 @@
 package com.melodymix.backend.service.impl;
 
+import com.melodymix.backend.dto.CursorSlice;
+import com.melodymix.backend.dto.PlaylistBatchItemResult;
+import com.melodymix.backend.dto.PlaylistBatchOperation;
+import com.melodymix.backend.dto.PlaylistBatchResponse;
+import com.melodymix.backend.dto.PlaylistSummary;
+import com.melodymix.backend.dto.PlaylistTrack;
 import com.melodymix.backend.model.Playlist;
+import com.melodymix.backend.model.PlaylistEntry;
 import com.melodymix.backend.model.Song;
 import com.melodymix.backend.model.User;
+import com.melodymix.backend.repository.PlaylistEntryRepository;
 import com.melodymix.backend.repository.PlaylistRepository;
 import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.pagination.Cursor;
+import com.melodymix.backend.playlist.PlaylistOrder;
 import com.melodymix.backend.service.PlaylistService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional; // 1. 新增导入
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PlaylistServiceImpl implements PlaylistService {
 
+    // 播放列表歌曲游标的排序标识：游标的 id 是播放列表项 ID，key 是它当时的位置
+    private static final String PLAYLIST_SONGS_SORT = "PLAYLIST_POSITION";
+
+    // 单项操作与批量操作（PlaylistOrder）使用相同的间隔规则
+    private static final long POSITION_GAP = PlaylistOrder.POSITION_GAP;
+    private static final long REBALANCE_THRESHOLD = PlaylistOrder.REBALANCE_THRESHOLD;
+
     private final PlaylistRepository playlistRepository;
+    private final PlaylistEntryRepository playlistEntryRepository;
     private final SongRepository songRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // 等待后台重新编号的播放列表。只在内存中：进程重启后丢失也没关系，间隔用完时请求内会同步重新编号
+    private final Set<Long> rebalanceRequested = ConcurrentHashMap.newKeySet();
 
-    // --- (createPlaylist, getPlaylistsByUser, addSongToPlaylist, deletePlaylist, updatePlaylist 方法保持不变) ---
     @Override
     @Transactional
-    public Playlist createPlaylist(String name, String description, User owner) {
+    public PlaylistSummary createPlaylist(String name, String description, User owner) {
         Playlist playlist = Playlist.builder()
                 .name(name)
                 .description(description)
                 .owner(owner)
+                .trackCount(0L)
+                .totalDuration(0L)
                 .build();
-        return playlistRepository.save(playlist);
+        return toSummary(playlistRepository.save(playlist));
     }
+
     @Override
-    public List<Playlist> getPlaylistsByUser(User user) {
-        return playlistRepository.findByOwnerId(user.getId());
+    @Transactional(readOnly = true)
+    public List<PlaylistSummary> getPlaylistsByUser(User user) {
+        return playlistRepository.findSummariesByOwnerId(user.getId());
     }
+
     @Override
     @Transactional
-    public Playlist addSongToPlaylist(Long playlistId, Long songId, User user) {
-        Playlist playlist = playlistRepository.findById(playlistId)
-                .orElseThrow(() -> new EntityNotFoundException("播放列表未找到，ID: " + playlistId));
+    public PlaylistSummary addSongToPlaylist(Long playlistId, Long songId, Long afterEntryId, User user) {
+        Playlist playlist = lockOwnedPlaylist(playlistId, user);
         Song song = songRepository.findById(songId)
                 .orElseThrow(() -> new EntityNotFoundException("歌曲未找到，ID: " + songId));
-        if (!Objects.equals(playlist.getOwner().getId(), user.getId())) {
-            throw new AccessDeniedException("您没有权限修改此播放列表");
+        // 只插入一行、更新一次播放列表的计数，已有的项不受影响
+        playlistEntryRepository.save(PlaylistEntry.builder()
+                .playlist(playlist)
+                .song(song)
+                .position(positionAfter(playlistId, afterEntryId, null))
+                .build());
+        playlistRepository.addToStats(playlistId, 1, durationOf(song.getDuration()));
+        return playlistRepository.findSummaryById(playlistId).orElseThrow();
+    }
+
+    @Override
+    @Transactional
+    public void moveEntry(Long playlistId, Long entryId, Long afterEntryId, User currentUser) {
+        lockOwnedPlaylist(playlistId, currentUser);
+        playlistEntryRepository.findSlot(playlistId, entryId)
+                .orElseThrow(() -> new EntityNotFoundException("播放列表项未找到，ID: " + entryId));
+        Long anchor = afterEntryId == null ? 0L : afterEntryId;
+        if (anchor.equals(entryId)) {
+            return;
         }
-        playlist.getSongs().add(song);
-        return playlistRepository.save(playlist);
+        // 只改被移动的这一行的位置
+        playlistEntryRepository.updatePosition(entryId, positionAfter(playlistId, anchor, entryId));
     }
+
+    @Override
+    @Transactional
+    public void removeEntry(Long playlistId, Long entryId, User currentUser) {
+        lockOwnedPlaylist(playlistId, currentUser);
+        playlistEntryRepository.findSlot(playlistId, entryId)
+                .orElseThrow(() -> new EntityNotFoundException("播放列表项未找到，ID: " + entryId));
+        deleteEntries(List.of(entryId));
+    }
+
+    @Override
+    @Transactional
+    public PlaylistBatchResponse applyBatch(Long playlistId, List<PlaylistBatchOperation> operations, User currentUser) {
+        lockOwnedPlaylist(playlistId, currentUser);
+        // 一次 IN 查询校验所有要添加的歌曲，同时拿到时长
+        Set<Long> songIds = operations.stream()
+                .filter(op -> op.getType() == PlaylistBatchOperation.Type.ADD && op.getSongId() != null)
+                .map(PlaylistBatchOperation::getSongId)
+                .collect(Collectors.toSet());
+        Map<Long, Song> songs = songRepository.findAllById(songIds).stream()
+                .collect(Collectors.toMap(Song::getId, Function.identity()));
+
+        // 所有操作先在内存中计算位置，最后只写回变化的行
+        PlaylistOrder order = new PlaylistOrder();
+        for (PlaylistEntryRepository.Slot slot : playlistEntryRepository.findSlotsInOrder(playlistId)) {
+            order.load(slot.getId(), slot.getPosition());
+        }
+        List<PlaylistBatchItemResult> results = new ArrayList<>(operations.size());
+        Map<Long, PlaylistBatchItemResult> added = new LinkedHashMap<>(); // 临时 id -> 结果，插入后回填真实 id
+        Map<Long, Song> addedSongs = new HashMap<>();
+        List<Long> removed = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            PlaylistBatchOperation op = operations.get(i);
+            PlaylistBatchItemResult result = PlaylistBatchItemResult.builder().index(i).success(true).build();
+            try {
+                checkEntryId(op.getAfterEntryId());
+                switch (op.getType()) {
+                    case ADD -> {
+                        Song song = op.getSongId() == null ? null : songs.get(op.getSongId());
+                        if (song == null) {
+                            throw new IllegalArgumentException("歌曲未找到，ID: " + op.getSongId());
+                        }
+                        long temporaryId = order.insert(op.getAfterEntryId());
+                        added.put(temporaryId, result);
+                        addedSongs.put(temporaryId, song);
+                    }
+                    case REMOVE -> {
+                        order.remove(requireEntryId(op));
+                        removed.add(op.getEntryId());
+                        result.setEntryId(op.getEntryId());
+                    }
+                    case MOVE -> {
+                        order.move(requireEntryId(op), op.getAfterEntryId());
+                        result.setEntryId(op.getEntryId());
+                    }
+                }
+            } catch (IllegalArgumentException ex) {
+                result.setSuccess(false);
+                result.setError(ex.getMessage());
+            }
+            results.add(result);
+        }
+
+        if (!removed.isEmpty()) {
+            deleteEntries(removed);
+        }
+        List<Object[]> moves = new ArrayList<>();
+        order.movedExisting().forEach((entryId, position) -> moves.add(new Object[]{position, entryId}));
+        if (!moves.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE playlist_entries SET position = ? WHERE id = ?", moves);
+        }
+        if (!added.isEmpty()) {
+            List<Long> temporaryIds = List.copyOf(added.keySet());
+            long[] entryIds = insertEntries(playlistId, temporaryIds, addedSongs, order);
+            long duration = 0;
+            for (int i = 0; i < temporaryIds.size(); i++) {
+                added.get(temporaryIds.get(i)).setEntryId(entryIds[i]);
+                duration += durationOf(addedSongs.get(temporaryIds.get(i)).getDuration());
+            }
+            playlistRepository.addToStats(playlistId, temporaryIds.size(), duration);
+        }
+        if (order.isCrowded()) {
+            rebalanceRequested.add(playlistId);
+        }
+
+        int succeeded = (int) results.stream().filter(PlaylistBatchItemResult::isSuccess).count();
+        return PlaylistBatchResponse.builder()
+                .playlist(playlistRepository.findSummaryById(playlistId).orElseThrow())
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .results(results)
+                .build();
+    }
+
     @Override
     @Transactional
     public void deletePlaylist(Long playlistId, User currentUser) {
@@ -59,11 +218,13 @@ public class PlaylistServiceImpl implements PlaylistService {
         if (!Objects.equals(playlist.getOwner().getId(), currentUser.getId())) {
             throw new AccessDeniedException("您没有权限删除此播放列表");
         }
+        // 播放列表项由外键 ON DELETE CASCADE 删除
         playlistRepository.delete(playlist);
     }
+
     @Override
     @Transactional
-    public Playlist updatePlaylist(Long playlistId, String newName, String newDescription, User currentUser) {
+    public PlaylistSummary updatePlaylist(Long playlistId, String newName, String newDescription, User currentUser) {
         Playlist playlist = playlistRepository.findById(playlistId)
                 .orElseThrow(() -> new EntityNotFoundException("播放列表未找到，ID: " + playlistId));
         if (!Objects.equals(playlist.getOwner().getId(), currentUser.getId())) {
@@ -71,42 +232,269 @@ public class PlaylistServiceImpl implements PlaylistService {
         }
         playlist.setName(newName);
         playlist.setDescription(newDescription);
-        return playlistRepository.save(playlist);
+        playlistRepository.saveAndFlush(playlist);
+        return playlistRepository.findSummaryById(playlistId).orElseThrow();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PlaylistSummary getPlaylistById(Long playlistId) {
+        return playlistRepository.findSummaryById(playlistId)
+                .orElseThrow(() -> new EntityNotFoundException("播放列表未找到，ID: " + playlistId));
     }
-    // --- (以上方法保持不变) ---
 
-    // --- 2. 在类的末尾添加新方法的实现 ---
+    @Override
+    @Transactional(readOnly = true)
+    public CursorSlice<PlaylistTrack> getPlaylistTracks(Long playlistId, String cursor, int size) {
+        if (!playlistRepository.existsById(playlistId)) {
+            throw new EntityNotFoundException("播放列表未找到，ID: " + playlistId);
+        }
+        long afterPosition = Long.MIN_VALUE;
+        long afterEntryId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            Cursor decoded = Cursor.decode(cursor, PLAYLIST_SONGS_SORT);
+            afterEntryId = decoded.id();
+            // 重新编号会改变位置：上一页最后一项还在就用它现在的位置，已被删除才用游标中记录的位置
+            afterPosition = playlistEntryRepository.findSlot(playlistId, afterEntryId)
+                    .map(PlaylistEntryRepository.Slot::getPosition)
+                    .orElseGet(() -> parsePosition(decoded));
+        }
+        Slice<PlaylistEntry> slice = playlistEntryRepository.findWithSongsAfter(
+                playlistId, afterPosition, afterEntryId, PageRequest.of(0, size));
+        List<PlaylistEntry> entries = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            PlaylistEntry last = entries.get(entries.size() - 1);
+            nextCursor = new Cursor(PLAYLIST_SONGS_SORT, last.getId(), Long.toString(last.getPosition())).encode();
+        }
+        return CursorSlice.<PlaylistTrack>builder()
+                .content(entries.stream().map(PlaylistServiceImpl::toTrack).toList())
+                .nextCursor(nextCursor)
+                .hasNext(slice.hasNext())
+                .build();
+    }
 
     @Override
-    public Optional<Playlist> getPlaylistById(Long playlistId) {
-        return playlistRepository.findById(playlistId);
+    @Transactional(readOnly = true)
+    public CursorSlice<Song> getPlaylistSongs(Long playlistId, String cursor, int size) {
+        CursorSlice<PlaylistTrack> tracks = getPlaylistTracks(playlistId, cursor, size);
+        return CursorSlice.<Song>builder()
+                .content(tracks.getContent().stream().map(PlaylistTrack::getSong).toList())
+                .nextCursor(tracks.getNextCursor())
+                .hasNext(tracks.isHasNext())
+                .build();
     }
 
     @Override
     @Transactional
     public void removeSongFromPlaylist(Long playlistId, Long songId, User currentUser) {
-        // 查找播放列表
-        Playlist playlist = playlistRepository.findById(playlistId)
-                .orElseThrow(() -> new EntityNotFoundException("播放列表未找到，ID: " + playlistId));
+        lockOwnedPlaylist(playlistId, currentUser);
+        // 同一首歌出现多次时全部移除；只移除其中一项用 removeEntry
+        List<Long> entryIds = playlistEntryRepository.findIdsByPlaylistIdAndSongId(playlistId, songId);
+        if (entryIds.isEmpty()) {
+            throw new EntityNotFoundException("该歌曲不在播放列表中，无法移除。歌曲ID: " + songId);
+        }
+        deleteEntries(entryIds);
+    }
 
-        // 验证用户权限，只有所有者才能移除歌曲
-        if (!Objects.equals(playlist.getOwner().getId(), currentUser.getId())) {
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int removeEntriesOfSongs(Collection<Long> songIds, int limit) {
+        List<Long> entryIds = playlistEntryRepository.findIdsBySongIdIn(songIds, PageRequest.of(0, limit));
+        if (!entryIds.isEmpty()) {
+            deleteEntries(entryIds);
+        }
+        return entryIds.size();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void applySongDurationChange(Long songId, Integer oldDuration, Integer newDuration) {
+        long delta = durationOf(newDuration) - durationOf(oldDuration);
+        if (delta != 0) {
+            playlistRepository.applySongDurationChange(songId, delta);
+        }
+    }
+
+    /**
+     * 后台重新编号：把插入时发现间隔过小的播放列表的位置重新拉开，每个播放列表一个事务
+     */
+    @Scheduled(fixedDelayString = "${playlist.rebalance-interval}")
+    public void rebalanceRequestedPlaylists() {
+        for (Long playlistId : List.copyOf(rebalanceRequested)) {
+            rebalanceRequested.remove(playlistId);
+            transactionTemplate.executeWithoutResult(status -> {
+                if (playlistRepository.findForUpdateById(playlistId).isPresent()) {
+                    renumber(playlistId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 锁住播放列表并检查所有者，之后对播放列表项的修改不会与其他请求交错
+     */
+    private Playlist lockOwnedPlaylist(Long playlistId, User user) {
+        Playlist playlist = playlistRepository.findForUpdateById(playlistId)
+                .orElseThrow(() -> new EntityNotFoundException("播放列表未找到，ID: " + playlistId));
+        if (!Objects.equals(playlist.getOwner().getId(), user.getId())) {
             throw new AccessDeniedException("您没有权限修改此播放列表");
         }
+        return playlist;
+    }
 
-        // 查找要移除的歌曲
-        Song songToRemove = songRepository.findById(songId)
-                .orElseThrow(() -> new EntityNotFoundException("歌曲未找到，ID: " + songId));
+    /**
+     * 计算放在 afterEntryId 之后的位置：null 表示末尾，0 表示最前面。
+     * 取与下一项的中点，只读锚点和下一项两行；两者之间没有空位时先同步重新编号再取。
+     * 同步重新编号在调用方的事务中、持有播放列表行锁的情况下改写整个播放列表的所有项，
+     * 不能挪到单独的事务：新事务拿不到调用方持有的行锁。间隔过小时提前排队后台重新编号，尽量避免走到这一步。
+     * @param movingEntryId 正在移动的项，查找相邻项时跳过它；插入新项时为 null
+     */
+    private long positionAfter(Long playlistId, Long afterEntryId, Long movingEntryId) {
+        Long position = tryPositionAfter(playlistId, afterEntryId, movingEntryId);
+        if (position == null) {
+            renumber(playlistId);
+            position = tryPositionAfter(playlistId, afterEntryId, movingEntryId);
+        }
+        return position;
+    }
+
+    private Long tryPositionAfter(Long playlistId, Long afterEntryId, Long movingEntryId) {
+        if (afterEntryId == null) {
+            PlaylistEntryRepository.Slot last = firstOther(
+                    playlistEntryRepository.findLastSlots(playlistId, PageRequest.of(0, 2)), movingEntryId);
+            if (last == null) {
+                return POSITION_GAP;
+            }
+            return last.getPosition() > Long.MAX_VALUE - POSITION_GAP ? null : last.getPosition() + POSITION_GAP;
+        }
+        if (afterEntryId == 0) {
+            PlaylistEntryRepository.Slot first = firstOther(
+                    playlistEntryRepository.findFirstSlots(playlistId, PageRequest.of(0, 2)), movingEntryId);
+            if (first == null) {
+                return POSITION_GAP;
+            }
+            return first.getPosition() < Long.MIN_VALUE + POSITION_GAP ? null : first.getPosition() - POSITION_GAP;
+        }
+        PlaylistEntryRepository.Slot anchor = playlistEntryRepository.findSlot(playlistId, afterEntryId)
+                .orElseThrow(() -> new EntityNotFoundException("播放列表项未找到，ID: " + afterEntryId));
+        PlaylistEntryRepository.Slot next = firstOther(playlistEntryRepository.findSlotsAfter(
+                playlistId, anchor.getPosition(), anchor.getId(), PageRequest.of(0, 2)), movingEntryId);
+        if (next == null) {
+            return anchor.getPosition() > Long.MAX_VALUE - POSITION_GAP ? null : anchor.getPosition() + POSITION_GAP;
+        }
+        long gap = next.getPosition() - anchor.getPosition();
+        if (gap < 2) {
+            return null;
+        }
+        if (gap / 2 < REBALANCE_THRESHOLD) {
+            rebalanceRequested.add(playlistId);
+        }
+        return anchor.getPosition() + gap / 2;
+    }
 
-        // 从播放列表的歌曲集合中移除歌曲
-        boolean removed = playlist.getSongs().remove(songToRemove);
+    /**
+     * JDBC 批量插入新项（rewriteBatchedStatements 下合并为多值 INSERT），按顺序返回生成的 id
+     */
+    private long[] insertEntries(Long playlistId, List<Long> temporaryIds, Map<Long, Song> songs, PlaylistOrder order) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO playlist_entries (playlist_id, song_id, position, added_at) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Long temporaryId : temporaryIds) {
+                    statement.setLong(1, playlistId);
+                    statement.setLong(2, songs.get(temporaryId).getId());
+                    statement.setLong(3, order.positionOf(temporaryId));
+                    statement.setTimestamp(4, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                long[] ids = new long[temporaryIds.size()];
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < ids.length && keys.next(); i++) {
+                        ids[i] = keys.getLong(1);
+                    }
+                }
+                return ids;
+            }
+        });
+    }
 
-        // 如果歌曲不在播放列表中，可以抛出异常（可选，但友好）
-        if (!removed) {
-            throw new EntityNotFoundException("该歌曲不在播放列表中，无法移除。歌曲ID: " + songId);
+    private static long requireEntryId(PlaylistBatchOperation op) {
+        if (op.getEntryId() == null) {
+            throw new IllegalArgumentException("缺少 entryId");
+        }
+        checkEntryId(op.getEntryId());
+        return op.getEntryId();
+    }
+
+    // 客户端只能引用已有的项（正数 id），负数是批量操作内部的临时 id
+    private static void checkEntryId(Long entryId) {
+        if (entryId != null && entryId < 0) {
+            throw new IllegalArgumentException("播放列表项未找到，ID: " + entryId);
+        }
+    }
+
+    /**
+     * 删除播放列表项，先按这些项扣减所在播放列表的歌曲数和总时长
+     */
+    private void deleteEntries(List<Long> entryIds) {
+        playlistRepository.subtractEntriesFromStats(entryIds);
+        playlistEntryRepository.deleteAllByIdInBatch(entryIds);
+    }
+
+    private static long durationOf(Integer duration) {
+        return duration == null ? 0 : duration;
+    }
+
+    private static PlaylistEntryRepository.Slot firstOther(List<PlaylistEntryRepository.Slot> slots, Long excludedId) {
+        for (PlaylistEntryRepository.Slot slot : slots) {
+            if (!slot.getId().equals(excludedId)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按当前顺序把播放列表的所有项重新编号为 POSITION_GAP 的整数倍。调用方需持有播放列表的行锁。
+     * 直接用 JDBC 批量更新，不加载实体；之后的位置计算读的都是标量，不会读到旧值
+     */
+    private void renumber(Long playlistId) {
+        List<Long> ids = playlistEntryRepository.findIdsInOrder(playlistId);
+        List<Object[]> args = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            args.add(new Object[]{(i + 1) * POSITION_GAP, ids.get(i)});
+        }
+        jdbcTemplate.batchUpdate("UPDATE playlist_entries SET position = ? WHERE id = ?", args);
+        log.debug("播放列表 {} 已重新编号，共 {} 项", playlistId, ids.size());
+    }
+
+    private static long parsePosition(Cursor cursor) {
+        try {
+            return Long.parseLong(cursor.key());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("无效的分页游标", ex);
         }
+    }
+
+    private static PlaylistTrack toTrack(PlaylistEntry entry) {
+        return PlaylistTrack.builder()
+                .entryId(entry.getId())
+                .song(entry.getSong())
+                .addedAt(entry.getAddedAt())
+                .build();
+    }
 
-        // 保存更改，JPA会自动更新中间表
-        playlistRepository.save(playlist);
+    private static PlaylistSummary toSummary(Playlist playlist) {
+        return PlaylistSummary.builder()
+                .id(playlist.getId())
+                .name(playlist.getName())
+                .description(playlist.getDescription())
+                .createdAt(playlist.getCreatedAt())
+                .songCount(playlist.getTrackCount())
+                .totalDuration(playlist.getTotalDuration())
+                .build();
     }
 }
@@ -0,0 +1,193 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.counter.StripedDeltaCounter;
+import com.melodymix.backend.event.SongLikeChangedEvent;
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.service.SongLikeCountService;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Slf4j
+@Service
+public class SongLikeCountServiceImpl implements SongLikeCountService {
+
+    private static final String FLUSH_SQL = "UPDATE songs SET like_count = like_count + ? WHERE id = ?";
+
+    // 一段 ID 范围内的收藏数重算；子查询走 user_liked_songs 外键上的 song_id 索引，只修改不一致的行
+    private static final String RECONCILE_SQL = "UPDATE songs s LEFT JOIN ("
+            + "SELECT song_id, COUNT(*) AS likes FROM user_liked_songs WHERE song_id > ? AND song_id <= ? GROUP BY song_id"
+            + ") l ON l.song_id = s.id "
+            + "SET s.like_count = COALESCE(l.likes, 0) "
+            + "WHERE s.id > ? AND s.id <= ? AND s.like_count <> COALESCE(l.likes, 0)";
+
+    // 对账的全局互斥：MySQL 命名锁，绑定在持有它的连接上，连接断开时自动释放
+    private static final String RECONCILE_LOCK = "melodymix.like-count-reconcile";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final StripedDeltaCounter pendingLikes;
+    private final int flushBatchSize;
+    private final int reconcileBatchSize;
+    private final boolean reconcileOnStartup;
+
+    // 写回和对账互斥：对账每段之前先写回缓冲，缩小二者交错造成的误差窗口
+    private final Object flushLock = new Object();
+
+    public SongLikeCountServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            EntityManagerFactory entityManagerFactory,
+            PlatformTransactionManager transactionManager,
+            @Value("${likes.counter.stripes}") int stripes,
+            @Value("${likes.counter.flush-batch-size}") int flushBatchSize,
+            @Value("${likes.counter.reconcile-batch-size}") int reconcileBatchSize,
+            @Value("${likes.counter.reconcile-on-startup}") boolean reconcileOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pendingLikes = new StripedDeltaCounter(stripes);
+        this.flushBatchSize = flushBatchSize;
+        this.reconcileBatchSize = reconcileBatchSize;
+        this.reconcileOnStartup = reconcileOnStartup;
+    }
+
+    /**
+     * 收藏变化只累加内存计数，不访问数据库
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongLikeChanged(SongLikeChangedEvent event) {
+        pendingLikes.add(event.songId(), event.delta());
+    }
+
+    @Scheduled(fixedDelayString = "${likes.counter.flush-interval}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @Scheduled(cron = "${likes.counter.reconcile-cron}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    /**
+     * 上次进程崩溃时缓冲中的增量已经丢失，可以配置为启动后在独立线程中对账一次（新增 like_count 列时也靠它初始化）。
+     * 默认关闭：滚动重启时每个节点都会触发一次全表对账
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileAfterStartup() {
+        if (reconcileOnStartup) {
+            Thread.ofPlatform().name("like-count-reconcile").daemon().start(this::reconcile);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    @Override
+    public int flush() {
+        synchronized (flushLock) {
+            List<long[]> deltas = new ArrayList<>();
+            pendingLikes.drain((songId, delta) -> deltas.add(new long[]{songId, delta}));
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+            // 按主键顺序更新，多个实例同时写回时加锁顺序一致，不会互相死锁
+            deltas.sort(Comparator.comparingLong(delta -> delta[0]));
+            int flushed = 0;
+            try {
+                for (; flushed < deltas.size(); flushed += flushBatchSize) {
+                    List<long[]> batch = deltas.subList(flushed, Math.min(flushed + flushBatchSize, deltas.size()));
+                    // 每批一个事务：要么整批生效，要么整批放回缓冲重试，不会重复累加
+                    transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch, batch.size(),
+                            (ps, delta) -> {
+                                ps.setLong(1, delta[1]);
+                                ps.setLong(2, delta[0]);
+                            }));
+                    // JdbcTemplate 绕过了 Hibernate，需要手动让二级缓存中的歌曲失效（只影响本节点，见 cache.l2.enabled）
+                    batch.forEach(delta -> entityManagerFactory.getCache().evict(Song.class, delta[0]));
+                }
+            } catch (DataAccessException ex) {
+                log.warn("收藏数写回失败，{} 首歌曲的增量放回缓冲: {}", deltas.size() - flushed, ex.getMessage());
+                deltas.subList(flushed, deltas.size()).forEach(delta -> pendingLikes.add(delta[0], delta[1]));
+            }
+            return Math.min(flushed, deltas.size());
+        }
+    }
+
+    /**
+     * 多个节点同时触发（定时任务、启动时对账）时，只有拿到数据库命名锁的节点执行，其余节点直接返回 0。
+     * <p>
+     * 已经提交但还在缓冲中的增量会被重算结果包含，然后写回时再加一次。每段重算前先写回本节点的缓冲，
+     * 但其他节点缓冲中的增量（最多 flush-interval 内的收藏变化）无法在这里写回，会在它们下次写回时被重复累加；
+     * 本节点事务提交后、事件监听器累加之前被重算的歌曲同样会多计。这些误差留到下一次对账修正
+     */
+    @Override
+    public int reconcile() {
+        Integer corrected = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            if (!lock(connection, "SELECT GET_LOCK(?, 0)")) {
+                log.info("收藏数对账: 其他节点正在对账，跳过");
+                return 0;
+            }
+            try {
+                return reconcileAll();
+            } finally {
+                lock(connection, "SELECT RELEASE_LOCK(?)");
+            }
+        });
+        return corrected == null ? 0 : corrected;
+    }
+
+    private static boolean lock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, RECONCILE_LOCK);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getInt(1) == 1;
+            }
+        }
+    }
+
+    /**
+     * 持有命名锁的连接之外，每条 UPDATE 从连接池另取连接执行
+     */
+    private int reconcileAll() {
+        long start = System.currentTimeMillis();
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM songs", Long.class);
+        int corrected = 0;
+        if (maxId != null) {
+            for (long from = 0; from < maxId; from += reconcileBatchSize) {
+                long to = from + reconcileBatchSize;
+                synchronized (flushLock) {
+                    flush();
+                    corrected += jdbcTemplate.update(RECONCILE_SQL, from, to, from, to);
+                }
+            }
+        }
+        if (corrected > 0) {
+            entityManagerFactory.getCache().evict(Song.class);
+            log.info("收藏数对账完成: 修正 {} 首歌曲, 耗时 {} ms", corrected, System.currentTimeMillis() - start);
+        }
+        return corrected;
+    }
+}
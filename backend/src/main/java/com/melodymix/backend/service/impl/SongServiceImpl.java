@@ -1,27 +1,52 @@
 package com.melodymix.backend.service.impl;
 
 import com.melodymix.backend.dto.CreateSongRequest;
-import com.melodymix.backend.model.Playlist;
+import com.melodymix.backend.dto.CursorSlice;
+import com.melodymix.backend.dto.SongFilterRequest;
+import com.melodymix.backend.event.SongChangedEvent;
+import com.melodymix.backend.filter.SongQueryPlan;
+import com.melodymix.backend.filter.SongQueryPlanner;
 import com.melodymix.backend.model.Song;
-import com.melodymix.backend.repository.PlaylistRepository;
+import com.melodymix.backend.pagination.Cursor;
+import com.melodymix.backend.pagination.SongSort;
 import com.melodymix.backend.repository.SongRepository;
-import com.melodymix.backend.service.FileStorageService; // ✅ 引入 FileStorageService 来处理文件删除
+import com.melodymix.backend.service.AudioIngestionService;
+import com.melodymix.backend.service.FileDeletionService;
+import com.melodymix.backend.service.PlaylistService;
+import com.melodymix.backend.service.SongSearchService;
 import com.melodymix.backend.service.SongService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
 
 @Service
 @RequiredArgsConstructor
 public class SongServiceImpl implements SongService {
 
+    // 删除歌曲时清理中间表的每块行数，每块单独提交，限制单个事务持有的行锁
+    private static final int JOIN_ROW_DELETE_CHUNK = 1000;
+
     private final SongRepository songRepository;
-    private final PlaylistRepository playlistRepository; // 在 deleteSong 中用到
-    private final FileStorageService fileStorageService; // ✅ 注入 FileStorageService
+    private final FileDeletionService fileDeletionService; // 删除歌曲后延迟删除文件
+    private final AudioIngestionService audioIngestionService;
+    private final PlaylistService playlistService; // 维护播放列表的歌曲数和总时长
+    private final SongSearchService songSearchService;
+    private final ApplicationEventPublisher eventPublisher; // 发布 SongChangedEvent，用于维护搜索索引
+    private final TransactionTemplate transactionTemplate; // 删除歌曲时按块提交
 
     @Override
     @Transactional
@@ -35,7 +60,11 @@ public class SongServiceImpl implements SongService {
                 .fileUrl(request.getFileUrl()) // ✅ 修正：将 getSongUrl() 改为 getFileUrl()
                 .coverUrl(request.getCoverUrl())
                 .build();
-        return songRepository.save(newSong);
+        Song savedSong = songRepository.save(newSong);
+        // 登记后台摄取任务：解析音频文件得到精确时长、码率和波形
+        audioIngestionService.enqueue(savedSong.getId());
+        eventPublisher.publishEvent(SongChangedEvent.saved(savedSong));
+        return savedSong;
     }
 
     @Override
@@ -48,53 +77,146 @@ public class SongServiceImpl implements SongService {
         existingSong.setArtist(request.getArtist());
         existingSong.setAlbum(request.getAlbum());
         existingSong.setReleaseDate(request.getReleaseDate());
-        existingSong.setDuration(request.getDuration());
+        // 已经完成音频摄取的歌曲以服务端解析出的时长为准：客户端原样回传当前时长或不传都可以，传入不同的值直接拒绝
+        if (existingSong.getBitrate() == null) {
+            playlistService.applySongDurationChange(songId, existingSong.getDuration(), request.getDuration());
+            existingSong.setDuration(request.getDuration());
+        } else if (request.getDuration() != null && !request.getDuration().equals(existingSong.getDuration())) {
+            throw new IllegalArgumentException("歌曲 " + songId + " 的时长已从音频文件解析得出，不能手动修改");
+        }
         // 歌曲和封面 URL 通常不通过 update 接口直接修改。
         // 如果需要修改，应有单独的接口或特殊逻辑处理文件替换。
         // existingSong.setFileUrl(request.getFileUrl()); // ✅ 如果更新文件URL，应该用getFileUrl()
         // existingSong.setCoverUrl(request.getCoverUrl());
 
-        return songRepository.save(existingSong);
+        Song savedSong = songRepository.save(existingSong);
+        eventPublisher.publishEvent(SongChangedEvent.saved(savedSong));
+        return savedSong;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Song> getAllSongs(Pageable pageable) {
         return songRepository.findAll(pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Song> searchSongsByTitle(String title, Pageable pageable) {
-        return songRepository.findByTitleContainingIgnoreCase(title, pageable);
+        return songSearchService.search(title, pageable);
     }
 
     @Override
-    @Transactional
-    public void deleteSong(Long songId) {
-        Song songToDelete = songRepository.findById(songId)
-                .orElseThrow(() -> new EntityNotFoundException("无法删除：未找到ID为 " + songId + " 的歌曲"));
-
-        // 从所有关联的播放列表中移除此歌曲
-        // ✅ 修正：假设 PlaylistRepository 有 findBySongsContaining 方法
-        // 如果没有，你需要根据实际的 PlaylistRepository 结构来获取包含此歌曲的播放列表
-        List<Playlist> playlists = playlistRepository.findBySongsContaining(songToDelete);
-        for (Playlist playlist : playlists) {
-            playlist.getSongs().remove(songToDelete);
-            playlistRepository.save(playlist); // 保存更新后的播放列表
+    @Transactional(readOnly = true)
+    public CursorSlice<Song> getSongsAfter(SongSort sort, String cursor, int size) {
+        Pageable limit = PageRequest.of(0, size);
+        Slice<Song> slice;
+        if (cursor == null || cursor.isEmpty()) {
+            slice = sort == SongSort.NEWEST
+                    ? songRepository.findAllByOrderByCreatedAtDescIdDesc(limit)
+                    : songRepository.findAllByOrderByTitleAscIdAsc(limit);
+        } else {
+            Cursor after = Cursor.decode(cursor, sort.name());
+            slice = switch (sort) {
+                case NEWEST -> songRepository.findNewestBefore(parseTimestamp(after), after.id(), limit);
+                case TITLE -> songRepository.findByTitleAfter(after.key(), after.id(), limit);
+            };
+        }
+        List<Song> songs = slice.getContent();
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Song last = songs.get(songs.size() - 1);
+            nextCursor = new Cursor(sort.name(), last.getId(), sort.keyOf(last)).encode();
         }
+        return CursorSlice.<Song>builder()
+                .content(songs)
+                .nextCursor(nextCursor)
+                .hasNext(slice.hasNext())
+                .build();
+    }
 
-        // 删除歌曲记录
-        songRepository.delete(songToDelete);
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Song> filterSongs(SongFilterRequest filter, Pageable pageable) {
+        if (SongQueryPlanner.isFreeText(filter)) {
+            Page<Song> page = songSearchService.search(filter.getQ().trim(),
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+            return new SliceImpl<>(page.getContent(), page.getPageable(), page.hasNext());
+        }
+        SongQueryPlan plan = SongQueryPlanner.plan(filter);
+        // 多查一行判断是否还有下一页，不执行 COUNT：筛选条件宽时 COUNT 要扫完整个索引范围
+        return songRepository.findBy(plan.toSpecification(),
+                query -> query.slice(PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), plan.toSort())));
+    }
 
-        // ✅ 新增：删除关联的文件 (歌曲文件和封面文件)
-        if (songToDelete.getFileUrl() != null && !songToDelete.getFileUrl().isEmpty()) {
-            fileStorageService.deleteFile(songToDelete.getFileUrl());
+    private LocalDateTime parseTimestamp(Cursor cursor) {
+        try {
+            return LocalDateTime.parse(cursor.key());
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("无效的分页游标", ex);
         }
-        if (songToDelete.getCoverUrl() != null && !songToDelete.getCoverUrl().isEmpty()) {
-            fileStorageService.deleteFile(songToDelete.getCoverUrl());
+    }
+
+    @Override
+    public void deleteSong(Long songId) {
+        if (deleteSongs(List.of(songId)) == 0) {
+            throw new EntityNotFoundException("无法删除：未找到ID为 " + songId + " 的歌曲");
+        }
+    }
+
+    @Override
+    public int deleteSongs(Collection<Long> songIds) {
+        List<Long> requestedIds = songIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        if (requestedIds.isEmpty()) {
+            return 0;
         }
+        // 先确定哪些歌曲存在，只清理它们的关联行；全部不存在时什么也不改
+        List<Long> ids = transactionTemplate.execute(status -> songRepository.findExistingIds(requestedIds));
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        // 再把播放列表和收藏中的关联行分块删掉，热门歌曲也不会在一个事务里锁住成千上万行。
+        // 整个操作不是原子的：每块单独提交，最后的事务失败时歌曲仍在，但已提交的块里的关联行不会恢复
+        deleteInChunks(ids, playlistService::removeEntriesOfSongs);
+        deleteInChunks(ids, songRepository::deleteLikesOfSongs);
+
+        return transactionTemplate.execute(status -> {
+            List<Song> songs = songRepository.findAllById(ids);
+            if (songs.isEmpty()) {
+                return 0;
+            }
+            List<Long> existingIds = songs.stream().map(Song::getId).toList();
+            // 分块清理期间新加入的少量关联行和歌曲本身在同一个事务里删除
+            playlistService.removeEntriesOfSongs(existingIds, Integer.MAX_VALUE);
+            songRepository.deleteLikesOfSongs(existingIds, Integer.MAX_VALUE);
+            audioIngestionService.removeDataOfSongs(existingIds);
+            songRepository.deleteAllByIdInBatch(existingIds);
+
+            for (Song song : songs) {
+                // 关联的文件（歌曲文件和封面文件）在同一事务内登记到 outbox，提交后由后台任务删除
+                fileDeletionService.scheduleDeletion(song.getFileUrl());
+                fileDeletionService.scheduleDeletion(song.getCoverUrl());
+                eventPublisher.publishEvent(SongChangedEvent.deleted(song.getId()));
+            }
+            return songs.size();
+        });
+    }
+
+    /**
+     * 每块一个事务，块内先重新确认歌曲仍然存在（可能已被并发的删除请求删掉），只清理仍存在的歌曲
+     */
+    private void deleteInChunks(List<Long> songIds, BiFunction<Collection<Long>, Integer, Integer> deleteChunk) {
+        Integer deleted;
+        do {
+            deleted = transactionTemplate.execute(status -> {
+                List<Long> existingIds = songRepository.findExistingIds(songIds);
+                return existingIds.isEmpty() ? 0 : deleteChunk.apply(existingIds, JOIN_ROW_DELETE_CHUNK);
+            });
+        } while (deleted != null && deleted == JOIN_ROW_DELETE_CHUNK);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Song getSongById(Long songId) {
         return songRepository.findById(songId)
                 .orElseThrow(() -> new EntityNotFoundException("未找到ID为 " + songId + " 的歌曲"));
@@ -0,0 +1,113 @@
+package com.melodymix.backend.service.impl;
+
+import com.melodymix.backend.dto.SongSuggestion;
+import com.melodymix.backend.event.SongLikeChangedEvent;
+import com.melodymix.backend.model.Song;
+import com.melodymix.backend.repository.SongRepository;
+import com.melodymix.backend.search.SuggestionTrie;
+import com.melodymix.backend.service.SongSuggestionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 基于前缀树的自动补全。启动后在独立线程中从数据库构建（标题 / 歌手 / 专辑 + 收藏数），
+ * 之后通过 SongChangedEvent 和 SongLikeChangedEvent 在事务提交后增量维护。
+ * 与 memory 搜索模式一样，每个实例各自持有一份，只能感知本实例上的修改，只在单实例部署中通过 suggest.enabled 开启。
+ */
+@Service
+@ConditionalOnProperty(prefix = "suggest", name = "enabled", havingValue = "true")
+public class SongSuggestionServiceImpl extends AbstractSongIndexService implements SongSuggestionService {
+
+    private final int maxResults;
+    private final int maxPrefixLength;
+    // 构建失败重试时整体替换
+    private volatile SuggestionTrie trie;
+
+    // 构建时一次性读出的每首歌的收藏数，构建结束后释放；之后的收藏变化和歌曲修改一样在构建结束后重放
+    private Map<Long, Long> likesAtBuild = Map.of();
+
+    public SongSuggestionServiceImpl(
+            SongRepository songRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${suggest.max-results}") int maxResults,
+            @Value("${suggest.max-prefix-length}") int maxPrefixLength,
+            @Value("${suggest.build-batch-size}") int buildBatchSize) {
+        super(songRepository, transactionManager, buildBatchSize, "suggestion-build", "自动补全索引");
+        this.maxResults = maxResults;
+        this.maxPrefixLength = maxPrefixLength;
+        this.trie = new SuggestionTrie(maxResults, maxPrefixLength);
+    }
+
+    @Override
+    public List<SongSuggestion> suggest(String prefix, Integer limit) {
+        if (!isReady() || prefix == null) {
+            return List.of();
+        }
+        int size = limit == null ? maxResults : Math.min(limit, maxResults);
+        if (size <= 0) {
+            throw new IllegalArgumentException("无效的补全数量: " + limit);
+        }
+        return trie.suggest(prefix, size).stream()
+                .map(suggestion -> SongSuggestion.builder()
+                        .text(suggestion.text())
+                        .type(suggestion.kind().name().toLowerCase(Locale.ROOT))
+                        .build())
+                .toList();
+    }
+
+    /**
+     * 加载歌曲之前先一次性读出每首歌的收藏数
+     */
+    @Override
+    protected void beforeBuild() {
+        Map<Long, Long> likes = new HashMap<>();
+        for (Object[] row : songRepository.countLikesBySong()) {
+            likes.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        likesAtBuild = likes;
+    }
+
+    @Override
+    protected void indexSong(Song song) {
+        trie.putSong(song.getId(), song.getTitle(), song.getArtist(), song.getAlbum(),
+                likesAtBuild.getOrDefault(song.getId(), 0L));
+    }
+
+    @Override
+    protected void afterBuild() {
+        likesAtBuild = Map.of();
+    }
+
+    @Override
+    protected void putSong(long id, String title, String artist, String album) {
+        trie.putSong(id, title, artist, album);
+    }
+
+    @Override
+    protected void removeSong(long id) {
+        trie.removeSong(id);
+    }
+
+    @Override
+    protected void resetIndex() {
+        trie = new SuggestionTrie(maxResults, maxPrefixLength);
+    }
+
+    @Override
+    protected int indexedSongs() {
+        return trie.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongLikeChanged(SongLikeChangedEvent event) {
+        applyChange(() -> trie.addLikes(event.songId(), event.delta()));
+    }
+}
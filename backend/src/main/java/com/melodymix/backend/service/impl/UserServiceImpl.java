@@ -1,5 +1,6 @@
 package com.melodymix.backend.service.impl;
 import com.melodymix.backend.dto.UserDto;
+import com.melodymix.backend.event.SongLikeChangedEvent;
 import com.melodymix.backend.model.Song;
 import com.melodymix.backend.model.User;
 import com.melodymix.backend.repository.SongRepository;
@@ -7,10 +8,10 @@ import com.melodymix.backend.repository.UserRepository;
 import com.melodymix.backend.service.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,7 +20,9 @@ public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
     private final SongRepository songRepository;
+    private final ApplicationEventPublisher eventPublisher;
     @Override
+    @Transactional(readOnly = true)
     public List<UserDto> getAllUsers() {
         List<User> users = userRepository.findAll();
         // 我们必须将 User 实体列表映射到 UserDto 对象列表
@@ -38,27 +41,28 @@ public class UserServiceImpl implements UserService {
     @Override
     @Transactional // 建议将修改操作放在事务中
     public void likeSong(Long userId, Long songId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("用户未找到，ID: " + userId));
-        Song song = songRepository.findById(songId)
-                .orElseThrow(() -> new EntityNotFoundException("歌曲未找到，ID: " + songId));
-        user.getLikedSongs().add(song);
-        userRepository.save(user); // JPA会自动处理中间表的插入操作 [5]
+        // 常见情况只有一条 INSERT；没有插入新行时才按主键确认歌曲是否存在（重复收藏不改变收藏数）
+        if (userRepository.insertLikedSong(userId, songId) == 1) {
+            eventPublisher.publishEvent(new SongLikeChangedEvent(songId, 1));
+        } else if (!songRepository.existsById(songId)) {
+            throw new EntityNotFoundException("歌曲未找到，ID: " + songId);
+        }
     }
     @Override
     @Transactional
     public void unlikeSong(Long userId, Long songId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("用户未找到，ID: " + userId));
-        Song song = songRepository.findById(songId)
-                .orElseThrow(() -> new EntityNotFoundException("歌曲未找到，ID: " + songId));
-        user.getLikedSongs().remove(song);
-        userRepository.save(user); // JPA会自动处理中间表的删除操作 [5]
+        if (userRepository.deleteLikedSong(userId, songId) == 1) {
+            eventPublisher.publishEvent(new SongLikeChangedEvent(songId, -1));
+        } else if (!songRepository.existsById(songId)) {
+            throw new EntityNotFoundException("歌曲未找到，ID: " + songId);
+        }
     }
     @Override
-    public Set<Song> getLikedSongs(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("用户未找到，ID: " + userId));
-        return user.getLikedSongs();
+    @Transactional(readOnly = true)
+    public List<Song> getLikedSongs(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("用户未找到，ID: " + userId);
+        }
+        return songRepository.findLikedByUserId(userId);
     }
 }
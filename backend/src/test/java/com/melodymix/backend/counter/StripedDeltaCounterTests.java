@@ -0,0 +1,77 @@
+package com.melodymix.backend.counter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * 多个线程并发增加（少数热门键 + 大量只出现一次的键，分段表会不断扩容）的同时另一个线程反复 drain，
+ * 所有取出的增量加上最后一次 drain 的结果必须与写入的总和逐键相等：不丢失也不重复。
+ */
+class StripedDeltaCounterTests {
+
+	private static final int KEYS = 20_000;
+	private static final int WRITERS = 4;
+	private static final int ADDS_PER_WRITER = 200_000;
+
+	@Test
+	void concurrentDrainNeitherLosesNorDuplicatesDeltas() throws InterruptedException {
+		StripedDeltaCounter counter = new StripedDeltaCounter(8);
+		long[][] added = new long[WRITERS][KEYS + 1];
+		long[] drained = new long[KEYS + 1];
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+
+		List<Thread> writers = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++) {
+			long[] tally = added[w];
+			long seed = w;
+			writers.add(Thread.ofPlatform().name("counter-writer-" + w).start(() -> {
+				Random random = new Random(seed);
+				awaitQuietly(start);
+				for (int i = 0; i < ADDS_PER_WRITER; i++) {
+					int key = random.nextInt(4) == 0 ? 1 + random.nextInt(KEYS) : 1 + random.nextInt(8);
+					long delta = random.nextInt(3) - 1;
+					counter.add(key, delta);
+					tally[key] += delta;
+				}
+			}));
+		}
+		Thread drainer = Thread.ofPlatform().name("counter-drainer").start(() -> {
+			awaitQuietly(start);
+			while (writing.get()) {
+				counter.drain((key, delta) -> drained[(int) key] += delta);
+			}
+		});
+
+		start.countDown();
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		writing.set(false);
+		drainer.join();
+		counter.drain((key, delta) -> drained[(int) key] += delta);
+
+		long[] expected = new long[KEYS + 1];
+		for (long[] tally : added) {
+			for (int key = 0; key <= KEYS; key++) {
+				expected[key] += tally[key];
+			}
+		}
+		assertArrayEquals(expected, drained);
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package com.melodymix.backend.filter;
+
+import com.melodymix.backend.dto.SongFilterRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 执行计划回归测试：每种被接受的筛选组合在 MySQL 上都必须能走规划器选定的索引，
+ * 既不全表扫描也不 filesort。SQL 由 SongQueryPlan 的条件和排序生成，与 Criteria 查询形状一致。
+ * <p>
+ * 测试表里的数据量通常很小，优化器按代价可能更愿意全表扫描，所以分两步检查：
+ * 不加提示时所选索引出现在 possible_keys 中；FORCE INDEX 时访问类型不是 ALL 且没有 filesort。
+ */
+@SpringBootTest
+class SongQueryPlanExplainTests {
+
+	private static final LocalDate FROM = LocalDate.of(2020, 1, 1);
+	private static final LocalDate TO = LocalDate.of(2020, 12, 31);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void supportedFiltersUseTheirIndex() {
+		List<SongFilterRequest> filters = List.of(
+				SongFilterRequest.builder().build(),
+				SongFilterRequest.builder().sort("title").build(),
+				SongFilterRequest.builder().sort("id").direction("desc").build(),
+				SongFilterRequest.builder().artist("周杰伦").build(),
+				SongFilterRequest.builder().artist("周杰伦").album("范特西").build(),
+				SongFilterRequest.builder().artist("周杰伦").sort("releaseDate").direction("desc").build(),
+				SongFilterRequest.builder().artist("周杰伦").releasedFrom(FROM).releasedTo(TO).build(),
+				SongFilterRequest.builder().album("范特西").build(),
+				SongFilterRequest.builder().releasedFrom(FROM).build(),
+				SongFilterRequest.builder().releasedTo(TO).sort("releaseDate").direction("desc").build(),
+				SongFilterRequest.builder().minDuration(180).maxDuration(240).build(),
+				SongFilterRequest.builder().sort("duration").build(),
+				SongFilterRequest.builder().sort("likeCount").build());
+
+		for (SongFilterRequest filter : filters) {
+			SongQueryPlan plan = SongQueryPlanner.plan(filter);
+			List<Object> args = new ArrayList<>();
+			String where = where(plan, args);
+			String orderBy = orderBy(plan);
+			String index = plan.index().indexName();
+
+			if (!plan.conditions().isEmpty()) {
+				Map<String, Object> natural = explain("SELECT * FROM songs" + where + orderBy, args);
+				String possibleKeys = String.valueOf(natural.get("possible_keys"));
+				assertTrue(possibleKeys.contains(index), filter + " 无法使用索引 " + index + ": " + natural);
+			}
+
+			Map<String, Object> forced = explain("SELECT * FROM songs FORCE INDEX (" + index + ")" + where + orderBy, args);
+			assertEquals(index, forced.get("key"), filter + ": " + forced);
+			assertNotEquals("ALL", forced.get("type"), filter + " 退化为全表扫描: " + forced);
+			assertFalse(String.valueOf(forced.get("Extra")).contains("filesort"), filter + " 需要 filesort: " + forced);
+		}
+	}
+
+	private Map<String, Object> explain(String sql, List<Object> args) {
+		return jdbcTemplate.queryForList("EXPLAIN " + sql, args.toArray()).get(0);
+	}
+
+	private static String where(SongQueryPlan plan, List<Object> args) {
+		StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+		for (SongQueryPlan.Condition condition : plan.conditions()) {
+			String column = condition.field().column();
+			if (!condition.range()) {
+				where.add(column + " = ?");
+				args.add(condition.lower());
+				continue;
+			}
+			if (condition.lower() != null) {
+				where.add(column + " >= ?");
+				args.add(condition.lower());
+			}
+			if (condition.upper() != null) {
+				where.add(column + " <= ?");
+				args.add(condition.upper());
+			}
+		}
+		return where.toString();
+	}
+
+	private static String orderBy(SongQueryPlan plan) {
+		String direction = plan.direction().name();
+		String orderBy = " ORDER BY " + plan.sortField().column() + " " + direction;
+		if (plan.sortField() != SongField.ID) {
+			orderBy += ", id " + direction;
+		}
+		return orderBy + " LIMIT 20";
+	}
+}
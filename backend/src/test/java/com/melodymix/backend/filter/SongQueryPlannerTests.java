@@ -0,0 +1,30 @@
+package com.melodymix.backend.filter;
+
+import com.melodymix.backend.dto.SongFilterRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 规划器本身的规则，不需要数据库。执行计划的检查见 SongQueryPlanExplainTests。
+ */
+class SongQueryPlannerTests {
+
+	private static final LocalDate FROM = LocalDate.of(2020, 1, 1);
+
+	@Test
+	void unsupportedCombinationsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> SongQueryPlanner.plan(
+				SongFilterRequest.builder().artist("周杰伦").minDuration(180).build()));
+		assertThrows(IllegalArgumentException.class, () -> SongQueryPlanner.plan(
+				SongFilterRequest.builder().releasedFrom(FROM).minDuration(180).build()));
+		assertThrows(IllegalArgumentException.class, () -> SongQueryPlanner.plan(
+				SongFilterRequest.builder().releasedFrom(FROM).sort("title").build()));
+		assertThrows(IllegalArgumentException.class, () -> SongQueryPlanner.plan(
+				SongFilterRequest.builder().album("范特西").sort("releaseDate").build()));
+		assertThrows(IllegalArgumentException.class, () -> SongQueryPlanner.isFreeText(
+				SongFilterRequest.builder().q("晴天").artist("周杰伦").build()));
+	}
+}
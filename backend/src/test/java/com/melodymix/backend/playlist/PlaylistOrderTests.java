@@ -0,0 +1,88 @@
+package com.melodymix.backend.playlist;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 随机的插入 / 移动 / 删除序列与一个普通 List 逐步对照：按 (位置, id) 排序的结果必须与参考列表一致。
+ * 初始位置紧挨在一起，间隔很快用完，重新编号的路径也会被反复走到。
+ */
+class PlaylistOrderTests {
+
+	private static final int OPERATIONS = 5_000;
+
+	@Test
+	void matchesReferenceListUnderRandomOperations() {
+		for (long seed = 1; seed <= 20; seed++) {
+			runRandomOperations(seed);
+		}
+	}
+
+	private void runRandomOperations(long seed) {
+		Random random = new Random(seed);
+		PlaylistOrder order = new PlaylistOrder();
+		List<Long> reference = new ArrayList<>();
+		Map<Long, Long> loadedPositions = new HashMap<>();
+		for (long id = 1; id <= 30; id++) {
+			long position = random.nextBoolean() ? id : id * PlaylistOrder.POSITION_GAP;
+			order.load(id, position);
+			reference.add(id);
+			loadedPositions.put(id, position);
+		}
+		reference.sort(Comparator.comparing((Long id) -> loadedPositions.get(id)).thenComparing(id -> id));
+
+		for (int i = 0; i < OPERATIONS; i++) {
+			int op = random.nextInt(10);
+			if (op < 4 || reference.isEmpty()) {
+				int index = random.nextInt(reference.size() + 2) - 1;
+				if (index < 0) {
+					reference.add(0, order.insert(0L));
+				} else if (index == reference.size()) {
+					reference.add(order.insert(null));
+				} else {
+					reference.add(index + 1, order.insert(reference.get(index)));
+				}
+			} else if (op < 8) {
+				long id = reference.get(random.nextInt(reference.size()));
+				reference.remove(id);
+				int index = random.nextInt(reference.size() + 1) - 1;
+				if (index < 0) {
+					order.move(id, random.nextBoolean() ? null : 0L);
+					reference.add(0, id);
+				} else {
+					order.move(id, reference.get(index));
+					reference.add(index + 1, id);
+				}
+			} else {
+				long id = reference.remove(random.nextInt(reference.size()));
+				order.remove(id);
+			}
+			assertEquals(reference, sorted(order, reference), "seed " + seed + ", operation " + i);
+		}
+
+		// 需要写回的已有项正好是位置与加载时不同的那些
+		Map<Long, Long> expectedMoved = new HashMap<>();
+		for (Long id : reference) {
+			if (id > 0 && order.positionOf(id) != loadedPositions.get(id)) {
+				expectedMoved.put(id, order.positionOf(id));
+			}
+		}
+		Map<Long, Long> moved = new HashMap<>(order.movedExisting());
+		moved.entrySet().removeIf(entry -> entry.getValue().equals(loadedPositions.get(entry.getKey())));
+		assertEquals(expectedMoved, moved, "seed " + seed);
+	}
+
+	private static List<Long> sorted(PlaylistOrder order, List<Long> ids) {
+		List<Long> result = new ArrayList<>(ids);
+		result.sort(Comparator.comparing(order::positionOf).thenComparing(id -> id));
+		return result;
+	}
+}
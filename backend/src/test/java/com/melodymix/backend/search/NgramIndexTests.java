@@ -0,0 +1,139 @@
+package com.melodymix.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 随机的增删序列与逐条比较的参考实现对照：每一步之后，多个查询的分页结果和命中总数都必须一致。
+ * 文本只用很小的字母表（含中文单字），让倒排表之间大量重叠，求交集时的指数步长查找会走到各种跳跃距离。
+ */
+class NgramIndexTests {
+
+	private static final String ALPHABET = "abcd爱你我";
+	private static final int OPERATIONS = 1_500;
+
+	private record Song(String title, String artist, String album) {
+	}
+
+	@Test
+	void matchesBruteForceUnderRandomPutAndRemove() {
+		for (long seed = 1; seed <= 4; seed++) {
+			Random random = new Random(seed);
+			NgramIndex index = new NgramIndex();
+			Map<Long, Song> reference = new HashMap<>();
+			for (int i = 0; i < OPERATIONS; i++) {
+				// 偶尔使用很大的 ID，覆盖文档数组的扩容
+				long id = random.nextInt(20) == 0 ? 1000 + random.nextInt(3000) : random.nextInt(300);
+				if (random.nextInt(4) == 0) {
+					index.remove(id);
+					reference.remove(id);
+				} else {
+					Song song = new Song(randomText(random), randomText(random), random.nextBoolean() ? randomText(random) : null);
+					index.put(id, song.title(), song.artist(), song.album());
+					reference.put(id, song);
+				}
+				assertEquals(reference.size(), index.size(), "seed " + seed + ", operation " + i);
+				for (int q = 0; q < 3; q++) {
+					String query = randomQuery(random, reference);
+					int offset = random.nextInt(4) == 0 ? random.nextInt(10) : 0;
+					int limit = 1 + random.nextInt(20);
+					NgramIndex.SearchResult expected = expectedSearch(reference, query, offset, limit);
+					NgramIndex.SearchResult actual = index.search(query, offset, limit);
+					String context = "seed " + seed + ", operation " + i + ", query '" + query + "'";
+					assertEquals(expected.total(), actual.total(), context);
+					assertArrayEquals(expected.ids(), actual.ids(), context);
+				}
+			}
+		}
+	}
+
+	private static String randomText(Random random) {
+		StringBuilder text = new StringBuilder();
+		int words = 1 + random.nextInt(3);
+		for (int w = 0; w < words; w++) {
+			if (w > 0) {
+				text.append(random.nextInt(5) == 0 ? " - " : " ");
+			}
+			int length = 1 + random.nextInt(4);
+			for (int c = 0; c < length; c++) {
+				char ch = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+				text.append(random.nextInt(6) == 0 ? Character.toUpperCase(ch) : ch);
+			}
+		}
+		return text.toString();
+	}
+
+	private static String randomQuery(Random random, Map<Long, Song> reference) {
+		if (reference.isEmpty() || random.nextInt(4) == 0) {
+			return randomText(random);
+		}
+		List<Song> songs = new ArrayList<>(reference.values());
+		Song song = songs.get(random.nextInt(songs.size()));
+		String field = NgramIndex.normalize(switch (random.nextInt(3)) {
+			case 0 -> song.title();
+			case 1 -> song.artist();
+			default -> song.album() == null ? song.title() : song.album();
+		});
+		int from = random.nextInt(field.length());
+		int to = from + 1 + random.nextInt(field.length() - from);
+		return field.substring(from, to);
+	}
+
+	/**
+	 * 不借助任何倒排结构的参考实现：逐首歌曲按索引文档中描述的规则判断是否命中并打分
+	 */
+	private static NgramIndex.SearchResult expectedSearch(Map<Long, Song> reference, String rawQuery, int offset, int limit) {
+		String query = NgramIndex.normalize(rawQuery);
+		if (query.isEmpty() || !hasGrams(query)) {
+			return new NgramIndex.SearchResult(new long[0], 0);
+		}
+		boolean singleLetter = query.codePointCount(0, query.length()) == 1 && !isCjk(query.codePointAt(0));
+		List<long[]> hits = new ArrayList<>();
+		for (Map.Entry<Long, Song> entry : reference.entrySet()) {
+			String title = NgramIndex.normalize(entry.getValue().title());
+			String artist = NgramIndex.normalize(entry.getValue().artist());
+			String album = NgramIndex.normalize(entry.getValue().album());
+			// 单个字母的查询只匹配词首
+			if (singleLetter && !hasWordStartingWith(title + " " + artist + " " + album, query)) {
+				continue;
+			}
+			int score = 0;
+			score += title.equals(query) ? 100 : title.startsWith(query) ? 60 : title.contains(query) ? 40 : 0;
+			score += artist.equals(query) ? 30 : artist.contains(query) ? 20 : 0;
+			score += album.contains(query) ? 10 : 0;
+			if (score > 0) {
+				hits.add(new long[]{score, entry.getKey()});
+			}
+		}
+		hits.sort((a, b) -> a[0] != b[0] ? Long.compare(b[0], a[0]) : Long.compare(b[1], a[1]));
+		long[] page = hits.stream().skip(offset).limit(limit).mapToLong(hit -> hit[1]).toArray();
+		return new NgramIndex.SearchResult(page, hits.size());
+	}
+
+	/**
+	 * 查询至少要有一个二元组或中日韩单字（单个字母除外），否则没有可用的 n-gram
+	 */
+	private static boolean hasGrams(String query) {
+		if (query.codePointCount(0, query.length()) == 1) {
+			return true;
+		}
+		return Arrays.stream(query.split(" ")).anyMatch(word -> word.length() > 1 || word.codePoints().anyMatch(NgramIndexTests::isCjk));
+	}
+
+	private static boolean hasWordStartingWith(String text, String letter) {
+		return Arrays.stream(text.split(" ")).anyMatch(word -> word.startsWith(letter));
+	}
+
+	private static boolean isCjk(int codePoint) {
+		return Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN;
+	}
+}
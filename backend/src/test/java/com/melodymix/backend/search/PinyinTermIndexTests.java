@@ -0,0 +1,213 @@
+package com.melodymix.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * 随机的增删序列与逐首歌曲计算的参考实现对照：每一步之后精确、前缀和容错匹配的排序结果都必须一致。
+ * 归并阈值很小，批量加载后的写入会频繁触发后台归并，增删和查询与正在进行的归并交错，
+ * 覆盖冻结的增量表和跨层的失效集合。参考实现用完整的 OSA 矩阵计算词条各前缀与查询的最小距离，
+ * 与紧凑段上复用前缀行、跳过子树的遍历相互独立。
+ */
+class PinyinTermIndexTests {
+
+	private static final String ALPHABET = "abcd";
+	private static final String HAN = "周杰伦七里香晴天";
+	private static final int OPERATIONS = 2_000;
+
+	private record Song(String title, String artist, List<String> titleTerms, List<String> artistTerms) {
+
+		private Song(String title, String artist) {
+			this(title, artist, PinyinTermIndex.termsOf(title), PinyinTermIndex.termsOf(artist));
+		}
+	}
+
+	@Test
+	void matchesBruteForceUnderRandomUpdatesAndMerges() {
+		for (long seed = 1; seed <= 3; seed++) {
+			Random random = new Random(seed);
+			PinyinTermIndex index = new PinyinTermIndex(12, 64, Integer.MAX_VALUE);
+			Map<Long, Song> reference = new HashMap<>();
+			for (int i = 0; i < 150; i++) {
+				long id = random.nextInt(200);
+				Song song = new Song(randomText(random, true), randomText(random, true));
+				index.put(id, song.title(), song.artist());
+				reference.put(id, song);
+			}
+			index.finishBulkLoad();
+			check(index, reference, random, "seed " + seed + ", bulk load");
+
+			for (int i = 0; i < OPERATIONS; i++) {
+				// 偶尔使用比段中所有 ID 都大的 ID，它们不需要记入失效集合
+				long id = random.nextInt(20) == 0 ? 1000 + random.nextInt(1000) : random.nextInt(250);
+				if (random.nextInt(3) == 0) {
+					index.remove(id);
+					reference.remove(id);
+				} else {
+					Song song = new Song(randomText(random, true), randomText(random, true));
+					index.put(id, song.title(), song.artist());
+					reference.put(id, song);
+				}
+				check(index, reference, random, "seed " + seed + ", operation " + i);
+			}
+			index.finishBulkLoad();
+			check(index, reference, random, "seed " + seed + ", final merge");
+		}
+	}
+
+	private static void check(PinyinTermIndex index, Map<Long, Song> reference, Random random, String context) {
+		for (int q = 0; q < 3; q++) {
+			String query = randomQuery(random, reference);
+			assertArrayEquals(expectedSearch(reference, query), index.search(query, Integer.MAX_VALUE),
+					context + ", query '" + query + "'");
+		}
+	}
+
+	/**
+	 * 查询只使用字母：汉字转拼音由 termsOf 负责，参考实现不再重复
+	 */
+	private static String randomText(Random random, boolean withHan) {
+		StringBuilder text = new StringBuilder();
+		int words = 1 + random.nextInt(3);
+		for (int w = 0; w < words; w++) {
+			if (w > 0) {
+				text.append(' ');
+			}
+			int length = 1 + random.nextInt(6);
+			for (int c = 0; c < length; c++) {
+				text.append(withHan && random.nextInt(8) == 0
+						? HAN.charAt(random.nextInt(HAN.length()))
+						: ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * 多数取自现有歌曲的某个词条，随机截断并做 0 ~ 2 次编辑（替换、插入、删除、相邻交换），偶尔拆成多个词
+	 */
+	private static String randomQuery(Random random, Map<Long, Song> reference) {
+		if (reference.isEmpty() || random.nextInt(5) == 0) {
+			return randomText(random, false);
+		}
+		List<Song> songs = new ArrayList<>(reference.values());
+		Song song = songs.get(random.nextInt(songs.size()));
+		List<String> terms = random.nextBoolean() ? song.titleTerms() : song.artistTerms();
+		StringBuilder query = new StringBuilder(terms.get(random.nextInt(terms.size())));
+		if (random.nextInt(3) == 0) {
+			query.setLength(1 + random.nextInt(query.length()));
+		}
+		for (int edits = random.nextInt(3); edits > 0 && query.length() > 1; edits--) {
+			int at = 1 + random.nextInt(query.length() - 1);
+			char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+			switch (random.nextInt(4)) {
+				case 0 -> query.setCharAt(at, c);
+				case 1 -> query.insert(at, c);
+				case 2 -> query.deleteCharAt(at);
+				default -> {
+					if (at + 1 < query.length()) {
+						char swapped = query.charAt(at);
+						query.setCharAt(at, query.charAt(at + 1));
+						query.setCharAt(at + 1, swapped);
+					}
+				}
+			}
+		}
+		if (random.nextInt(5) == 0 && query.length() > 2) {
+			query.insert(1 + random.nextInt(query.length() - 1), ' ');
+		}
+		return query.toString();
+	}
+
+	/**
+	 * 参考实现：逐首歌曲、逐个词条计算匹配等级，每个词取最高分，多个词要求都命中并把分数相加，
+	 * 连起来的整体取两者中较高的分数；按分数、ID 从大到小排序
+	 */
+	private static long[] expectedSearch(Map<Long, Song> reference, String query) {
+		String normalized = NgramIndex.normalize(query);
+		if (normalized.isEmpty()) {
+			return new long[0];
+		}
+		String[] words = normalized.split(" ");
+		Map<Long, Integer> scores = wordScores(reference, words[0]);
+		for (int i = 1; i < words.length; i++) {
+			Map<Long, Integer> next = wordScores(reference, words[i]);
+			scores.keySet().retainAll(next.keySet());
+			scores.replaceAll((id, score) -> score + next.get(id));
+		}
+		if (words.length > 1) {
+			wordScores(reference, truncate(String.join("", words))).forEach((id, score) -> scores.merge(id, score, Math::max));
+		}
+		return scores.entrySet().stream()
+				.sorted(Map.Entry.<Long, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()).reversed())
+				.mapToLong(Map.Entry::getKey)
+				.toArray();
+	}
+
+	private static Map<Long, Integer> wordScores(Map<Long, Song> reference, String word) {
+		word = truncate(word);
+		int maxDistance = word.length() <= 3 ? 0 : word.length() <= 10 ? 1 : 2;
+		Map<Long, Integer> scores = new HashMap<>();
+		for (Map.Entry<Long, Song> entry : reference.entrySet()) {
+			int best = 0;
+			for (int field = 0; field < 2; field++) {
+				for (String term : field == 0 ? entry.getValue().titleTerms() : entry.getValue().artistTerms()) {
+					int matchClass = 0;
+					if (term.startsWith(word)) {
+						matchClass = term.length() == word.length() ? 4 : 3;
+					} else if (maxDistance > 0 && term.charAt(0) == word.charAt(0)) {
+						int distance = minPrefixDistance(term, word);
+						if (distance <= maxDistance) {
+							matchClass = 2 - distance + 1;
+						}
+					}
+					if (matchClass > 0) {
+						best = Math.max(best, matchClass * 2 + (field == 0 ? 1 : 0));
+					}
+				}
+			}
+			if (best > 0) {
+				scores.put(entry.getKey(), best);
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * 完整的 OSA 距离矩阵，d[i][n] 即词条前 i 个字符与 word 的距离，取 i >= 1 中的最小值
+	 */
+	private static int minPrefixDistance(String term, String word) {
+		int m = term.length();
+		int n = word.length();
+		int[][] d = new int[m + 1][n + 1];
+		for (int i = 0; i <= m; i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= n; j++) {
+			d[0][j] = j;
+		}
+		int best = Integer.MAX_VALUE;
+		for (int i = 1; i <= m; i++) {
+			for (int j = 1; j <= n; j++) {
+				int cost = term.charAt(i - 1) == word.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && term.charAt(i - 1) == word.charAt(j - 2) && term.charAt(i - 2) == word.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+			best = Math.min(best, d[i][n]);
+		}
+		return best;
+	}
+
+	private static String truncate(String term) {
+		return term.length() <= 32 ? term : term.substring(0, 32);
+	}
+}
@@ -0,0 +1,177 @@
+package com.melodymix.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 随机的增删歌曲、调整收藏数序列与参考实现对照：参考实现直接按（类型，规范化文本）聚合补全项，
+ * 查询时全量过滤排序。topK 和 maxDepth 都取得很小，让节点的 top-k 频繁被挤出、重新合并，
+ * 并覆盖超过最大深度的前缀。
+ */
+class SuggestionTrieTests {
+
+	private static final String ALPHABET = "abc爱你";
+	private static final int TOP_K = 3;
+	private static final int MAX_DEPTH = 4;
+	private static final int OPERATIONS = 4_000;
+
+	private record Key(SuggestionTrie.Kind kind, String key) {
+	}
+
+	private static final class Entry {
+		private final String text;
+		private long weight;
+		private int songCount;
+
+		private Entry(String text) {
+			this.text = text;
+		}
+	}
+
+	private static final class Song {
+		private final Key[] parts = new Key[SuggestionTrie.Kind.values().length];
+		private long likes;
+	}
+
+	@Test
+	void matchesBruteForceUnderRandomUpdates() {
+		for (long seed = 1; seed <= 5; seed++) {
+			Random random = new Random(seed);
+			SuggestionTrie trie = new SuggestionTrie(TOP_K, MAX_DEPTH);
+			Map<Key, Entry> completions = new HashMap<>();
+			Map<Long, Song> songs = new HashMap<>();
+			for (int i = 0; i < OPERATIONS; i++) {
+				long id = random.nextInt(60);
+				int action = random.nextInt(10);
+				if (action < 2) {
+					trie.removeSong(id);
+					Song existing = songs.remove(id);
+					if (existing != null) {
+						detach(completions, existing);
+					}
+				} else if (action < 5) {
+					long delta = random.nextInt(7) - 3;
+					trie.addLikes(id, delta);
+					Song song = songs.get(id);
+					if (song != null) {
+						long applied = Math.max(-song.likes, delta);
+						song.likes += applied;
+						for (Key part : song.parts) {
+							if (part != null) {
+								completions.get(part).weight += applied;
+							}
+						}
+					}
+				} else {
+					String title = randomText(random);
+					String artist = randomText(random);
+					String album = random.nextInt(4) == 0 ? null : randomText(random);
+					long likes = random.nextBoolean() ? -1 : random.nextInt(5);
+					trie.putSong(id, title, artist, album, likes);
+					Song existing = songs.remove(id);
+					if (existing != null) {
+						detach(completions, existing);
+					}
+					Song song = new Song();
+					song.likes = likes >= 0 ? likes : existing == null ? 0 : existing.likes;
+					String[] texts = {title, artist, album};
+					for (SuggestionTrie.Kind kind : SuggestionTrie.Kind.values()) {
+						song.parts[kind.ordinal()] = attach(completions, kind, texts[kind.ordinal()], song.likes);
+					}
+					songs.put(id, song);
+				}
+				assertEquals(songs.size(), trie.size(), "seed " + seed + ", operation " + i);
+				for (int q = 0; q < 4; q++) {
+					String prefix = randomPrefix(random, completions);
+					int limit = 1 + random.nextInt(TOP_K + 1);
+					assertEquals(expectedSuggest(completions, prefix, limit), trie.suggest(prefix, limit),
+							"seed " + seed + ", operation " + i + ", prefix '" + prefix + "'");
+				}
+			}
+		}
+	}
+
+	private static Key attach(Map<Key, Entry> completions, SuggestionTrie.Kind kind, String text, long likes) {
+		String normalized = text == null ? "" : NgramIndex.normalize(text);
+		if (normalized.isEmpty()) {
+			return null;
+		}
+		Key key = new Key(kind, normalized);
+		// 显示文本取创建该补全项的那首歌曲
+		Entry entry = completions.computeIfAbsent(key, k -> new Entry(text.trim()));
+		entry.weight += likes + 1;
+		entry.songCount++;
+		return key;
+	}
+
+	private static void detach(Map<Key, Entry> completions, Song song) {
+		for (Key part : song.parts) {
+			if (part == null) {
+				continue;
+			}
+			Entry entry = completions.get(part);
+			entry.weight -= song.likes + 1;
+			if (--entry.songCount == 0) {
+				completions.remove(part);
+			}
+		}
+	}
+
+	private static List<SuggestionTrie.Suggestion> expectedSuggest(Map<Key, Entry> completions, String prefix, int limit) {
+		String query = NgramIndex.normalize(prefix);
+		if (query.isEmpty()) {
+			return List.of();
+		}
+		return completions.entrySet().stream()
+				.filter(e -> e.getKey().key().startsWith(query) || e.getKey().key().contains(" " + query))
+				.sorted(Comparator.<Map.Entry<Key, Entry>>comparingLong(e -> -e.getValue().weight)
+						.thenComparing(e -> e.getKey().key())
+						.thenComparing(e -> e.getKey().kind()))
+				.limit(Math.min(limit, TOP_K))
+				.map(e -> new SuggestionTrie.Suggestion(e.getValue().text, e.getKey().kind()))
+				.toList();
+	}
+
+	private static String randomText(Random random) {
+		StringBuilder text = new StringBuilder();
+		if (random.nextInt(8) == 0) {
+			text.append("  ");
+		}
+		int words = 1 + random.nextInt(3);
+		for (int w = 0; w < words; w++) {
+			if (w > 0) {
+				text.append(random.nextInt(5) == 0 ? "  " : " ");
+			}
+			int length = 1 + random.nextInt(7);
+			for (int c = 0; c < length; c++) {
+				char ch = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+				text.append(random.nextInt(6) == 0 ? Character.toUpperCase(ch) : ch);
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * 多数取自现有补全项某个词的开头，长度可能超过 maxDepth；其余随机生成
+	 */
+	private static String randomPrefix(Random random, Map<Key, Entry> completions) {
+		if (completions.isEmpty() || random.nextInt(4) == 0) {
+			String text = randomText(random);
+			return text.substring(0, Math.min(text.length(), 1 + random.nextInt(3)));
+		}
+		List<Key> keys = new ArrayList<>(completions.keySet());
+		String key = keys.get(random.nextInt(keys.size())).key();
+		String[] words = key.split(" ");
+		int word = random.nextInt(words.length);
+		String rest = String.join(" ", List.of(words).subList(word, words.length));
+		return rest.substring(0, 1 + random.nextInt(rest.length()));
+	}
+}
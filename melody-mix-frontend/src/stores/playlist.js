@@ -4,9 +4,15 @@ import { defineStore } from 'pinia';
 import axios from 'axios';
 import { ref } from 'vue';
 
+// 播放列表详情每次加载的歌曲数（后端上限 100）
+const TRACK_PAGE_SIZE = 50;
+
 export const usePlaylistStore = defineStore('playlist', () => {
     const myPlaylists = ref([]);
-    const playlistDetail = ref(null); // 用于存储单个播放列表的详细信息
+    const playlistDetail = ref(null); // 用于存储单个播放列表的详细信息（歌曲数、总时长，不含歌曲）
+    const playlistTracks = ref([]); // 已加载的播放列表项 { entryId, song, addedAt }，按顺序
+    const tracksCursor = ref(null); // 下一页的游标
+    const hasMoreTracks = ref(false);
     const isLoading = ref(false);
 
     // 获取用户的所有播放列表
@@ -34,11 +40,14 @@ export const usePlaylistStore = defineStore('playlist', () => {
         }
     }
 
-    // 获取单个播放列表的详细信息
+    // 获取单个播放列表的详细信息和第一页歌曲
     async function fetchPlaylistDetail(playlistId) {
         isLoading.value = true;
         try {
             const response = await axios.get(`/playlists/${playlistId}`);
+            playlistTracks.value = [];
+            tracksCursor.value = null;
+            await fetchMoreTracks(playlistId);
             playlistDetail.value = response.data;
             return response.data;
         } catch (error) {
@@ -56,6 +65,26 @@ export const usePlaylistStore = defineStore('playlist', () => {
         }
     }
 
+    // 按游标加载下一页歌曲，追加到 playlistTracks
+    async function fetchMoreTracks(playlistId) {
+        const params = { size: TRACK_PAGE_SIZE };
+        if (tracksCursor.value) {
+            params.cursor = tracksCursor.value;
+        }
+        const response = await axios.get(`/playlists/${playlistId}/tracks`, { params });
+        playlistTracks.value = playlistTracks.value.concat(response.data.content);
+        tracksCursor.value = response.data.nextCursor;
+        hasMoreTracks.value = response.data.hasNext;
+    }
+
+    // 加载剩余的全部歌曲（播放全部时需要完整的队列）
+    async function fetchAllTracks(playlistId) {
+        while (hasMoreTracks.value) {
+            await fetchMoreTracks(playlistId);
+        }
+        return playlistTracks.value;
+    }
+
     // 添加歌曲到指定的播放列表
     async function addSongToPlaylist(playlistId, songId) {
         try {
@@ -160,16 +189,66 @@ export const usePlaylistStore = defineStore('playlist', () => {
         }
     }
 
+    // 从播放列表中移除一项（同一首歌出现多次时只移除这一项）
+    async function removeEntryFromPlaylist(playlistId, entryId) {
+        isLoading.value = true;
+        try {
+            await axios.delete(`/playlists/${playlistId}/entries/${entryId}`);
+            window.$message.success('歌曲已从播放列表中移除。');
+            if (playlistDetail.value && playlistDetail.value.id === playlistId) {
+                // 只从已加载的列表中去掉这一项，歌曲数和总时长重新获取，不重新加载歌曲
+                playlistTracks.value = playlistTracks.value.filter(track => track.entryId !== entryId);
+                playlistDetail.value = (await axios.get(`/playlists/${playlistId}`)).data;
+            }
+            await fetchMyPlaylists(true);
+            return true;
+        } catch (error) {
+            console.error('从播放列表中移除歌曲失败:', error);
+            const errorMsg = error.response?.data?.message || '移除失败，请重试';
+            window.$message.error(errorMsg);
+            throw error;
+        } finally {
+            isLoading.value = false;
+        }
+    }
+
+    // 调整播放列表中一项的顺序：afterEntryId 为 0 表示移到最前面
+    async function moveEntry(playlistId, entryId, afterEntryId) {
+        try {
+            await axios.put(`/playlists/${playlistId}/entries/${entryId}/position`, { afterEntryId });
+            if (playlistDetail.value && playlistDetail.value.id === playlistId) {
+                // 在已加载的列表中同样移动，不重新加载
+                const tracks = playlistTracks.value.slice();
+                const moved = tracks.splice(tracks.findIndex(track => track.entryId === entryId), 1)[0];
+                const anchorIndex = afterEntryId ? tracks.findIndex(track => track.entryId === afterEntryId) : -1;
+                tracks.splice(anchorIndex + 1, 0, moved);
+                playlistTracks.value = tracks;
+            }
+            return true;
+        } catch (error) {
+            console.error('调整歌曲顺序失败:', error);
+            const errorMsg = error.response?.data?.error || '调整顺序失败，请重试';
+            window.$message.error(errorMsg);
+            return false;
+        }
+    }
+
     return {
         myPlaylists,
         playlistDetail,
+        playlistTracks,
+        hasMoreTracks,
         isLoading,
         fetchMyPlaylists,
         fetchPlaylistDetail,
+        fetchMoreTracks,
+        fetchAllTracks,
         addSongToPlaylist,
         createPlaylist,
         updatePlaylist,
         deletePlaylist,
-        removeSongFromPlaylist
+        removeSongFromPlaylist,
+        removeEntryFromPlaylist,
+        moveEntry
     };
 });